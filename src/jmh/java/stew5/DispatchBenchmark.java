@@ -0,0 +1,47 @@
+package stew5;
+
+import java.util.*;
+import java.util.concurrent.*;
+import net.argius.stew.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks of the tokenizer and the statement classification on the command dispatch path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DispatchBenchmark {
+
+    @Param({"select id, name from table1 where id = 1",
+            "  update table1\n set name = 'x' where id = 1",
+            "/* report */ select a.id, b.filedata from table1 a join table2 b on a.id = b.id where a.name like 'x%'"})
+    public String sql;
+
+    @Benchmark
+    public Parameter parameter() {
+        return new Parameter(sql);
+    }
+
+    @Benchmark
+    public StatementKind statementKind() {
+        return StatementKind.of(sql);
+    }
+
+    @Benchmark
+    public boolean statementKindLegacy() {
+        // the former implementation of Command.isSelect
+        try (Scanner scanner = new Scanner(sql)) {
+            while (scanner.hasNextLine()) {
+                final String line = scanner.nextLine();
+                final String s = line.replaceAll("/\\*.*?\\*/", "");
+                if (s.matches("\\s*") || s.matches("\\s*--.*")) {
+                    continue;
+                }
+                return s.matches("(?i)\\s*SELECT.*");
+            }
+        }
+        return false;
+    }
+
+}
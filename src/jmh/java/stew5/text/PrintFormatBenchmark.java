@@ -0,0 +1,103 @@
+package stew5.text;
+
+import static java.util.FormattableFlags.LEFT_JUSTIFY;
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks of PrintFormat against the former implementation, with a row of the console output.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PrintFormatBenchmark {
+
+    @Param({"ascii", "japanese"})
+    public String text;
+
+    private String format;
+    private Object[] row;
+
+    @Setup
+    public void setup() {
+        format = "%8s %-32s %-40s %19s";
+        if (text.equals("ascii")) {
+            row = new Object[]{"12345", "argius", "The quick brown fox jumps over the lazy dog", "2017-05-13 12:34:56"};
+        } else {
+            row = new Object[]{"12345", "東京都千代田区", "吾輩は猫である。名前はまだ無い。どこで生れたかとんと見当がつかぬ。", "2017-05-13 12:34:56"};
+        }
+    }
+
+    @Benchmark
+    public String format() {
+        return PrintFormat.format(format, row);
+    }
+
+    @Benchmark
+    public String formatLegacy() {
+        List<Object> a = new ArrayList<>();
+        for (Object arg : row) {
+            a.add((arg == null || arg instanceof CharSequence)
+                    ? new LegacyFullwidthFormatter((arg == null) ? "" : arg.toString())
+                    : arg);
+        }
+        return String.format(format, a.toArray());
+    }
+
+    /**
+     * The former implementation of PrintFormat.FullwidthFormatter.
+     */
+    static final class LegacyFullwidthFormatter implements Formattable {
+
+        private final char[] chars;
+        private final int length;
+
+        LegacyFullwidthFormatter(String string) {
+            this.chars = string.toCharArray();
+            this.length = chars.length;
+        }
+
+        @Override
+        public void formatTo(Formatter formatter, int flags, int width, int precision) {
+            if (width < 0) {
+                formatter.format("%s", new String(chars));
+                return;
+            }
+            final boolean leftJustify = (flags & LEFT_JUSTIFY) == LEFT_JUSTIFY;
+            StringBuilder buffer = new StringBuilder(width);
+            int count = 0;
+            for (int i = 0; i < length; i++) {
+                final int index = leftJustify ? i : length - 1 - i;
+                char c = chars[index];
+                if (leftJustify) {
+                    buffer.append(c);
+                } else {
+                    buffer.insert(0, c);
+                }
+                final int w = (c > 'ÿ' && (c < '｡' || c > 'ﾟ')) ? 2 : 1;
+                if (++count >= width) {
+                    if (w == 2) {
+                        buffer.setCharAt(index, ' ');
+                    }
+                    break;
+                }
+                if (w == 2) {
+                    ++count;
+                }
+            }
+            if (count < width) {
+                char[] chars = new char[width - count];
+                Arrays.fill(chars, ' ');
+                if (leftJustify) {
+                    buffer.append(chars);
+                } else {
+                    buffer.insert(0, chars);
+                }
+            }
+            formatter.format(buffer.toString());
+        }
+
+    }
+
+}
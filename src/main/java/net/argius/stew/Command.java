@@ -3,7 +3,6 @@ package net.argius.stew;
 import java.io.*;
 import java.nio.channels.Channels;
 import java.sql.*;
-import java.util.Scanner;
 import stew5.*;
 import stew5.io.FileUtilities;
 import stew5.ui.OutputProcessor;
@@ -13,6 +12,11 @@ import stew5.ui.OutputProcessor;
  */
 public abstract class Command implements AutoCloseable {
 
+    private static final Metrics.Histogram prepareTime = Metrics.getInstance()
+            .histogram("stew_statement_prepare_seconds", "Time to prepare a statement.");
+    private static final Metrics.Histogram executeTime = Metrics.getInstance()
+            .histogram("stew_statement_execute_seconds", "Time to execute a statement.");
+
     protected Environment env;
     protected OutputProcessor op;
 
@@ -74,6 +78,16 @@ public abstract class Command implements AutoCloseable {
         return false;
     }
 
+    /**
+     * Returns whether this command requires the current connection or not.
+     * Overwrite this method to make the command available without connecting.
+     * @return
+     */
+    @SuppressWarnings("static-method")
+    public boolean requiresConnection() { // overridable
+        return true;
+    }
+
     /**
      * Sets the timeout.
      * It only sets when the config value is more than zero.
@@ -180,20 +194,7 @@ public abstract class Command implements AutoCloseable {
      * @return
      */
     public static boolean isSelect(String sql) {
-        try (Scanner scanner = new Scanner(sql)) {
-            while (scanner.hasNextLine()) {
-                final String line = scanner.nextLine();
-                final String s = line.replaceAll("/\\*.*?\\*/", "");
-                if (s.matches("\\s*") || s.matches("\\s*--.*")) {
-                    continue;
-                }
-                if (!s.matches("\\s*") && s.matches("(?i)\\s*SELECT.*")) {
-                    return true;
-                }
-                break;
-            }
-        }
-        return false;
+        return StatementKind.of(sql) == StatementKind.SELECT;
     }
 
     /**
@@ -222,6 +223,7 @@ public abstract class Command implements AutoCloseable {
      * @throws SQLException
      */
     protected final Statement prepareStatement(Connection conn, String sql) throws SQLException {
+        final long startTime = System.nanoTime();
         final int index = sql.indexOf(';');
         Statement stmt = (index >= 0)
                 ? conn.prepareStatement(sql.substring(0, index))
@@ -249,6 +251,7 @@ public abstract class Command implements AutoCloseable {
                 stmt.close();
             }
         }
+        prepareTime.recordSince(startTime);
         return stmt;
     }
 
@@ -259,11 +262,17 @@ public abstract class Command implements AutoCloseable {
      * @return
      * @throws SQLException
      */
-    @SuppressWarnings("static-method")
     protected ResultSet executeQuery(Statement stmt, String sql) throws SQLException {
-        return (stmt instanceof PreparedStatement)
-                ? ((PreparedStatement)stmt).executeQuery()
-                : stmt.executeQuery(sql);
+        final FlightRecorder.Event event = beginStatementEvent();
+        final long startTime = System.nanoTime();
+        try {
+            return (stmt instanceof PreparedStatement)
+                    ? ((PreparedStatement)stmt).executeQuery()
+                    : stmt.executeQuery(sql);
+        } finally {
+            recordExecution(sql, System.nanoTime() - startTime, -1L);
+            event.commit(-1L);
+        }
     }
 
     /**
@@ -273,11 +282,32 @@ public abstract class Command implements AutoCloseable {
      * @return
      * @throws SQLException
      */
-    @SuppressWarnings("static-method")
     protected int executeUpdate(Statement stmt, String sql) throws SQLException {
-        return (stmt instanceof PreparedStatement)
-                ? ((PreparedStatement)stmt).executeUpdate()
-                : stmt.executeUpdate(sql);
+        final FlightRecorder.Event event = beginStatementEvent();
+        final long startTime = System.nanoTime();
+        int count = -1;
+        try {
+            count = (stmt instanceof PreparedStatement)
+                    ? ((PreparedStatement)stmt).executeUpdate()
+                    : stmt.executeUpdate(sql);
+            return count;
+        } finally {
+            recordExecution(sql, System.nanoTime() - startTime, count);
+            event.commit(count);
+        }
+    }
+
+    private FlightRecorder.Event beginStatementEvent() {
+        final Connector connector = (env == null) ? null : env.getCurrentConnector();
+        return FlightRecorder.begin(FlightRecorder.EventKind.STATEMENT, connector, getClass().getSimpleName());
+    }
+
+    private void recordExecution(String sql, long nanos, long rowCount) {
+        executeTime.record(nanos);
+        final Connector connector = (env == null) ? null : env.getCurrentConnector();
+        if (connector != null && SlowQueryLog.isSlow(connector, nanos)) {
+            SlowQueryLog.getInstance().record(connector, sql, nanos, rowCount);
+        }
     }
 
 }
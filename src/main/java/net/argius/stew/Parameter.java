@@ -1,6 +1,7 @@
 package net.argius.stew;
 
 import java.util.*;
+import stew5.*;
 
 /**
  * Parameter.
@@ -11,55 +12,56 @@ public final class Parameter {
     private final String[] array;
     private final int[] indices;
 
+    private StatementKind statementKind;
+
     /**
      * A constructor.
      * @param string
      */
     public Parameter(String string) {
-        char[] chars = string.toCharArray();
-        int[] indices = indices(chars);
-        String[] array = array(chars, indices);
+        int[] indices = indices(string);
+        String[] array = array(string, indices);
         this.string = string;
         this.array = array;
         this.indices = indices;
     }
 
-    private static int[] indices(char[] chars) {
-        List<Integer> a = new ArrayList<>();
+    private static int[] indices(String s) {
+        final int length = s.length();
+        int[] a = new int[8];
+        int n = 0;
         boolean prev = true;
         boolean quoted = false;
-        for (int i = 0; i < chars.length; i++) {
-            final char c = chars[i];
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
             if (c == '"') {
                 quoted = !quoted;
             }
             final boolean f = isSpaceChar(c);
             if (!f && f != prev) {
-                a.add(i);
+                if (n + 1 >= a.length) {
+                    a = Arrays.copyOf(a, a.length * 2);
+                }
+                a[n++] = i;
             }
             prev = !quoted && f;
         }
-        a.add(chars.length);
-        int[] indices = new int[a.size()];
-        for (int i = 0; i < indices.length; i++) {
-            indices[i] = a.get(i);
-        }
-        return indices;
+        a[n++] = length;
+        return (n == a.length) ? a : Arrays.copyOf(a, n);
     }
 
-    private static String[] array(char[] chars, int[] indices) {
+    private static String[] array(String s, int[] indices) {
         String[] a = new String[indices.length - 1];
         for (int i = 0; i < a.length; i++) {
             final int offset = indices[i];
             int end = indices[i + 1];
             while (end > offset) {
-                if (!isSpaceChar(chars[end - 1])) {
+                if (!isSpaceChar(s.charAt(end - 1))) {
                     break;
                 }
                 --end;
             }
-            final String s = String.valueOf(chars, offset, end - offset);
-            a[i] = (chars[offset] == '"') ? s.substring(1, s.length() - 1) : s;
+            a[i] = (s.charAt(offset) == '"') ? s.substring(offset + 1, end - 1) : s.substring(offset, end);
         }
         return a;
     }
@@ -95,6 +97,20 @@ public final class Parameter {
         return has(index) ? string.substring(indices[index]) : "";
     }
 
+    /**
+     * Returns the parameters from the begin index to the end index (exclusive) as the original string.
+     * @param beginIndex
+     * @param endIndex
+     * @return
+     */
+    public String between(int beginIndex, int endIndex) {
+        if (!has(beginIndex) || endIndex <= beginIndex) {
+            return "";
+        }
+        final int end = Math.min(endIndex, array.length);
+        return string.substring(indices[beginIndex], indices[end]).trim();
+    }
+
     /**
      * Returns whether a parameter exists at the position specified index.
      * @param index
@@ -115,6 +131,18 @@ public final class Parameter {
         return array.clone();
     }
 
+    /**
+     * Returns the kind of statement of this parameter.
+     * It is determined once, and shared in the dispatch.
+     * @return
+     */
+    public StatementKind getStatementKind() {
+        if (statementKind == null) {
+            statementKind = StatementKind.of(string);
+        }
+        return statementKind;
+    }
+
     /**
      * Returns this parameter as String.
      * is not the same as <code>toString</code>
@@ -1,8 +1,11 @@
 package stew5;
 
+import static java.nio.file.StandardWatchEventKinds.*;
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
 import stew5.ui.console.*;
+import stew5.ui.daemon.*;
 import stew5.ui.swing.WindowLauncher;
 
 /**
@@ -13,11 +16,14 @@ public final class App {
     // These fields need to evaluate orderly on static-initializer
     private static final Logger log = Logger.getLogger(App.class);
 
+    private static final long LOG_FLUSH_TIMEOUT = 3000L;
+
     public static final String rootPackageName = App.class.getPackage().getName();
-    private static final File dir = initializeDirectory();
+    private static volatile File dir = initializeDirectory();
     public static final LayeredProperties props = initializeProperties();
 
     private static final String PropFileName = "stew.properties";
+    private static final long RELOAD_DELAY_MILLIS = 200L;
 
     private App() { // empty
     }
@@ -54,6 +60,64 @@ public final class App {
         return newProps;
     }
 
+    /**
+     * Reloads the properties.
+     * The settings which are read on each use take effect immediately.
+     */
+    static void reloadProperties() {
+        props.reload(System.getenv(), getFileProperties(), System.getProperties());
+        log.info("properties reloaded");
+        if (log.isDebugEnabled()) {
+            log.debug("dump properties%s", props.dump());
+        }
+    }
+
+    /**
+     * Starts watching the properties file, and reloads the properties when it is changed.
+     * It can be disabled by <code>properties.watch=false</code>.
+     */
+    static void watchPropertiesFile() {
+        if (!Boolean.parseBoolean(props.get("properties.watch", "true")) || !dir.isDirectory()) {
+            return;
+        }
+        final WatchService watcher;
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            dir.toPath().register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        } catch (IOException | UnsupportedOperationException ex) {
+            log.warn(ex);
+            return;
+        }
+        DaemonThreadFactory.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        WatchKey key = watcher.take();
+                        boolean changed = false;
+                        for (final WatchEvent<?> event : key.pollEvents()) {
+                            final Object context = event.context();
+                            if (event.kind() == OVERFLOW || context != null && context.toString().equals(PropFileName)) {
+                                changed = true;
+                            }
+                        }
+                        if (changed) {
+                            // waits for the editor to finish writing
+                            Thread.sleep(RELOAD_DELAY_MILLIS);
+                            reloadProperties();
+                        }
+                        if (!key.reset()) {
+                            log.warn("stopped watching: %s", dir);
+                            break;
+                        }
+                    }
+                } catch (InterruptedException | ClosedWatchServiceException ex) {
+                    log.debug("stopped watching: %s", ex);
+                }
+            }
+        });
+    }
+
     private static Properties getFileProperties() {
         Properties props = new Properties();
         try (InputStream is = new FileInputStream(new File(dir, PropFileName))) {
@@ -78,6 +142,17 @@ public final class App {
         return new File(dir, name);
     }
 
+    /**
+     * Replaces the system directory (for testing).
+     * @param newDir
+     * @return the old system directory
+     */
+    static File setSystemDirectory(File newDir) {
+        final File old = dir;
+        dir = newDir;
+        return old;
+    }
+
     /**
      * Returns app version.
      * @return
@@ -100,21 +175,34 @@ public final class App {
             System.err.println(ResourceManager.Default.get("e.invalid-cli-option", e.getMessage()));
             return 1;
         }
+        if (opts.isJfr()) {
+            FlightRecorder.startRecording(new File(props.get("jfr.file", getSystemFile("stew.jfr").getPath())));
+        }
+        // the properties file is watched only in the long-running modes
         if (opts.isShowVersion()) {
             System.out.println("Stew " + App.getVersion());
         } else if (opts.isHelp()) {
             OptionSet.showHelp();
+        } else if (opts.isDaemon()) {
+            watchPropertiesFile();
+            return DaemonLauncher.main(opts);
+        } else if (opts.isRemote()) {
+            return DaemonClient.main(opts);
         } else if (opts.isCui()) {
+            watchPropertiesFile();
             return ConsoleLauncher.main(opts);
         } else if (opts.isGui()) {
+            watchPropertiesFile();
             WindowLauncher.main(args);
         } else if (opts.isEdit()) {
             ConnectorMapEditor.main(args);
         } else {
             final String v = props.get("bootstrap", props.get("boot", ""));
             if (v.equalsIgnoreCase("CUI")) {
+                watchPropertiesFile();
                 return ConsoleLauncher.main(opts);
             } else if (v.equalsIgnoreCase("GUI")) {
+                watchPropertiesFile();
                 WindowLauncher.main(args);
             } else {
                 if (!v.isEmpty()) {
@@ -135,6 +223,10 @@ public final class App {
             log.info("end");
         } else {
             log.info("end abnormally, status=%d", exitStatus);
+        }
+        // not to depend on the shutdown hook which races with LogManager's reset
+        Logger.flush(LOG_FLUSH_TIMEOUT);
+        if (exitStatus != 0) {
             System.exit(exitStatus);
         }
     }
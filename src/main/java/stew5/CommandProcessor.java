@@ -17,9 +17,18 @@ final class CommandProcessor {
     private static ResourceManager res = ResourceManager.getInstance(Command.class);
     private static final String HYPHEN_E = "-e";
 
+    private static final Metrics.Histogram commandTime = Metrics.getInstance()
+            .histogram("stew_command_duration_seconds", "Time to process a command.");
+    private static final Metrics.Counter commandErrors = Metrics.getInstance()
+            .counter("stew_command_errors_total", "Number of the commands which failed.");
+    private static final Metrics.Gauge commandsRunning = Metrics.getInstance()
+            .gauge("stew_commands_running", "Number of the commands in progress.");
+
     private final Environment env;
     private final OutputProcessor op;
 
+    private long startTime;
+
     CommandProcessor(Environment env) {
         this.env = env;
         this.op = env.getOutputProcessor();
@@ -59,8 +68,15 @@ final class CommandProcessor {
     boolean invokeWithErrorHandling(String parameterString) throws CommandException {
         Parameter p = new Parameter(parameterString);
         final String commandName = p.at(0);
+        final long startTime = System.nanoTime();
+        this.startTime = startTime;
+        commandsRunning.inc();
+        final QueryProfile lastProfile = env.getLastProfile();
+        final FlightRecorder.Event event = FlightRecorder.begin(FlightRecorder.EventKind.COMMAND,
+                                                                env.getCurrentConnector(),
+                                                                commandName);
         try {
-            return process(commandName, new Parameter(parameterString));
+            return process(commandName, p);
         } catch (UsageException ex) {
             outputMessage("e.usage", commandName, ex.getMessage());
         } catch (DynamicLoadingException ex) {
@@ -100,7 +116,13 @@ final class CommandProcessor {
         } catch (Throwable th) {
             log.fatal(th);
             outputMessage("e.fatal", th.getMessage());
+        } finally {
+            commandsRunning.dec();
+            commandTime.recordSince(startTime);
+            final QueryProfile profile = env.getLastProfile();
+            event.commit((profile == null || profile == lastProfile) ? -1L : profile.getRowCount());
         }
+        commandErrors.inc();
         try {
             Connection conn = env.getCurrentConnection();
             if (conn != null) {
@@ -204,8 +226,8 @@ final class CommandProcessor {
             return true;
         }
         // alias
-        AliasMap aliasMap = env.getAliasMap();
         if (commandName.equalsIgnoreCase("alias") || commandName.equalsIgnoreCase("unalias")) {
+            AliasMap aliasMap = env.getAliasMap();
             aliasMap.reload();
             if (commandName.equalsIgnoreCase("alias")) {
                 if (p.has(2)) {
@@ -243,8 +265,8 @@ final class CommandProcessor {
                 }
             }
             return true;
-        } else if (aliasMap.containsKey(commandName)) {
-            final String command = aliasMap.expand(commandName, p);
+        } else if (env.isAlias(commandName)) {
+            final String command = env.getAliasMap().expand(commandName, p);
             op.output(" >> " + command);
             invoke(command);
             return true;
@@ -304,7 +326,7 @@ final class CommandProcessor {
         // connection
         Connection conn = env.getCurrentConnection();
         if (conn == null) {
-            outputMessage("e.not-connect");
+            executeDynamicCommand(commandName, null, p);
         } else if (commandName.equalsIgnoreCase("disconnect") || commandName.equalsIgnoreCase("-d")) {
             disconnect();
             outputMessage("i.disconnected");
@@ -356,28 +378,24 @@ final class CommandProcessor {
 
     private void executeDynamicCommand(String commandName, Connection conn, Parameter p) {
         assert commandName != null && !commandName.contains(" ");
-        final String fqcn;
-        if (commandName.indexOf('.') > 0) {
-            fqcn = commandName;
-        } else {
-            fqcn = App.rootPackageName
-                   + ".command."
-                   + commandName.substring(0, 1).toUpperCase()
-                   + commandName.substring(1).toLowerCase();
-        }
-        Class<? extends Command> c;
-        try {
-            c = DynamicLoader.loadClass(fqcn);
-        } catch (DynamicLoadingException ex) {
-            c = Command.isSelect(p.asString()) ? Select.class : UpdateAndOthers.class;
+        Class<? extends Command> c = CommandRegistry.getInstance().lookup(commandName);
+        if (c == null) {
+            c = (p.getStatementKind() == StatementKind.SELECT) ? Select.class : UpdateAndOthers.class;
         }
         try (Command command = DynamicLoader.newInstance(c)) {
+            if (conn == null && command.requiresConnection()) {
+                outputMessage("e.not-connect");
+                return;
+            }
             Connector connector = env.getCurrentConnector();
-            if (connector.isReadOnly() && !command.isReadOnly()) {
+            if (connector != null && connector.isReadOnly() && !command.isReadOnly()) {
                 outputMessage("e.readonly");
                 return;
             }
             command.setEnvironment(env);
+            if (command instanceof RawSQL) {
+                ((RawSQL)command).profile = new QueryProfile(p.asString(), startTime);
+            }
             log.info("command: %s start", command);
             log.debug(p);
             command.initialize();
@@ -401,17 +419,41 @@ final class CommandProcessor {
      */
     abstract static class RawSQL extends Command {
 
+        QueryProfile profile;
+
         @Override
         public final void execute(Connection conn, Parameter p) throws CommandException {
             final String rawString = p.asString();
+            if (profile == null) {
+                profile = new QueryProfile(rawString, System.nanoTime());
+            }
+            profile.endDispatch();
+            final long prepareStartTime = System.nanoTime();
             try (Statement stmt = prepareStatement(conn, rawString)) {
-                execute(stmt, rawString);
+                profile.add(QueryProfile.Phase.PREPARE, System.nanoTime() - prepareStartTime);
+                execute(stmt, rawString, p.getStatementKind());
             } catch (SQLException ex) {
                 throw new CommandException(ex);
             }
+            profile.finish();
+            env.setLastProfile(profile);
+            if (QueryLog.isEnabled()) {
+                QueryLog.getInstance().write(env.getCurrentConnector(), profile);
+            }
+            if (env.isProfiling()) {
+                outputMessage("i.profile", profile.toMessageArguments());
+            }
+        }
+
+        /**
+         * Returns whether the time in the ResultSet is measured separately from the output.
+         * @return
+         */
+        boolean measuresFetchTime() {
+            return env.isProfiling() || QueryLog.isEnabled();
         }
 
-        protected abstract void execute(Statement stmt, String sql) throws SQLException;
+        protected abstract void execute(Statement stmt, String sql, StatementKind kind) throws SQLException;
 
     }
 
@@ -420,6 +462,11 @@ final class CommandProcessor {
      */
     static final class Select extends RawSQL {
 
+        private static final Metrics.Histogram fetchTime = Metrics.getInstance()
+                .histogram("stew_result_fetch_seconds", "Time to fetch and output a result set.");
+        private static final Metrics.Counter rowsFetched = Metrics.getInstance()
+                .counter("stew_rows_fetched_total", "Number of the rows fetched by SELECT.");
+
         public Select() {
             // empty
         }
@@ -430,14 +477,53 @@ final class CommandProcessor {
         }
 
         @Override
-        public void execute(Statement stmt, String rawString) throws SQLException {
-            final long startTime = System.currentTimeMillis();
+        public void execute(Statement stmt, String rawString, StatementKind kind) throws SQLException {
+            final Connector connector = env.getCurrentConnector();
+            final boolean usesCache = ResultCache.isEnabled(connector);
+            if (usesCache) {
+                ResultCache.Entry entry = ResultCache.getInstance().get(connector, rawString);
+                if (entry != null) {
+                    final long age = System.currentTimeMillis() - entry.getCreatedTime();
+                    outputMessage("i.cached-result", age / 1000f);
+                    output(entry.getResultSet(), rawString);
+                    return;
+                }
+            }
+            final long startTime = System.nanoTime();
             try (ResultSet rs = executeQuery(stmt, rawString)) {
-                outputMessage("i.response-time", (System.currentTimeMillis() - startTime) / 1000f);
-                ResultSetReference ref = new ResultSetReference(rs, rawString);
-                output(ref);
+                final long executeTime = System.nanoTime() - startTime;
+                profile.add(QueryProfile.Phase.EXECUTE, executeTime);
+                outputMessage("i.response-time", executeTime / 1e9f);
+                final ResultSet r = measuresFetchTime() ? profile.wrap(rs) : rs;
+                output(usesCache ? ResultCache.getInstance().put(connector, rawString, r) : r, rawString);
+            }
+        }
+
+        private void output(ResultSet rs, String rawString) throws SQLException {
+            try (ResultSet r = rs) {
+                ResultSetReference ref = new ResultSetReference(r, rawString);
+                final long fetchTimeBefore = getFetchTime();
+                final FlightRecorder.Event event = FlightRecorder.begin(FlightRecorder.EventKind.FETCH,
+                                                                        env.getCurrentConnector(),
+                                                                        "select");
+                final long startTime = System.nanoTime();
+                try {
+                    output(ref);
+                } finally {
+                    event.commit(ref.getRecordCount());
+                }
+                final long outputTime = System.nanoTime() - startTime;
+                fetchTime.record(outputTime);
+                rowsFetched.add(ref.getRecordCount());
+                profile.add(QueryProfile.Phase.RENDER, Math.max(0L, outputTime - (getFetchTime() - fetchTimeBefore)));
+                profile.setRowCount(ref.getRecordCount());
                 outputMessage("i.selected", ref.getRecordCount());
             }
+            env.setLastQuery(rawString);
+        }
+
+        private long getFetchTime() {
+            return profile.get(QueryProfile.Phase.FIRST_ROW) + profile.get(QueryProfile.Phase.FETCH);
         }
 
     }
@@ -457,17 +543,24 @@ final class CommandProcessor {
         }
 
         @Override
-        protected void execute(Statement stmt, String sql) throws SQLException {
+        protected void execute(Statement stmt, String sql, StatementKind kind) throws SQLException {
+            final long startTime = System.nanoTime();
             final int updatedCount = executeUpdate(stmt, sql);
+            profile.add(QueryProfile.Phase.EXECUTE, System.nanoTime() - startTime);
+            profile.setRowCount(updatedCount);
             final String msgId;
-            if (sql.matches("(?i)\\s*UPDATE.*")) {
-                msgId = "i.updated";
-            } else if (sql.matches("(?i)\\\\s*INSERT.*")) {
-                msgId = "i.inserted";
-            } else if (sql.matches("(?i)\\\\s*DELETE.*")) {
-                msgId = "i.deleted";
-            } else {
-                msgId = "i.proceeded";
+            switch (kind) {
+                case UPDATE:
+                    msgId = "i.updated";
+                    break;
+                case INSERT:
+                    msgId = "i.inserted";
+                    break;
+                case DELETE:
+                    msgId = "i.deleted";
+                    break;
+                default:
+                    msgId = "i.proceeded";
             }
             outputMessage(msgId, updatedCount);
         }
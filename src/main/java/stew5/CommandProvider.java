@@ -0,0 +1,22 @@
+package stew5;
+
+import java.util.*;
+import net.argius.stew.*;
+
+/**
+ * The service provider interface of plugin commands.
+ *
+ * The implementations are found by {@link ServiceLoader}, so a plugin jar declares its provider
+ * in <code>META-INF/services/stew5.CommandProvider</code>.
+ * @see CommandRegistry
+ */
+public interface CommandProvider {
+
+    /**
+     * Returns the commands provided by this plugin.
+     * The command names are case-insensitive, and cannot override the built-in commands.
+     * @return the map of the command name and the command class
+     */
+    Map<String, Class<? extends Command>> getCommands();
+
+}
@@ -0,0 +1,145 @@
+package stew5;
+
+import java.util.*;
+import java.util.concurrent.*;
+import net.argius.stew.*;
+
+/**
+ * CommandRegistry resolves the command name to the command class.
+ *
+ * The built-in commands are registered at the initialization,
+ * and the plugin commands are provided by {@link CommandProvider}s via {@link ServiceLoader}.
+ * The other names are loaded dynamically as fully qualified class names (or in the command package),
+ * and both the found and the not found results are cached.
+ * The SQL keywords are never loaded dynamically, so SQL statements are dispatched without class loading.
+ */
+public final class CommandRegistry {
+
+    private static final Logger log = Logger.getLogger(CommandRegistry.class);
+
+    static final int MAX_UNRESOLVED_ENTRIES = 1024;
+
+    private static final String COMMAND_PACKAGE = App.rootPackageName + ".command.";
+    private static final String[] BUILTIN_COMMANDS = {"Cache",
+                                                      "Connectors",
+                                                      "Copy",
+                                                      "Download",
+                                                      "Export",
+                                                      "Fanout",
+                                                      "Find",
+                                                      "Import",
+                                                      "Load",
+                                                      "Metadata",
+                                                      "Page",
+                                                      "Profile",
+                                                      "Report",
+                                                      "Stats",
+                                                      "Time",
+                                                      "Upload",
+                                                      "Wait"};
+
+    private static final CommandRegistry instance = new CommandRegistry(ServiceLoader.load(CommandProvider.class));
+
+    private final Map<String, String> builtins;
+    private final Map<String, Class<? extends Command>> plugins;
+    private final ConcurrentMap<String, Class<? extends Command>> resolved;
+    private final Set<String> unresolved;
+
+    CommandRegistry(Iterable<CommandProvider> providers) {
+        this.builtins = new HashMap<>();
+        this.plugins = new HashMap<>();
+        this.resolved = new ConcurrentHashMap<>();
+        this.unresolved = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        // the built-in classes are loaded at the first use to keep the startup fast
+        for (final String name : BUILTIN_COMMANDS) {
+            builtins.put(name.toLowerCase(), COMMAND_PACKAGE + name);
+        }
+        try {
+            for (final CommandProvider provider : providers) {
+                for (final Map.Entry<String, Class<? extends Command>> entry : provider.getCommands().entrySet()) {
+                    final String name = entry.getKey().toLowerCase();
+                    if (builtins.containsKey(name)) {
+                        log.warn("plugin command ignored: %s (%s)", name, entry.getValue());
+                        continue;
+                    }
+                    plugins.put(name, entry.getValue());
+                    log.debug("plugin command: %s (%s)", name, entry.getValue());
+                }
+            }
+        } catch (ServiceConfigurationError ex) {
+            log.warn(ex);
+        }
+    }
+
+    /**
+     * Returns the instance of CommandRegistry.
+     * @return
+     */
+    public static CommandRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the command class of the name.
+     * @param commandName the command name or the fully qualified class name
+     * @return the command class, or null if not found (it will be executed as SQL)
+     */
+    public Class<? extends Command> lookup(String commandName) {
+        final String name = commandName.toLowerCase();
+        Class<? extends Command> c = plugins.get(name);
+        if (c != null) {
+            return c;
+        }
+        final String builtin = builtins.get(name);
+        final String className;
+        if (builtin != null) {
+            className = builtin;
+        } else if (commandName.indexOf('.') > 0) {
+            className = commandName;
+        } else if (StatementKind.of(commandName) != StatementKind.OTHER) {
+            return null;
+        } else {
+            className = COMMAND_PACKAGE + commandName.substring(0, 1).toUpperCase() + name.substring(1);
+        }
+        c = resolved.get(className);
+        if (c != null || unresolved.contains(className)) {
+            return c;
+        }
+        c = load(className);
+        if (c == null) {
+            if (unresolved.size() >= MAX_UNRESOLVED_ENTRIES) {
+                unresolved.clear();
+            }
+            unresolved.add(className);
+        } else {
+            resolved.put(className, c);
+        }
+        return c;
+    }
+
+    /**
+     * Returns the names of the built-in and the plugin commands.
+     * @return
+     */
+    public Set<String> getCommandNames() {
+        Set<String> a = new TreeSet<>(builtins.keySet());
+        a.addAll(plugins.keySet());
+        return a;
+    }
+
+    private static Class<? extends Command> load(String className) {
+        final Class<?> c;
+        try {
+            c = DynamicLoader.loadClass(className);
+        } catch (DynamicLoadingException ex) {
+            log.debug("not found: %s", className);
+            return null;
+        }
+        if (!Command.class.isAssignableFrom(c)) {
+            log.warn("not a command: %s", className);
+            return null;
+        }
+        return c.asSubclass(Command.class);
+    }
+
+}
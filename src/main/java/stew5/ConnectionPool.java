@@ -0,0 +1,123 @@
+package stew5;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * A pool which keeps warmed-up connections for the session.
+ * It holds at most one idle connection for each connector,
+ * and a connection is removed from this pool when it is taken.
+ */
+public final class ConnectionPool {
+
+    private static final Logger log = Logger.getLogger(ConnectionPool.class);
+    private static final ConnectionPool instance = new ConnectionPool();
+
+    private final Map<String, Entry> entries;
+
+    private ConnectionPool() {
+        this.entries = new LinkedHashMap<>();
+    }
+
+    /**
+     * Returns the instance of ConnectionPool.
+     * @return
+     */
+    public static ConnectionPool getInstance() {
+        return instance;
+    }
+
+    /**
+     * Puts the connection into this pool.
+     * If this pool already has a connection of the connector, the old one will be closed.
+     * @param connector
+     * @param conn
+     */
+    public void offer(Connector connector, Connection conn) {
+        final Entry old;
+        synchronized (entries) {
+            old = entries.put(connector.getId(), new Entry(connector, conn));
+        }
+        if (old != null) {
+            close(old);
+        }
+        log.debug("pooled: %s", connector.getId());
+    }
+
+    /**
+     * Takes the connection of the connector out of this pool.
+     * @param connector
+     * @return the connection, or null if there is no available connection
+     */
+    public Connection poll(Connector connector) {
+        final Entry entry;
+        synchronized (entries) {
+            entry = entries.remove(connector.getId());
+        }
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.connector.equals(connector)) {
+            log.debug("connector was changed: %s", connector.getId());
+            close(entry);
+            return null;
+        }
+        try {
+            if (entry.conn.isClosed()) {
+                return null;
+            }
+        } catch (SQLException ex) {
+            log.warn(ex);
+            close(entry);
+            return null;
+        }
+        return entry.conn;
+    }
+
+    /**
+     * Returns the IDs of connectors which have a pooled connection.
+     * @return
+     */
+    public Set<String> getIds() {
+        synchronized (entries) {
+            return new LinkedHashSet<>(entries.keySet());
+        }
+    }
+
+    /**
+     * Closes all connections in this pool.
+     * @return the count of closed connections
+     */
+    public int closeAll() {
+        List<Entry> a;
+        synchronized (entries) {
+            a = new ArrayList<>(entries.values());
+            entries.clear();
+        }
+        for (Entry entry : a) {
+            close(entry);
+        }
+        return a.size();
+    }
+
+    private static void close(Entry entry) {
+        try {
+            entry.conn.close();
+        } catch (SQLException ex) {
+            log.warn(ex);
+        }
+    }
+
+    private static final class Entry {
+
+        final Connector connector;
+        final Connection conn;
+
+        Entry(Connector connector, Connection conn) {
+            this.connector = connector;
+            this.conn = conn;
+        }
+
+    }
+
+}
@@ -133,6 +133,15 @@ public final class Connector {
         return Boolean.valueOf(s).booleanValue();
     }
 
+    /**
+     * Returns the property of this connector.
+     * @param key
+     * @return the value, or null if not specified
+     */
+    public String getProperty(String key) {
+        return props.getProperty(key);
+    }
+
     /**
      * Converts this to Properties.
      * @return
@@ -142,11 +151,11 @@ public final class Connector {
     }
 
     /**
-     * Attempts to establish a connection.
-     * @return
+     * Loads the JDBC driver of this connector if it has not been loaded yet.
+     * @return the driver
      * @throws SQLException
      */
-    public Connection getConnection() throws SQLException {
+    public Driver loadDriver() throws SQLException {
         if (driver == null) {
             driver = ConnectorDriverManager.getDriver(getUrl(), getDriver(), getClasspath());
             if (driver == null) {
@@ -154,6 +163,16 @@ public final class Connector {
             }
             log.debug(driver);
         }
+        return driver;
+    }
+
+    /**
+     * Attempts to establish a connection.
+     * @return
+     * @throws SQLException
+     */
+    public Connection getConnection() throws SQLException {
+        final Driver driver = loadDriver();
         Properties p = new Properties();
         p.setProperty("user", getUser());
         p.setProperty("password", getPassword().getRawString());
@@ -6,7 +6,6 @@ import java.io.*;
 import java.net.*;
 import java.sql.*;
 import java.util.*;
-import java.util.zip.*;
 
 /**
  * A driver manager for Connector.
@@ -91,7 +90,7 @@ final class ConnectorDriverManager {
                 }
             }
         }
-        for (File jar : jars) {
+        for (File jar : DriverIndex.getInstance().sort(jars, url)) {
             try {
                 Driver driver = getDriver(jar, url, cl);
                 if (driver != null) {
@@ -104,45 +103,41 @@ final class ConnectorDriverManager {
                 log.warn(ex);
             }
         }
+        List<File> classpathJars = new ArrayList<>();
         for (String path : System.getProperty("java.class.path", "").split(pathSeparator)) {
             if (isJarFile(path)) {
-                Driver driver;
-                try {
-                    driver = getDriver(new File(path), url, cl);
-                    if (driver != null) {
-                        drivers.add(driver);
-                        return driver;
-                    }
-                } catch (IOException ex) {
-                    log.warn(ex);
+                classpathJars.add(new File(path));
+            }
+        }
+        for (File jar : DriverIndex.getInstance().sort(classpathJars, url)) {
+            try {
+                Driver driver = getDriver(jar, url, cl);
+                if (driver != null) {
+                    drivers.add(driver);
+                    return driver;
                 }
+            } catch (IOException ex) {
+                log.warn(ex);
             }
         }
         throw new SQLException("driver not found");
     }
 
     private static Driver getDriver(File jar, String url, ClassLoader cl) throws IOException {
-        ZipFile zipFile = new ZipFile(jar);
-        try {
-            for (ZipEntry entry : Collections.list(zipFile.entries())) {
-                final String name = entry.getName();
-                if (name.endsWith(".class")) {
-                    final String fqcn = name.replaceFirst("\\.class", "").replace('/', '.');
-                    try {
-                        Class<?> c = DynamicLoader.loadClass(fqcn, cl);
-                        if (Driver.class.isAssignableFrom(c)) {
-                            Driver driver = (Driver)c.newInstance();
-                            if (driver.acceptsURL(url)) {
-                                return driver;
-                            }
-                        }
-                    } catch (Exception ex) {
-                        log.trace(ex);
+        DriverIndex index = DriverIndex.getInstance();
+        for (String fqcn : index.getDriverClassNames(jar, cl)) {
+            try {
+                Class<?> c = DynamicLoader.loadClass(fqcn, cl);
+                if (Driver.class.isAssignableFrom(c)) {
+                    Driver driver = (Driver)c.newInstance();
+                    if (driver.acceptsURL(url)) {
+                        index.addPrefix(jar, url);
+                        return driver;
                     }
                 }
+            } catch (Exception ex) {
+                log.trace(ex);
             }
-        } finally {
-            zipFile.close();
         }
         return null;
     }
@@ -31,7 +31,7 @@ public final class DaemonThreadFactory implements ThreadFactory {
     public Thread newThread(Runnable r) {
         final String name = String.format("ChildDaemon%d-of-%s", count.getAndIncrement(), Thread.currentThread());
         if (log.isDebugEnabled()) {
-            log.debug("create thread: name=" + name);
+            log.debug("create thread: name=%s", name);
         }
         Thread thread = new Thread(r, name);
         thread.setDaemon(true);
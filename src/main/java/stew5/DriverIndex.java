@@ -0,0 +1,253 @@
+package stew5;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.charset.*;
+import java.sql.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * An index of JDBC drivers contained in jar files.
+ *
+ * Each entry holds the jar path, its timestamp, the driver classes and the URL prefixes
+ * which were accepted by the drivers in it.
+ * The index is persisted in the system directory,
+ * and an entry will be discarded when its jar file was updated.
+ */
+final class DriverIndex {
+
+    static final String INDEX_FILE_NAME = "driver-index.properties";
+    static final String SERVICE_ENTRY_NAME = "META-INF/services/java.sql.Driver";
+
+    private static final Logger log = Logger.getLogger(DriverIndex.class);
+
+    private static volatile DriverIndex instance;
+
+    private final File file;
+    private final Map<String, Entry> entries;
+
+    private boolean loaded;
+
+    DriverIndex(File file) {
+        this.file = file;
+        this.entries = new LinkedHashMap<>();
+    }
+
+    /**
+     * Returns the index in the system directory.
+     * @return
+     */
+    static DriverIndex getInstance() {
+        if (instance == null) {
+            instance = new DriverIndex(App.getSystemFile(INDEX_FILE_NAME));
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the driver class names in the jar.
+     * If the jar has not been indexed yet or it was updated, this method discovers the drivers
+     * from the service provider configuration file, or by scanning all classes as a fallback.
+     * @param jar
+     * @param cl class loader to scan classes
+     * @return
+     * @throws IOException
+     */
+    synchronized List<String> getDriverClassNames(File jar, ClassLoader cl) throws IOException {
+        ensureLoaded();
+        final String path = jar.getAbsolutePath();
+        Entry entry = entries.get(path);
+        if (entry != null && entry.mtime == jar.lastModified()) {
+            return new ArrayList<>(entry.drivers);
+        }
+        final long t = System.currentTimeMillis();
+        entry = new Entry(path, jar.lastModified());
+        entry.drivers.addAll(discover(jar, cl));
+        entries.put(path, entry);
+        log.info("indexed %s: drivers=%s (%dms)", path, entry.drivers, System.currentTimeMillis() - t);
+        save();
+        return new ArrayList<>(entry.drivers);
+    }
+
+    /**
+     * Records the URL prefix which was accepted by a driver in the jar.
+     * @param jar
+     * @param url
+     */
+    synchronized void addPrefix(File jar, String url) {
+        ensureLoaded();
+        Entry entry = entries.get(jar.getAbsolutePath());
+        if (entry != null && entry.prefixes.add(getPrefix(url))) {
+            save();
+        }
+    }
+
+    /**
+     * Sorts the jars as that the jars which are known to accept the URL come first.
+     * @param jars
+     * @param url
+     * @return
+     */
+    synchronized List<File> sort(Collection<File> jars, String url) {
+        ensureLoaded();
+        final String prefix = getPrefix(url);
+        List<File> matched = new ArrayList<>();
+        List<File> others = new ArrayList<>();
+        for (File jar : jars) {
+            Entry entry = entries.get(jar.getAbsolutePath());
+            if (entry != null && entry.mtime == jar.lastModified() && entry.prefixes.contains(prefix)) {
+                matched.add(jar);
+            } else {
+                others.add(jar);
+            }
+        }
+        matched.addAll(others);
+        return matched;
+    }
+
+    /**
+     * Returns the prefix of URL (subprotocol part).
+     * @param url
+     * @return the prefix like "jdbc:subprotocol:"
+     */
+    static String getPrefix(String url) {
+        final int index = url.indexOf(':', url.indexOf(':') + 1);
+        return (index < 0) ? url : url.substring(0, index + 1);
+    }
+
+    static List<String> discover(File jar, ClassLoader cl) throws IOException {
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            ZipEntry serviceEntry = zipFile.getEntry(SERVICE_ENTRY_NAME);
+            if (serviceEntry != null) {
+                List<String> drivers = readServiceEntry(zipFile.getInputStream(serviceEntry));
+                if (!drivers.isEmpty()) {
+                    return drivers;
+                }
+            }
+            log.debug("no service entry, scan all classes in %s", jar);
+            List<String> drivers = new ArrayList<>();
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                final String name = entry.getName();
+                if (name.endsWith(".class")) {
+                    final String fqcn = name.replaceFirst("\\.class", "").replace('/', '.');
+                    try {
+                        Class<?> c = DynamicLoader.loadClass(fqcn, cl);
+                        if (Driver.class.isAssignableFrom(c) && !Modifier.isAbstract(c.getModifiers())) {
+                            drivers.add(fqcn);
+                        }
+                    } catch (Exception ex) {
+                        log.trace(ex);
+                    }
+                }
+            }
+            return drivers;
+        }
+    }
+
+    private static List<String> readServiceEntry(InputStream is) throws IOException {
+        List<String> drivers = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            for (String line; (line = r.readLine()) != null;) {
+                final int commentIndex = line.indexOf('#');
+                final String s = ((commentIndex < 0) ? line : line.substring(0, commentIndex)).trim();
+                if (!s.isEmpty() && !drivers.contains(s)) {
+                    drivers.add(s);
+                }
+            }
+        }
+        return drivers;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!file.exists()) {
+            return;
+        }
+        Properties props = new Properties();
+        try (InputStream is = new FileInputStream(file)) {
+            props.load(is);
+        } catch (IOException ex) {
+            log.warn(ex, "failed to load driver index");
+            return;
+        }
+        for (int i = 0; props.containsKey(i + ".path"); i++) {
+            final String path = props.getProperty(i + ".path");
+            long mtime;
+            try {
+                mtime = Long.parseLong(props.getProperty(i + ".mtime", "0"));
+            } catch (NumberFormatException ex) {
+                log.warn("invalid mtime: %s", ex);
+                continue;
+            }
+            Entry entry = new Entry(path, mtime);
+            entry.drivers.addAll(split(props.getProperty(i + ".drivers", "")));
+            entry.prefixes.addAll(split(props.getProperty(i + ".prefixes", "")));
+            entries.put(path, entry);
+        }
+        log.debug("loaded driver index: %d entries", entries.size());
+    }
+
+    private void save() {
+        Properties props = new Properties();
+        int i = 0;
+        for (Entry entry : entries.values()) {
+            props.setProperty(i + ".path", entry.path);
+            props.setProperty(i + ".mtime", String.valueOf(entry.mtime));
+            props.setProperty(i + ".drivers", join(entry.drivers));
+            props.setProperty(i + ".prefixes", join(entry.prefixes));
+            ++i;
+        }
+        final File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory()) {
+            log.debug("dir not exists: %s", dir);
+            return;
+        }
+        try (OutputStream os = new FileOutputStream(file)) {
+            props.store(os, "JDBC driver index");
+        } catch (IOException ex) {
+            log.warn(ex, "failed to save driver index");
+        }
+    }
+
+    private static List<String> split(String s) {
+        List<String> a = new ArrayList<>();
+        for (String x : s.split(",")) {
+            if (!x.trim().isEmpty()) {
+                a.add(x.trim());
+            }
+        }
+        return a;
+    }
+
+    private static String join(Collection<String> a) {
+        StringBuilder buffer = new StringBuilder();
+        for (String s : a) {
+            if (buffer.length() > 0) {
+                buffer.append(',');
+            }
+            buffer.append(s);
+        }
+        return buffer.toString();
+    }
+
+    private static final class Entry {
+
+        final String path;
+        final long mtime;
+        final List<String> drivers;
+        final Set<String> prefixes;
+
+        Entry(String path, long mtime) {
+            this.path = path;
+            this.mtime = mtime;
+            this.drivers = new ArrayList<>();
+            this.prefixes = new LinkedHashSet<>();
+        }
+
+    }
+
+}
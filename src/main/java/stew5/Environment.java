@@ -15,6 +15,8 @@ public final class Environment {
     static final String ALIAS_PROPERTIES_NAME = "alias.properties";
 
     private static final Logger log = Logger.getLogger(Environment.class);
+    private static final Metrics.Histogram connectionAcquireTime = Metrics.getInstance()
+            .histogram("stew_connection_acquire_seconds", "Time to acquire a connection.");
     static ResourceManager res = ResourceManager.getInstance(Environment.class);
 
     private OutputProcessor outputProcessor;
@@ -25,33 +27,28 @@ public final class Environment {
     private int timeoutSeconds;
     private File currentDirectory;
     private long connectorTimestamp;
+    private boolean connectorMapLoaded;
+    private boolean connectionPooling;
     private AliasMap aliasMap;
     private ScriptContext scriptContext;
     private int exitStatus;
+    private String lastQuery;
+    private int pageNumber;
+    private boolean profiling;
+    private QueryProfile lastProfile;
 
     private Environment(ConnectorMap connectorMap, File currentDirectory) {
         this.connectorMap = connectorMap;
         this.currentDirectory = currentDirectory;
-        // init alias
-        final File aliasPropFile = getSystemFile(ALIAS_PROPERTIES_NAME);
-        this.aliasMap = new AliasMap(aliasPropFile);
-        if (aliasPropFile.exists()) {
-            try {
-                aliasMap.load();
-            } catch (IOException ex) {
-                log.warn(ex);
-            }
-        }
     }
 
     /**
      * A constructor.
+     * The connector map, the alias map and the script context are loaded at the first use.
      */
     public Environment() {
         this(new ConnectorMap(), getInitialCurrentDirectory()); // init directories
         initializeQueryTimeout();
-        loadConnectorMap();
-        initializeScriptContext();
     }
 
     /**
@@ -60,7 +57,9 @@ public final class Environment {
      */
     public Environment(Environment src) {
         // never copy coconnector,conn,op,aliasMap,scriptContext into this
-        this(new ConnectorMap(src.connectorMap), src.currentDirectory);
+        this(new ConnectorMap(src.getConnectorMap()), src.currentDirectory);
+        this.connectorMapLoaded = true;
+        this.connectorTimestamp = src.connectorTimestamp;
         this.timeoutSeconds = src.timeoutSeconds;
     }
 
@@ -89,7 +88,14 @@ public final class Environment {
      * @throws SQLException
      */
     void establishConnection(Connector connector) throws SQLException {
-        Connection conn = connector.getConnection();
+        final long startTime = System.nanoTime();
+        Connection conn = ConnectionPool.getInstance().poll(connector);
+        if (conn == null) {
+            conn = connector.getConnection();
+        } else {
+            log.debug("reuse pooled connection of %s", connector.getId());
+        }
+        connectionAcquireTime.recordSince(startTime);
         try {
             if (connector.isReadOnly()) {
                 conn.setReadOnly(true);
@@ -141,6 +147,14 @@ public final class Environment {
                     outputMessage("w.error-occurred-on-auto-rollback", ex);
                 }
             }
+            if (connectionPooling && connector != null && !conn.isClosed()) {
+                if (!conn.getAutoCommit()) {
+                    conn.rollback();
+                }
+                ConnectionPool.getInstance().offer(connector, conn);
+                log.debug("returned to pool %s (conn=%08x, env=%08x)", connector.getId(), conn.hashCode(), hashCode());
+                return;
+            }
             try {
                 conn.close();
                 if (log.isDebugEnabled()) {
@@ -157,6 +171,7 @@ public final class Environment {
         } finally {
             conn = null;
             connector = null;
+            lastQuery = null;
         }
     }
 
@@ -180,7 +195,7 @@ public final class Environment {
     private void initializeQueryTimeout() {
         this.timeoutSeconds = App.props.getAsInt("query.timeout", -1);
         if (log.isDebugEnabled()) {
-            log.debug("timeout: " + this.timeoutSeconds);
+            log.debug("timeout: %d", this.timeoutSeconds);
         }
     }
 
@@ -204,6 +219,7 @@ public final class Environment {
             }
             connectorMap.putAll(m);
             connectorTimestamp = ConnectorConfiguration.lastModified();
+            connectorMapLoaded = true;
         }
     }
 
@@ -213,7 +229,7 @@ public final class Environment {
      * @return whether updated or not
      */
     public boolean updateConnectorMap() {
-        if (ConnectorConfiguration.lastModified() > connectorTimestamp) {
+        if (!connectorMapLoaded || ConnectorConfiguration.lastModified() > connectorTimestamp) {
             loadConnectorMap();
             return true;
         }
@@ -229,6 +245,9 @@ public final class Environment {
     }
 
     public ConnectorMap getConnectorMap() {
+        if (!connectorMapLoaded) {
+            loadConnectorMap();
+        }
         return connectorMap;
     }
 
@@ -248,6 +267,14 @@ public final class Environment {
         this.conn = conn;
     }
 
+    /**
+     * Sets whether the connection will be returned to the ConnectionPool instead of closing on release.
+     * @param connectionPooling
+     */
+    public void setConnectionPooling(boolean connectionPooling) {
+        this.connectionPooling = connectionPooling;
+    }
+
     public int getTimeoutSeconds() {
         return timeoutSeconds;
     }
@@ -261,10 +288,38 @@ public final class Environment {
     }
 
     public AliasMap getAliasMap() {
+        if (aliasMap == null) {
+            final File aliasPropFile = getSystemFile(ALIAS_PROPERTIES_NAME);
+            AliasMap m = new AliasMap(aliasPropFile);
+            if (aliasPropFile.exists()) {
+                try {
+                    m.load();
+                } catch (IOException ex) {
+                    log.warn(ex);
+                }
+            }
+            aliasMap = m;
+        }
         return aliasMap;
     }
 
+    /**
+     * Returns whether the keyword is an alias.
+     * It does not load the alias file unless the file exists.
+     * @param keyword
+     * @return
+     */
+    boolean isAlias(String keyword) {
+        if (aliasMap == null && !getSystemFile(ALIAS_PROPERTIES_NAME).exists()) {
+            return false;
+        }
+        return getAliasMap().containsKey(keyword);
+    }
+
     public ScriptContext getScriptContext() {
+        if (scriptContext == null) {
+            initializeScriptContext();
+        }
         return scriptContext;
     }
 
@@ -276,4 +331,49 @@ public final class Environment {
         this.exitStatus = exitStatus;
     }
 
+    /**
+     * Returns the last SELECT statement (used by paging).
+     * @return the SQL, or null if no query has been executed on the current connection
+     */
+    public String getLastQuery() {
+        return lastQuery;
+    }
+
+    public void setLastQuery(String lastQuery) {
+        this.lastQuery = lastQuery;
+        this.pageNumber = 1;
+    }
+
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    public void setPageNumber(int pageNumber) {
+        this.pageNumber = pageNumber;
+    }
+
+    /**
+     * Returns whether the timing breakdown is output after each statement.
+     * @return
+     */
+    public boolean isProfiling() {
+        return profiling;
+    }
+
+    public void setProfiling(boolean profiling) {
+        this.profiling = profiling;
+    }
+
+    /**
+     * Returns the timing breakdown of the last statement.
+     * @return the profile, or null if no statement has been executed
+     */
+    public QueryProfile getLastProfile() {
+        return lastProfile;
+    }
+
+    public void setLastProfile(QueryProfile lastProfile) {
+        this.lastProfile = lastProfile;
+    }
+
 }
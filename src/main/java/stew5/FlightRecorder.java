@@ -0,0 +1,275 @@
+package stew5;
+
+import java.io.*;
+import java.lang.annotation.*;
+import java.lang.reflect.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A facade of JDK Flight Recorder.
+ *
+ * The events are defined at runtime with <code>jdk.jfr.EventFactory</code>,
+ * because this application is built for the JVMs which do not have JFR.
+ * On those JVMs, or when no recording is running, the events are not created at all.
+ * The event types are defined when the recorder has been initialized
+ * (by <code>--jfr</code>, <code>-XX:StartFlightRecording</code> or <code>jcmd</code>),
+ * so that a session without JFR does not pay for it.
+ * Each event has the connector ID, the command name and the row count (-1 if unknown).
+ */
+public final class FlightRecorder {
+
+    private static final Logger log = Logger.getLogger(FlightRecorder.class);
+    private static final Method isInitializedMethod = getIsInitializedMethod();
+
+    private static volatile Jfr jfr;
+    private static boolean loaded;
+
+    /**
+     * The kinds of the events.
+     */
+    public enum EventKind {
+
+        COMMAND("stew5.Command", "Command", "A command processed by Stew"),
+        STATEMENT("stew5.StatementExecute", "Statement Execute", "executeQuery or executeUpdate"),
+        FETCH("stew5.Fetch", "Result Fetch", "Fetching and output of a result set"),
+        EXPORT("stew5.Export", "Export", "Exporting a result set into a file"),
+        IMPORT("stew5.Import", "Import Batch", "Importing records from a file"),
+        EDT_TASK("stew5.EdtTask", "EDT Task", "A task dispatched to the event dispatch thread");
+
+        private final String eventName;
+        private final String label;
+        private final String description;
+
+        private EventKind(String eventName, String label, String description) {
+            this.eventName = eventName;
+            this.label = label;
+            this.description = description;
+        }
+
+        public String getEventName() {
+            return eventName;
+        }
+
+    }
+
+    /**
+     * An event in progress.
+     */
+    public static final class Event {
+
+        static final Event NOOP = new Event(null);
+
+        private final Object event;
+
+        Event(Object event) {
+            this.event = event;
+        }
+
+        /**
+         * Ends and commits this event.
+         * @param rowCount the row count, or -1 if unknown
+         */
+        public void commit(long rowCount) {
+            if (event != null) {
+                jfr.commit(event, rowCount);
+            }
+        }
+
+    }
+
+    private FlightRecorder() { // empty
+    }
+
+    /**
+     * Returns whether JFR is available on this JVM.
+     * @return
+     */
+    public static boolean isAvailable() {
+        return isInitializedMethod != null;
+    }
+
+    /**
+     * Begins an event.
+     * @param kind
+     * @param connector the current connector (nullable)
+     * @param command the command name
+     * @return the event, which must be committed by {@link Event#commit(long)}
+     */
+    public static Event begin(EventKind kind, Connector connector, String command) {
+        Jfr j = jfr;
+        if (j == null) {
+            if (!isRecorderInitialized() || (j = getJfr()) == null) {
+                return Event.NOOP;
+            }
+        }
+        Object event = j.begin(kind, (connector == null) ? "" : connector.getId(), command);
+        return (event == null) ? Event.NOOP : new Event(event);
+    }
+
+    /**
+     * Starts a recording which is written into the file on exit.
+     * @param file
+     * @return whether the recording was started
+     */
+    public static boolean startRecording(File file) {
+        final Jfr j = isAvailable() ? getJfr() : null;
+        if (j == null) {
+            log.warn("JFR is not available on this JVM");
+            return false;
+        }
+        try {
+            j.startRecording(file);
+            log.info("JFR recording started: %s", file);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            log.warn(ex);
+            return false;
+        }
+    }
+
+    private static Method getIsInitializedMethod() {
+        try {
+            return Class.forName("jdk.jfr.FlightRecorder").getMethod("isInitialized");
+        } catch (ClassNotFoundException ex) {
+            log.debug("JFR is not available: %s", ex);
+            return null;
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError ex) {
+            log.warn(ex);
+            return null;
+        }
+    }
+
+    private static boolean isRecorderInitialized() {
+        if (isInitializedMethod == null) {
+            return false;
+        }
+        try {
+            return (Boolean)isInitializedMethod.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            log.warn(ex);
+            return false;
+        }
+    }
+
+    private static synchronized Jfr getJfr() {
+        if (!loaded) {
+            jfr = Jfr.load();
+            loaded = true;
+        }
+        return jfr;
+    }
+
+    /**
+     * The reflective access to <code>jdk.jfr</code>.
+     */
+    private static final class Jfr {
+
+        private final Object[] eventTypes;
+        private final Object[] factories;
+        private final Method isEnabledMethod;
+        private final Method newEventMethod;
+        private final Method beginMethod;
+        private final Method endMethod;
+        private final Method setMethod;
+        private final Method commitMethod;
+
+        private Jfr() throws ReflectiveOperationException {
+            final EventKind[] kinds = EventKind.values();
+            this.eventTypes = new Object[kinds.length];
+            this.factories = new Object[kinds.length];
+            final Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+            final Method createMethod = eventFactoryClass.getMethod("create", List.class, List.class);
+            final Method getEventTypeMethod = eventFactoryClass.getMethod("getEventType");
+            final List<Object> fields = Arrays.asList(field(String.class, "connector", "Connector"),
+                                                      field(String.class, "command", "Command"),
+                                                      field(long.class, "rows", "Rows"));
+            for (final EventKind kind : kinds) {
+                List<Object> annotations = Arrays.asList(annotation("Name", kind.eventName),
+                                                         annotation("Label", kind.label),
+                                                         annotation("Description", kind.description),
+                                                         annotation("Category", new String[]{"Stew"}),
+                                                         annotation("StackTrace", false));
+                final Object factory = createMethod.invoke(null, annotations, fields);
+                factories[kind.ordinal()] = factory;
+                eventTypes[kind.ordinal()] = getEventTypeMethod.invoke(factory);
+            }
+            final Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            this.isEnabledMethod = Class.forName("jdk.jfr.EventType").getMethod("isEnabled");
+            this.newEventMethod = eventFactoryClass.getMethod("newEvent");
+            this.beginMethod = eventClass.getMethod("begin");
+            this.endMethod = eventClass.getMethod("end");
+            this.setMethod = eventClass.getMethod("set", int.class, Object.class);
+            this.commitMethod = eventClass.getMethod("commit");
+        }
+
+        static Jfr load() {
+            try {
+                return new Jfr();
+            } catch (ClassNotFoundException ex) {
+                log.debug("JFR is not available: %s", ex);
+                return null;
+            } catch (ReflectiveOperationException | RuntimeException | LinkageError ex) {
+                log.warn(ex);
+                return null;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Object annotation(String name, Object value) throws ReflectiveOperationException {
+            final Class<?> c = Class.forName("jdk.jfr.AnnotationElement");
+            final Class<? extends Annotation> annotationType = (Class<? extends Annotation>)Class.forName("jdk.jfr." + name);
+            return c.getConstructor(Class.class, Object.class).newInstance(annotationType, value);
+        }
+
+        private static Object field(Class<?> type, String name, String label) throws ReflectiveOperationException {
+            final Class<?> c = Class.forName("jdk.jfr.ValueDescriptor");
+            return c.getConstructor(Class.class, String.class, List.class)
+                    .newInstance(type, name, Arrays.asList(annotation("Label", label)));
+        }
+
+        Object begin(EventKind kind, String connectorId, String command) {
+            try {
+                if (!(Boolean)isEnabledMethod.invoke(eventTypes[kind.ordinal()])) {
+                    return null;
+                }
+                final Object event = newEventMethod.invoke(factories[kind.ordinal()]);
+                setMethod.invoke(event, 0, connectorId);
+                setMethod.invoke(event, 1, command);
+                setMethod.invoke(event, 2, -1L);
+                beginMethod.invoke(event);
+                return event;
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                log.warn(ex);
+                return null;
+            }
+        }
+
+        void commit(Object event, long rowCount) {
+            try {
+                setMethod.invoke(event, 2, rowCount);
+                endMethod.invoke(event);
+                commitMethod.invoke(event);
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                log.warn(ex);
+            }
+        }
+
+        void startRecording(File file) throws ReflectiveOperationException {
+            final Class<?> configurationClass = Class.forName("jdk.jfr.Configuration");
+            final Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+            final Object configuration = configurationClass.getMethod("getConfiguration", String.class)
+                    .invoke(null, "default");
+            final Object recording = recordingClass.getConstructor(configurationClass).newInstance(configuration);
+            recordingClass.getMethod("setName", String.class).invoke(recording, "Stew");
+            for (final EventKind kind : EventKind.values()) {
+                recordingClass.getMethod("enable", String.class).invoke(recording, kind.eventName);
+            }
+            recordingClass.getMethod("setDestination", Path.class).invoke(recording, file.toPath());
+            recordingClass.getMethod("setDumpOnExit", boolean.class).invoke(recording, true);
+            recordingClass.getMethod("start").invoke(recording);
+        }
+
+    }
+
+}
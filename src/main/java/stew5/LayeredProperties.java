@@ -3,30 +3,38 @@ package stew5;
 import java.io.*;
 import java.util.*;
 import java.util.Map.*;
+import java.util.concurrent.*;
 
 /**
  * LayeredProperties manages layered properties which Stew uses and provides useful accessors.
+ *
+ * The layers are resolved into an immutable snapshot, so that a lookup is a single hash probe.
+ * The snapshot is replaced atomically by {@link #reload(Map...)}.
  */
 public final class LayeredProperties {
 
     private static final String prefix1 = "net.argius.stew";
     private static final String prefix2 = "stew";
 
-    private final List<Map<String, String>> maps;
+    private volatile Snapshot snapshot;
 
     LayeredProperties(Map<?, ?>... arrayOfProperties) {
-        List<Map<String, String>> a = new ArrayList<>();
-        for (Map<?, ?> props : arrayOfProperties) {
-            a.add(toStringMap(props));
-        }
-        this.maps = a;
+        this.snapshot = new Snapshot(arrayOfProperties);
+    }
+
+    /**
+     * Replaces the properties with the new layers.
+     * @param arrayOfProperties
+     */
+    void reload(Map<?, ?>... arrayOfProperties) {
+        this.snapshot = new Snapshot(arrayOfProperties);
     }
 
     String dump() {
         StringWriter sw = new StringWriter();
         PrintWriter out = new PrintWriter(sw);
         out.println();
-        List<Map<String, String>> a = maps;
+        List<Map<String, String>> a = snapshot.layers;
         int i = 0;
         for (Map<String, String> m : a) {
             out.printf("--- properties layer %d ---%n", ++i);
@@ -40,15 +48,8 @@ public final class LayeredProperties {
     }
 
     public boolean hasKey(String key) {
-        String[] keys = getExternalKeys(key);
-        for (Map<String, String> m : maps) {
-            for (int i = 0; i < keys.length; i++) {
-                if (m.containsKey(keys[i])) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        checkKey(key);
+        return snapshot.values.containsKey(key);
     }
 
     public String get(String key) {
@@ -56,40 +57,48 @@ public final class LayeredProperties {
     }
 
     public String get(String key, String defaultValue) {
-        String[] keys = getExternalKeys(key);
-        for (Map<String, String> m : maps) {
-            for (int i = 0; i < keys.length; i++) {
-                String k = keys[i];
-                if (m.containsKey(k)) {
-                    return m.get(k);
-                }
-            }
+        final String v = snapshot.values.get(key);
+        if (v != null) {
+            return v;
         }
+        checkKey(key);
         return defaultValue;
     }
 
     public int getAsInt(String key, int defaultValue) {
-        String v = get(key);
-        if (v != null) {
+        final Snapshot ss = snapshot;
+        Object o = ss.ints.get(key);
+        if (o == null) {
             try {
-                return Integer.parseInt(v);
+                o = Integer.valueOf(get(key));
             } catch (NumberFormatException ex) {
-                // ignore
+                o = Snapshot.NOT_INT;
             }
+            ss.ints.putIfAbsent(key, o);
         }
-        return defaultValue;
+        return (o instanceof Integer) ? (Integer)o : defaultValue;
     }
 
     public boolean getAsBoolean(String key) {
-        return Boolean.valueOf(get(key, ""));
+        final Snapshot ss = snapshot;
+        Boolean b = ss.booleans.get(key);
+        if (b == null) {
+            b = Boolean.valueOf(get(key, ""));
+            ss.booleans.putIfAbsent(key, b);
+        }
+        return b;
     }
 
     static String[] getExternalKeys(String key) {
+        checkKey(key);
+        return new String[]{prefix1 + '.' + key, prefix2 + '.' + key};
+    }
+
+    private static void checkKey(String key) {
         if (key.startsWith(prefix1) || key.startsWith(prefix2)) {
             String msg = "LayeredProperties now allows " + prefix1 + " or " + prefix2 + " as prefix, key = " + key;
             throw new IllegalArgumentException(msg);
         }
-        return new String[]{prefix1 + '.' + key, prefix2 + '.' + key};
     }
 
     private static Map<String, String> toStringMap(Map<?, ?> map) {
@@ -104,4 +113,47 @@ public final class LayeredProperties {
         return m;
     }
 
+    /**
+     * The resolved properties and the cache of the typed values.
+     */
+    private static final class Snapshot {
+
+        static final Object NOT_INT = new Object();
+
+        final List<Map<String, String>> layers;
+        final Map<String, String> values;
+        final ConcurrentMap<String, Object> ints;
+        final ConcurrentMap<String, Boolean> booleans;
+
+        Snapshot(Map<?, ?>... arrayOfProperties) {
+            List<Map<String, String>> a = new ArrayList<>();
+            for (Map<?, ?> props : arrayOfProperties) {
+                a.add(Collections.unmodifiableMap(toStringMap(props)));
+            }
+            // the former layer and prefix1 take precedence
+            Map<String, String> m = new HashMap<>();
+            for (int i = a.size() - 1; i >= 0; i--) {
+                putAll(m, a.get(i), prefix2 + '.');
+                putAll(m, a.get(i), prefix1 + '.');
+            }
+            this.layers = Collections.unmodifiableList(a);
+            this.values = Collections.unmodifiableMap(m);
+            this.ints = new ConcurrentHashMap<>();
+            this.booleans = new ConcurrentHashMap<>();
+        }
+
+        private static void putAll(Map<String, String> dst, Map<String, String> src, String prefix) {
+            for (Entry<String, String> entry : src.entrySet()) {
+                final String k = entry.getKey();
+                if (k.startsWith(prefix)) {
+                    final String key = k.substring(prefix.length());
+                    if (!key.startsWith(prefix1) && !key.startsWith(prefix2)) {
+                        dst.put(key, entry.getValue());
+                    }
+                }
+            }
+        }
+
+    }
+
 }
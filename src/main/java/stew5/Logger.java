@@ -1,5 +1,9 @@
 package stew5;
 
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
 import java.util.logging.*;
 
 /**
@@ -14,16 +18,47 @@ import java.util.logging.*;
  * <li> trace: Level.FINER
  * </ul>
  * Level.CONFIG is not used.
+ *
+ * <p>The log events are queued and published by a background thread, and the messages are formatted there.
+ * So the arguments should not be modified after logging.
+ * To publish synchronously, set <code>stew5.Logger.async=false</code> in the logging properties.
+ * The size of the queue is <code>stew5.Logger.bufferSize</code> (default 8192).
+ * When the queue is full, the caller waits until the queue has space.
+ * The caller of fatal and error (Level.SEVERE) waits until the event is published.</p>
  */
 public final class Logger {
 
+    private static final ConcurrentMap<String, Logger> loggers = new ConcurrentHashMap<>();
+    private static final Dispatcher dispatcher;
+    private static final ErrorManager fallbackErrorManager = new ErrorManager();
+    private static final long SEVERE_FLUSH_TIMEOUT = 3000L;
+
+    static {
+        removeRootLoggerHandlers();
+        LogManager manager = LogManager.getLogManager();
+        final String async = manager.getProperty(Logger.class.getName() + ".async");
+        if (async == null || Boolean.parseBoolean(async)) {
+            final String bufferSize = manager.getProperty(Logger.class.getName() + ".bufferSize");
+            int n = Dispatcher.DEFAULT_BUFFER_SIZE;
+            if (bufferSize != null) {
+                try {
+                    n = Integer.parseInt(bufferSize.trim());
+                } catch (NumberFormatException ex) {
+                    // use default
+                }
+            }
+            dispatcher = new Dispatcher(Math.max(16, n));
+        } else {
+            dispatcher = null;
+        }
+    }
+
     private final java.util.logging.Logger log;
 
     private String enteredMethodName;
 
     Logger(String name) {
         this.log = java.util.logging.Logger.getLogger(name);
-        removeRootLoggerHandlers();
     }
 
     Logger(Class<?> c) {
@@ -47,7 +82,186 @@ public final class Logger {
         } else {
             name = String.valueOf(o);
         }
-        return new Logger(name);
+        Logger logger = loggers.get(name);
+        if (logger == null) {
+            Logger newLogger = new Logger(name);
+            logger = loggers.putIfAbsent(name, newLogger);
+            if (logger == null) {
+                logger = newLogger;
+            }
+        }
+        return logger;
+    }
+
+    /**
+     * Waits until the queued events are published.
+     * @param timeoutMillis
+     * @return true if all events were published, false if timed out
+     */
+    static boolean flush(long timeoutMillis) {
+        return dispatcher == null || dispatcher.flush(timeoutMillis);
+    }
+
+    /**
+     * A log event which is formatted in the dispatcher thread.
+     */
+    private static final class Event {
+
+        final java.util.logging.Logger log;
+        final Level level;
+        final String methodName;
+        final Throwable thrown;
+        final String format;
+        final Object[] args;
+        final long millis;
+        final int threadId;
+
+        Event(java.util.logging.Logger log,
+              Level level,
+              String methodName,
+              Throwable thrown,
+              String format,
+              Object[] args) {
+            this.log = log;
+            this.level = level;
+            this.methodName = methodName;
+            this.thrown = thrown;
+            this.format = format;
+            this.args = args;
+            this.millis = System.currentTimeMillis();
+            this.threadId = (int)Thread.currentThread().getId();
+        }
+
+        @SuppressWarnings("deprecation")
+        void publish() {
+            String msg;
+            try {
+                msg = (args.length == 0) ? format : String.format(format, args);
+            } catch (RuntimeException ex) {
+                msg = format + " (format error: " + ex + ")";
+            }
+            LogRecord record = new LogRecord(level, msg);
+            record.setLoggerName(log.getName());
+            record.setSourceClassName(log.getName());
+            record.setSourceMethodName(methodName);
+            record.setThrown(thrown);
+            record.setMillis(millis);
+            record.setThreadID(threadId);
+            log.log(record);
+        }
+
+        /**
+         * Reports the failure of publishing to the ErrorManagers of the handlers
+         * which the event would have been published to.
+         * @param ex
+         */
+        void reportError(Exception ex) {
+            final String msg = "failed to publish a log event of " + log.getName();
+            boolean reported = false;
+            for (java.util.logging.Logger l = log; l != null; l = l.getUseParentHandlers() ? l.getParent() : null) {
+                for (final Handler handler : l.getHandlers()) {
+                    handler.getErrorManager().error(msg, ex, ErrorManager.GENERIC_FAILURE);
+                    reported = true;
+                }
+            }
+            if (!reported) {
+                fallbackErrorManager.error(msg, ex, ErrorManager.GENERIC_FAILURE);
+            }
+        }
+
+    }
+
+    /**
+     * The background publisher of the events.
+     */
+    private static final class Dispatcher implements Runnable {
+
+        static final int DEFAULT_BUFFER_SIZE = 8192;
+
+        private static final int BATCH_SIZE = 256;
+        private static final long MIN_PARK_NANOS = 1000000L; // 1ms
+        private static final long MAX_PARK_NANOS = 100000000L; // 100ms
+
+        private final BlockingQueue<Event> queue;
+        private final AtomicLong pending;
+        private final Thread thread;
+
+        Dispatcher(int bufferSize) {
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+            this.pending = new AtomicLong();
+            this.thread = new Thread(this, "stew-logger");
+            thread.setDaemon(true);
+            thread.start();
+            Runtime.getRuntime().addShutdownHook(new Thread("stew-logger-flush") {
+                @Override
+                public void run() {
+                    flush(3000L);
+                }
+            });
+        }
+
+        void enqueue(Event event) {
+            pending.incrementAndGet();
+            try {
+                queue.put(event);
+            } catch (InterruptedException ex) {
+                pending.decrementAndGet();
+                Thread.currentThread().interrupt();
+                event.publish();
+            }
+        }
+
+        @Override
+        public void run() {
+            // The consumer polls with back-off instead of blocking on the queue,
+            // so that the producers do not have to wake it up for each event.
+            List<Event> batch = new ArrayList<>(BATCH_SIZE);
+            long parkNanos = MIN_PARK_NANOS;
+            while (true) {
+                final int n = queue.drainTo(batch, BATCH_SIZE);
+                if (n == 0) {
+                    LockSupport.parkNanos(this, parkNanos);
+                    parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+                    continue;
+                }
+                parkNanos = MIN_PARK_NANOS;
+                for (final Event event : batch) {
+                    try {
+                        event.publish();
+                    } catch (RuntimeException ex) {
+                        event.reportError(ex);
+                    }
+                }
+                batch.clear();
+                if (pending.addAndGet(-n) == 0L) {
+                    synchronized (this) {
+                        notifyAll();
+                    }
+                }
+            }
+        }
+
+        synchronized boolean flush(long timeoutMillis) {
+            if (Thread.currentThread() == thread) {
+                return pending.get() == 0L; // cannot wait for itself
+            }
+            final long limit = System.currentTimeMillis() + timeoutMillis;
+            while (pending.get() > 0L) {
+                final long rest = limit - System.currentTimeMillis();
+                if (rest <= 0L) {
+                    return false;
+                }
+                LockSupport.unpark(thread);
+                try {
+                    wait(Math.min(rest, 10L));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+
     }
 
     /**
@@ -84,13 +298,16 @@ public final class Logger {
 
     public void log(Level level, Throwable th, String format, Object... args) {
         if (log.isLoggable(level)) {
-            final String cn = log.getName();
             final String mn = (enteredMethodName == null) ? "(unknown method)" : enteredMethodName;
-            final String msg = (args.length == 0) ? format : String.format(format, args);
-            if (th == null) {
-                log.logp(level, cn, mn, msg);
+            Event event = new Event(log, level, mn, th, format, args);
+            if (dispatcher == null) {
+                event.publish();
             } else {
-                log.logp(level, cn, mn, msg, th);
+                dispatcher.enqueue(event);
+                if (level.intValue() >= Level.SEVERE.intValue()) {
+                    // publish it in order, before the process may die
+                    dispatcher.flush(SEVERE_FLUSH_TIMEOUT);
+                }
             }
         }
     }
@@ -103,7 +320,7 @@ public final class Logger {
 
     public void fatal(Throwable th, String format, Object... args) {
         if (log.isLoggable(Level.SEVERE)) {
-            log(Level.SEVERE, th, "*FATAL* " + String.format(format, args));
+            log(Level.SEVERE, th, "*FATAL* " + format, args);
         }
     }
 
@@ -115,7 +332,7 @@ public final class Logger {
 
     public void error(Throwable th, Object o) {
         if (log.isLoggable(Level.SEVERE)) {
-            log(Level.SEVERE, th, String.valueOf(o));
+            log(Level.SEVERE, th, "%s", o);
         }
     }
 
@@ -133,7 +350,7 @@ public final class Logger {
 
     public void warn(Throwable th, Object o) {
         if (log.isLoggable(Level.WARNING)) {
-            log(Level.WARNING, th, String.valueOf(o));
+            log(Level.WARNING, th, "%s", o);
         }
     }
 
@@ -145,7 +362,7 @@ public final class Logger {
 
     public void info(Object o) {
         if (isInfoEnabled()) {
-            log(Level.INFO, null, String.valueOf(o));
+            log(Level.INFO, null, "%s", o);
         }
     }
 
@@ -169,7 +386,7 @@ public final class Logger {
 
     public void debug(Object o) {
         if (isDebugEnabled()) {
-            log(Level.FINE, null, String.valueOf(o));
+            log(Level.FINE, null, "%s", o);
         }
     }
 
@@ -199,7 +416,7 @@ public final class Logger {
 
     public void trace(Object o) {
         if (isTraceEnabled()) {
-            log(Level.FINER, null, String.valueOf(o));
+            log(Level.FINER, null, "%s", o);
         }
     }
 
@@ -0,0 +1,232 @@
+package stew5;
+
+import java.io.*;
+import java.sql.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * A cache which keeps the metadata snapshot for each connector.
+ *
+ * A snapshot is loaded in bulk at the first use when <code>metadata.cache</code> is true,
+ * and reloaded when it is older than <code>metadata.cache.ttl</code> seconds.
+ * If <code>metadata.cache.persist</code> is true, snapshots are saved into the system directory
+ * and the next session starts with them.
+ * The search index of a snapshot is built on the calling thread at the first search,
+ * and discarded when the snapshot is loaded or refreshed.
+ * @see MetadataSnapshot
+ */
+public final class MetadataCache {
+
+    private static final Logger log = Logger.getLogger(MetadataCache.class);
+    private static final MetadataCache instance = new MetadataCache();
+
+    static final int DEFAULT_TTL = 3600;
+
+    private final Map<String, MetadataSnapshot> snapshots;
+    private final Map<String, MetadataIndex> indexes;
+
+    private MetadataCache() {
+        this.snapshots = new HashMap<>();
+        this.indexes = new HashMap<>();
+    }
+
+    /**
+     * Returns the instance of MetadataCache.
+     * @return
+     */
+    public static MetadataCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the snapshot of the connector.
+     * @param connector
+     * @param conn
+     * @return the snapshot, or null if the cache is disabled and no snapshot has been loaded
+     * @throws SQLException
+     */
+    public MetadataSnapshot getSnapshot(Connector connector, Connection conn) throws SQLException {
+        if (connector == null) {
+            return null;
+        }
+        final String id = connector.getId();
+        final boolean enabled = App.props.getAsBoolean("metadata.cache");
+        MetadataSnapshot snapshot;
+        synchronized (snapshots) {
+            snapshot = snapshots.get(id);
+        }
+        if (snapshot == null && enabled) {
+            snapshot = restore(id);
+        }
+        if (snapshot != null && isExpired(snapshot)) {
+            log.debug("expired: %s", id);
+            snapshot = null;
+            if (!enabled) {
+                clear(id);
+            }
+        }
+        if (snapshot == null && enabled) {
+            snapshot = load(connector, conn);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Loads a snapshot of the connector in bulk, and replaces the old one.
+     * @param connector
+     * @param conn
+     * @return
+     * @throws SQLException
+     */
+    public MetadataSnapshot load(Connector connector, Connection conn) throws SQLException {
+        final String id = connector.getId();
+        log.debug("load: %s", id);
+        MetadataSnapshot snapshot = MetadataSnapshot.load(conn.getMetaData());
+        synchronized (snapshots) {
+            snapshots.put(id, snapshot);
+            indexes.remove(id);
+        }
+        store(id, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Reloads the tables which match the pattern into the snapshot of the connector.
+     * @param connector
+     * @param conn
+     * @param tableNamePattern
+     * @return the snapshot, or null if no snapshot has been loaded
+     * @throws SQLException
+     */
+    public MetadataSnapshot refresh(Connector connector, Connection conn, String tableNamePattern) throws SQLException {
+        final String id = connector.getId();
+        MetadataSnapshot snapshot;
+        synchronized (snapshots) {
+            snapshot = snapshots.get(id);
+        }
+        if (snapshot == null) {
+            return null;
+        }
+        log.debug("refresh: %s, %s", id, tableNamePattern);
+        snapshot.refresh(conn.getMetaData(), tableNamePattern);
+        synchronized (snapshots) {
+            indexes.remove(id);
+        }
+        store(id, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Returns the snapshot of the connector which has been already loaded.
+     * @param connector
+     * @return the snapshot, or null if no snapshot has been loaded
+     */
+    public MetadataSnapshot peek(Connector connector) {
+        synchronized (snapshots) {
+            return snapshots.get(connector.getId());
+        }
+    }
+
+    /**
+     * Removes the snapshot of the connector (including the persisted one).
+     * @param id
+     */
+    public void clear(String id) {
+        synchronized (snapshots) {
+            snapshots.remove(id);
+            indexes.remove(id);
+        }
+        File file = getFile(id);
+        if (file.exists() && !file.delete()) {
+            log.warn("failed to delete: %s", file);
+        }
+    }
+
+    /**
+     * Returns the search index of the connector.
+     * If the index has not been built, it builds the index on the calling thread,
+     * loading the snapshot and the columns if necessary.
+     * If the cache is disabled and no snapshot has been loaded,
+     * the index is built from a temporary snapshot, and neither of them is kept.
+     * @param connector
+     * @param conn
+     * @return
+     * @throws SQLException
+     */
+    public MetadataIndex getIndex(Connector connector, Connection conn) throws SQLException {
+        final String id = connector.getId();
+        MetadataSnapshot snapshot = getSnapshot(connector, conn);
+        if (snapshot == null) {
+            log.debug("build index from a temporary snapshot: %s", id);
+            return MetadataIndex.build(MetadataSnapshot.load(conn.getMetaData()), conn.getMetaData());
+        }
+        synchronized (snapshots) {
+            MetadataIndex index = indexes.get(id);
+            if (index != null) {
+                return index;
+            }
+        }
+        MetadataIndex index = MetadataIndex.build(snapshot, conn.getMetaData());
+        synchronized (snapshots) {
+            if (snapshots.get(id) == snapshot) {
+                indexes.put(id, index);
+            }
+        }
+        return index;
+    }
+
+    private static boolean isExpired(MetadataSnapshot snapshot) {
+        final long ttl = App.props.getAsInt("metadata.cache.ttl", DEFAULT_TTL);
+        return ttl > 0L && System.currentTimeMillis() - snapshot.getLoadedTime() > ttl * 1000L;
+    }
+
+    private static File getFile(String id) {
+        return App.getSystemFile("metadata-" + id + ".ser.gz");
+    }
+
+    private static boolean persists() {
+        return App.props.getAsBoolean("metadata.cache.persist");
+    }
+
+    private static void store(String id, MetadataSnapshot snapshot) {
+        if (!persists()) {
+            return;
+        }
+        File file = getFile(id);
+        File dir = file.getParentFile();
+        if (!dir.isDirectory()) {
+            return;
+        }
+        try (ObjectOutputStream oos = new ObjectOutputStream(new GZIPOutputStream(new FileOutputStream(file)))) {
+            synchronized (snapshot) {
+                oos.writeObject(snapshot);
+            }
+            log.debug("stored: %s", file);
+        } catch (IOException ex) {
+            log.warn(ex);
+        }
+    }
+
+    private MetadataSnapshot restore(String id) {
+        if (!persists()) {
+            return null;
+        }
+        File file = getFile(id);
+        if (!file.exists()) {
+            return null;
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new GZIPInputStream(new FileInputStream(file)))) {
+            MetadataSnapshot snapshot = (MetadataSnapshot)ois.readObject();
+            synchronized (snapshots) {
+                snapshots.put(id, snapshot);
+            }
+            log.debug("restored: %s", file);
+            return snapshot;
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            log.warn(ex);
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+package stew5;
+
+import java.sql.*;
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * An inverted index over the names, the types and the remarks of the tables and the columns.
+ *
+ * The names are indexed as whole lower-case terms in a sorted map,
+ * so that a pattern with a literal prefix scans only the range of the prefix.
+ * The type names and the remarks are split into words, and searched only by ANY.
+ * @see MetadataSnapshot
+ */
+public final class MetadataIndex {
+
+    private static final Logger log = Logger.getLogger(MetadataIndex.class);
+
+    private static final String[] LABELS = {"TABLE_CAT",
+                                            "TABLE_SCHEM",
+                                            "TABLE_NAME",
+                                            "COLUMN_NAME",
+                                            "TYPE_NAME",
+                                            "REMARKS"};
+    private static final int[] TYPES = {Types.VARCHAR,
+                                        Types.VARCHAR,
+                                        Types.VARCHAR,
+                                        Types.VARCHAR,
+                                        Types.VARCHAR,
+                                        Types.VARCHAR};
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final List<Object[]> entries;
+    private final BitSet columnEntries;
+    private final NavigableMap<String, List<Integer>> names;
+    private final NavigableMap<String, List<Integer>> words;
+
+    private MetadataIndex() {
+        this.entries = new ArrayList<>();
+        this.columnEntries = new BitSet();
+        this.names = new TreeMap<>();
+        this.words = new TreeMap<>();
+    }
+
+    /**
+     * Builds an index from the snapshot.
+     * @param snapshot
+     * @param dbmeta used to load the columns if the snapshot does not have them yet
+     * @return
+     * @throws SQLException
+     */
+    static MetadataIndex build(MetadataSnapshot snapshot, DatabaseMetaData dbmeta) throws SQLException {
+        final long beginningTime = System.currentTimeMillis();
+        MetadataIndex index = new MetadataIndex();
+        // getTables: 1=CAT, 2=SCHEM, 3=NAME, 4=TYPE, 5=REMARKS
+        for (final Object[] row : snapshot.getTableRows()) {
+            index.add(false, row[0], row[1], row[2], null, row[3], (row.length > 4) ? row[4] : null);
+        }
+        // getColumns: 1=CAT, 2=SCHEM, 3=TABLE, 4=COLUMN, 6=TYPE_NAME, 12=REMARKS
+        for (final Object[] row : snapshot.getColumnRows(dbmeta)) {
+            index.add(true, row[0], row[1], row[2], row[3], row[5], row[11]);
+        }
+        log.debug("built: %d entries, %d names, %d words (%dms)",
+                  index.entries.size(),
+                  index.names.size(),
+                  index.words.size(),
+                  System.currentTimeMillis() - beginningTime);
+        return index;
+    }
+
+    private void add(boolean isColumn, Object... values) {
+        final int id = entries.size();
+        Object[] entry = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            entry[i] = (values[i] == null) ? null : values[i].toString();
+        }
+        entries.add(entry);
+        if (isColumn) {
+            columnEntries.set(id);
+        }
+        final Object name = isColumn ? entry[3] : entry[2];
+        if (name != null) {
+            post(names, name.toString().toLowerCase(), id);
+        }
+        for (final int i : new int[]{4, 5}) {
+            if (entry[i] != null) {
+                for (final String word : WORD_SEPARATOR.split(entry[i].toString().toLowerCase())) {
+                    if (!word.isEmpty()) {
+                        post(words, word, id);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void post(Map<String, List<Integer>> map, String term, int id) {
+        List<Integer> postings = map.get(term);
+        if (postings == null) {
+            postings = new ArrayList<>(1);
+            map.put(term, postings);
+        }
+        if (postings.isEmpty() || postings.get(postings.size() - 1) != id) {
+            postings.add(id);
+        }
+    }
+
+    /**
+     * Returns the number of the indexed tables and columns.
+     * @return
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Searches the columns whose names match the pattern.
+     * @param pattern the pattern (<code>*</code> and <code>?</code>), case-insensitive
+     * @return the ResultSet of TABLE_CAT, TABLE_SCHEM, TABLE_NAME, COLUMN_NAME, TYPE_NAME, REMARKS
+     * @throws SQLException
+     */
+    public ResultSet findColumns(String pattern) throws SQLException {
+        SortedSet<Integer> ids = new TreeSet<>();
+        for (final int id : lookup(names, pattern)) {
+            if (columnEntries.get(id)) {
+                ids.add(id);
+            }
+        }
+        return toResultSet(ids);
+    }
+
+    /**
+     * Searches the tables and the columns whose names, types or remarks match the pattern.
+     * @param pattern the pattern (<code>*</code> and <code>?</code>), case-insensitive
+     * @return the ResultSet of TABLE_CAT, TABLE_SCHEM, TABLE_NAME, COLUMN_NAME, TYPE_NAME, REMARKS
+     * @throws SQLException
+     */
+    public ResultSet findAny(String pattern) throws SQLException {
+        SortedSet<Integer> ids = new TreeSet<>();
+        ids.addAll(lookup(names, pattern));
+        ids.addAll(lookup(words, pattern));
+        return toResultSet(ids);
+    }
+
+    private static Set<Integer> lookup(NavigableMap<String, List<Integer>> map, String pattern) {
+        final String lowerPattern = pattern.toLowerCase();
+        final int wildcardIndex = indexOfWildcard(lowerPattern);
+        Set<Integer> ids = new HashSet<>();
+        if (wildcardIndex < 0) {
+            List<Integer> postings = map.get(lowerPattern);
+            if (postings != null) {
+                ids.addAll(postings);
+            }
+            return ids;
+        }
+        final String prefix = lowerPattern.substring(0, wildcardIndex);
+        final Map<String, List<Integer>> range = prefix.isEmpty()
+                ? map
+                : map.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        final Pattern regex = toRegex(lowerPattern);
+        for (final Map.Entry<String, List<Integer>> entry : range.entrySet()) {
+            if (regex.matcher(entry.getKey()).matches()) {
+                ids.addAll(entry.getValue());
+            }
+        }
+        return ids;
+    }
+
+    private static int indexOfWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            final char c = pattern.charAt(i);
+            if (c == '*' || c == '?') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Pattern toRegex(String pattern) {
+        StringBuilder buffer = new StringBuilder();
+        for (final char c : pattern.toCharArray()) {
+            if (c == '*') {
+                buffer.append(".*");
+            } else if (c == '?') {
+                buffer.append('.');
+            } else {
+                buffer.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(buffer.toString(), Pattern.DOTALL);
+    }
+
+    private ResultSet toResultSet(SortedSet<Integer> ids) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (final int id : ids) {
+            rows.add(entries.get(id));
+        }
+        return MetadataSnapshot.toResultSet(LABELS, TYPES, rows);
+    }
+
+}
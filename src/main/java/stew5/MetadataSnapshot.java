@@ -0,0 +1,336 @@
+package stew5;
+
+import java.io.*;
+import java.sql.*;
+import java.util.*;
+import java.util.regex.*;
+import javax.sql.rowset.*;
+
+/**
+ * An in-memory snapshot of the database catalog.
+ *
+ * The tables and the columns are loaded in bulk, and the primary keys and the indexes
+ * are loaded for each table pattern on demand.
+ * The results are returned as disconnected ResultSets, and the patterns
+ * (<code>%</code> and <code>_</code>) are matched locally.
+ */
+public final class MetadataSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger log = Logger.getLogger(MetadataSnapshot.class);
+
+    // column indices of DatabaseMetaData
+    private static final int TABLE_CAT = 0;
+    private static final int TABLE_SCHEM = 1;
+    private static final int TABLE_NAME = 2;
+    private static final int TABLE_TYPE = 3;
+
+    private final long loadedTime;
+    private Rows tables;
+    private Rows columns;
+    private final Map<String, Rows> primaryKeys;
+    private final Map<String, Rows> indexes;
+
+    private MetadataSnapshot(Rows tables) {
+        this.loadedTime = System.currentTimeMillis();
+        this.tables = tables;
+        this.primaryKeys = new HashMap<>();
+        this.indexes = new HashMap<>();
+    }
+
+    /**
+     * Loads the tables in bulk.
+     * @param dbmeta
+     * @return
+     * @throws SQLException
+     */
+    static MetadataSnapshot load(DatabaseMetaData dbmeta) throws SQLException {
+        try (ResultSet rs = dbmeta.getTables(null, null, "%", null)) {
+            return new MetadataSnapshot(Rows.of(rs));
+        }
+    }
+
+    public long getLoadedTime() {
+        return loadedTime;
+    }
+
+    public synchronized int getTableCount() {
+        return tables.rows.size();
+    }
+
+    /**
+     * Returns the number of the columns, or -1 if the columns have not been loaded.
+     * @return
+     */
+    public synchronized int getColumnCount() {
+        return (columns == null) ? -1 : columns.rows.size();
+    }
+
+    /**
+     * Returns the tables like <code>DatabaseMetaData.getTables</code>.
+     * @param catalogPattern
+     * @param schemaPattern
+     * @param tableNamePattern
+     * @param types
+     * @return
+     * @throws SQLException
+     */
+    public synchronized ResultSet getTables(String catalogPattern,
+                                            String schemaPattern,
+                                            String tableNamePattern,
+                                            String[] types) throws SQLException {
+        final Pattern catalog = toRegex(catalogPattern);
+        final Pattern schema = toRegex(schemaPattern);
+        final Pattern tableName = toRegex(tableNamePattern);
+        final Set<String> typeSet = new HashSet<>();
+        if (types != null) {
+            for (final String type : types) {
+                typeSet.add(type.toUpperCase());
+            }
+        }
+        List<Object[]> a = new ArrayList<>();
+        for (final Object[] row : tables.rows) {
+            if (matches(catalog, catalogPattern, row[TABLE_CAT])
+                && matches(schema, schemaPattern, row[TABLE_SCHEM])
+                && matches(tableName, tableNamePattern, row[TABLE_NAME])
+                && (typeSet.isEmpty() || typeSet.contains(String.valueOf(row[TABLE_TYPE]).toUpperCase()))) {
+                a.add(row);
+            }
+        }
+        return tables.toResultSet(a);
+    }
+
+    /**
+     * Returns the columns of the tables like <code>DatabaseMetaData.getColumns</code>.
+     * The columns of all tables are loaded in bulk at the first call.
+     * @param dbmeta
+     * @param tableNamePattern
+     * @return
+     * @throws SQLException
+     */
+    public synchronized ResultSet getColumns(DatabaseMetaData dbmeta, String tableNamePattern) throws SQLException {
+        loadColumns(dbmeta);
+        return columns.toResultSet(filterByTableName(columns, tableNamePattern));
+    }
+
+    private void loadColumns(DatabaseMetaData dbmeta) throws SQLException {
+        if (columns == null) {
+            log.debug("load columns");
+            try (ResultSet rs = dbmeta.getColumns(null, null, "%", "%")) {
+                columns = Rows.of(rs);
+            }
+        }
+    }
+
+    /**
+     * Returns the rows of all tables (in the form of <code>DatabaseMetaData.getTables</code>).
+     * @return
+     */
+    synchronized List<Object[]> getTableRows() {
+        return new ArrayList<>(tables.rows);
+    }
+
+    /**
+     * Returns the rows of all columns (in the form of <code>DatabaseMetaData.getColumns</code>).
+     * @param dbmeta
+     * @return
+     * @throws SQLException
+     */
+    synchronized List<Object[]> getColumnRows(DatabaseMetaData dbmeta) throws SQLException {
+        loadColumns(dbmeta);
+        return new ArrayList<>(columns.rows);
+    }
+
+    /**
+     * Returns the primary keys like <code>DatabaseMetaData.getPrimaryKeys</code>.
+     * @param dbmeta
+     * @param tableNamePattern
+     * @return
+     * @throws SQLException
+     */
+    public synchronized ResultSet getPrimaryKeys(DatabaseMetaData dbmeta, String tableNamePattern) throws SQLException {
+        Rows rows = primaryKeys.get(tableNamePattern);
+        if (rows == null) {
+            try (ResultSet rs = dbmeta.getPrimaryKeys(null, null, tableNamePattern)) {
+                rows = Rows.of(rs);
+            }
+            primaryKeys.put(tableNamePattern, rows);
+        }
+        return rows.toResultSet(rows.rows);
+    }
+
+    /**
+     * Returns the indexes like <code>DatabaseMetaData.getIndexInfo</code>.
+     * @param dbmeta
+     * @param tableNamePattern
+     * @return
+     * @throws SQLException
+     */
+    public synchronized ResultSet getIndexInfo(DatabaseMetaData dbmeta, String tableNamePattern) throws SQLException {
+        Rows rows = indexes.get(tableNamePattern);
+        if (rows == null) {
+            try (ResultSet rs = dbmeta.getIndexInfo(null, null, tableNamePattern, false, false)) {
+                rows = Rows.of(rs);
+            }
+            indexes.put(tableNamePattern, rows);
+        }
+        return rows.toResultSet(rows.rows);
+    }
+
+    /**
+     * Reloads the tables (and the columns if loaded) which match the pattern.
+     * @param dbmeta
+     * @param tableNamePattern
+     * @throws SQLException
+     */
+    public synchronized void refresh(DatabaseMetaData dbmeta, String tableNamePattern) throws SQLException {
+        try (ResultSet rs = dbmeta.getTables(null, null, tableNamePattern, null)) {
+            tables = tables.replace(Rows.of(rs), tableNamePattern);
+        }
+        if (columns != null) {
+            try (ResultSet rs = dbmeta.getColumns(null, null, tableNamePattern, "%")) {
+                columns = columns.replace(Rows.of(rs), tableNamePattern);
+            }
+        }
+        primaryKeys.clear();
+        indexes.clear();
+    }
+
+    private static List<Object[]> filterByTableName(Rows rows, String tableNamePattern) {
+        final Pattern tableName = toRegex(tableNamePattern);
+        List<Object[]> a = new ArrayList<>();
+        for (final Object[] row : rows.rows) {
+            if (matches(tableName, tableNamePattern, row[TABLE_NAME])) {
+                a.add(row);
+            }
+        }
+        return a;
+    }
+
+    /**
+     * Converts a pattern of DatabaseMetaData into a regular expression.
+     * @param pattern
+     * @return the regular expression, or null if the pattern is null or empty
+     */
+    static Pattern toRegex(String pattern) {
+        if (pattern == null || pattern.isEmpty()) {
+            return null;
+        }
+        StringBuilder buffer = new StringBuilder();
+        for (final char c : pattern.toCharArray()) {
+            switch (c) {
+                case '%':
+                    buffer.append(".*");
+                    break;
+                case '_':
+                    buffer.append('.');
+                    break;
+                default:
+                    buffer.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(buffer.toString(), Pattern.DOTALL);
+    }
+
+    private static boolean matches(Pattern regex, String pattern, Object value) {
+        if (pattern == null) {
+            return true;
+        }
+        if (regex == null) {
+            // empty pattern matches the objects without catalog or schema
+            return value == null || value.toString().isEmpty();
+        }
+        return value != null && regex.matcher(value.toString()).matches();
+    }
+
+    /**
+     * The rows of a ResultSet of DatabaseMetaData.
+     */
+    private static final class Rows implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final String[] labels;
+        final int[] types;
+        final List<Object[]> rows;
+
+        Rows(String[] labels, int[] types, List<Object[]> rows) {
+            this.labels = labels;
+            this.types = types;
+            this.rows = rows;
+        }
+
+        static Rows of(ResultSet rs) throws SQLException {
+            ResultSetMetaData meta = rs.getMetaData();
+            final int columnCount = meta.getColumnCount();
+            String[] labels = new String[columnCount];
+            int[] types = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                labels[i] = meta.getColumnLabel(i + 1);
+                types[i] = meta.getColumnType(i + 1);
+            }
+            List<Object[]> rows = new ArrayList<>();
+            while (rs.next()) {
+                Object[] row = new Object[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    final Object o = rs.getObject(i + 1);
+                    row[i] = (o == null || o instanceof Serializable) ? o : o.toString();
+                }
+                rows.add(row);
+            }
+            return new Rows(labels, types, rows);
+        }
+
+        /**
+         * Returns the new rows which replaced the rows that match the table name pattern.
+         */
+        Rows replace(Rows newRows, String tableNamePattern) {
+            final Pattern tableName = toRegex(tableNamePattern);
+            List<Object[]> a = new ArrayList<>(rows.size());
+            for (final Object[] row : rows) {
+                if (!matches(tableName, tableNamePattern, row[TABLE_NAME])) {
+                    a.add(row);
+                }
+            }
+            a.addAll(newRows.rows);
+            return new Rows(labels, types, a);
+        }
+
+        ResultSet toResultSet(List<Object[]> selectedRows) throws SQLException {
+            return MetadataSnapshot.toResultSet(labels, types, selectedRows);
+        }
+
+    }
+
+    /**
+     * Creates a disconnected ResultSet.
+     * @param labels
+     * @param types
+     * @param rows
+     * @return
+     * @throws SQLException
+     */
+    static ResultSet toResultSet(String[] labels, int[] types, List<Object[]> rows) throws SQLException {
+        RowSetMetaDataImpl meta = new RowSetMetaDataImpl();
+        meta.setColumnCount(labels.length);
+        for (int i = 0; i < labels.length; i++) {
+            meta.setColumnName(i + 1, labels[i]);
+            meta.setColumnLabel(i + 1, labels[i]);
+            meta.setColumnType(i + 1, types[i]);
+        }
+        CachedRowSet crs = RowSetProvider.newFactory().createCachedRowSet();
+        crs.setMetaData(meta);
+        for (final Object[] row : rows) {
+            crs.moveToInsertRow();
+            for (int i = 0; i < row.length; i++) {
+                crs.updateObject(i + 1, row[i]);
+            }
+            crs.insertRow();
+            crs.moveToCurrentRow();
+        }
+        crs.beforeFirst();
+        return crs;
+    }
+
+}
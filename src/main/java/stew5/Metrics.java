@@ -0,0 +1,406 @@
+package stew5;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A lightweight registry of runtime metrics: counters, gauges and latency histograms.
+ *
+ * The metrics are updated without locks, so they can be used on hot paths.
+ * If <code>metrics.dump.file</code> is set, all of the metrics are written to the file
+ * in Prometheus text format every <code>metrics.dump.interval</code> seconds (default 60).
+ */
+public final class Metrics {
+
+    private static final Logger log = Logger.getLogger(Metrics.class);
+    private static final Metrics instance = new Metrics();
+
+    static final int DEFAULT_DUMP_INTERVAL = 60;
+
+    private final ConcurrentMap<String, Metric> metrics;
+
+    private Metrics() {
+        this.metrics = new ConcurrentSkipListMap<>();
+        final String path = App.props.get("metrics.dump.file", "");
+        if (!path.isEmpty()) {
+            final File file = new File(path);
+            final int interval = Math.max(1, App.props.getAsInt("metrics.dump.interval", DEFAULT_DUMP_INTERVAL));
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(DaemonThreadFactory.getInstance());
+            executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        dump(file);
+                    } catch (IOException ex) {
+                        log.warn(ex);
+                    }
+                }
+            }, interval, interval, TimeUnit.SECONDS);
+            log.debug("metrics dump: %s (every %d seconds)", file, interval);
+        }
+    }
+
+    /**
+     * Returns the instance of Metrics.
+     * @return
+     */
+    public static Metrics getInstance() {
+        return instance;
+    }
+
+    /**
+     * A metric.
+     */
+    public abstract static class Metric {
+
+        private final String name;
+        private final String help;
+
+        Metric(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        public final String getName() {
+            return name;
+        }
+
+        public final String getHelp() {
+            return help;
+        }
+
+        /**
+         * Returns the type name in Prometheus text format.
+         * @return
+         */
+        public abstract String getType();
+
+        /**
+         * Returns the summary of the current value.
+         * @return
+         */
+        public abstract String getSummary();
+
+        abstract void reset();
+
+        abstract void writeSamples(StringBuilder buffer);
+
+    }
+
+    /**
+     * A monotonically increasing count.
+     */
+    public static final class Counter extends Metric {
+
+        private final AtomicLong value = new AtomicLong();
+
+        Counter(String name, String help) {
+            super(name, help);
+        }
+
+        public void inc() {
+            value.incrementAndGet();
+        }
+
+        public void add(long n) {
+            value.addAndGet(n);
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        @Override
+        public String getType() {
+            return "counter";
+        }
+
+        @Override
+        public String getSummary() {
+            return String.valueOf(get());
+        }
+
+        @Override
+        void reset() {
+            value.set(0L);
+        }
+
+        @Override
+        void writeSamples(StringBuilder buffer) {
+            buffer.append(getName()).append(' ').append(get()).append('\n');
+        }
+
+    }
+
+    /**
+     * A value which goes up and down.
+     */
+    public static final class Gauge extends Metric {
+
+        private final AtomicLong value = new AtomicLong();
+
+        Gauge(String name, String help) {
+            super(name, help);
+        }
+
+        public void set(long v) {
+            value.set(v);
+        }
+
+        public void inc() {
+            value.incrementAndGet();
+        }
+
+        public void dec() {
+            value.decrementAndGet();
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        @Override
+        public String getType() {
+            return "gauge";
+        }
+
+        @Override
+        public String getSummary() {
+            return String.valueOf(get());
+        }
+
+        @Override
+        void reset() {
+            // the current value is kept
+        }
+
+        @Override
+        void writeSamples(StringBuilder buffer) {
+            buffer.append(getName()).append(' ').append(get()).append('\n');
+        }
+
+    }
+
+    /**
+     * A distribution of latencies in fixed buckets.
+     * The values are recorded in nanoseconds, and exposed in seconds.
+     */
+    public static final class Histogram extends Metric {
+
+        static final long[] BOUNDS = {100000L, // 100us
+                                      500000L,
+                                      1000000L, // 1ms
+                                      5000000L,
+                                      10000000L,
+                                      50000000L,
+                                      100000000L,
+                                      500000000L,
+                                      1000000000L, // 1s
+                                      5000000000L,
+                                      10000000000L,
+                                      Long.MAX_VALUE};
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(String name, String help) {
+            super(name, help);
+        }
+
+        /**
+         * Records a latency.
+         * @param nanos
+         */
+        public void record(long nanos) {
+            final long v = Math.max(0L, nanos);
+            int i = 0;
+            while (v > BOUNDS[i]) {
+                ++i;
+            }
+            buckets.incrementAndGet(i);
+            count.incrementAndGet();
+            sum.addAndGet(v);
+            long m;
+            while (v > (m = max.get())) {
+                if (max.compareAndSet(m, v)) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Records the elapsed time since the start time.
+         * @param startNanos the value of <code>System.nanoTime()</code> at start
+         */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getSum() {
+            return sum.get();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Returns the upper bound of the bucket which contains the quantile.
+         * @param q the quantile (0.0 - 1.0)
+         * @return the upper bound in nanoseconds, or the max if it is in the last bucket
+         */
+        public long getQuantileBound(double q) {
+            final long n = getCount();
+            if (n == 0L) {
+                return 0L;
+            }
+            final long rank = (long)Math.ceil(n * q);
+            long cumulative = 0L;
+            for (int i = 0; i < BOUNDS.length - 1; i++) {
+                cumulative += buckets.get(i);
+                if (cumulative >= rank) {
+                    return Math.min(BOUNDS[i], getMax());
+                }
+            }
+            return getMax();
+        }
+
+        @Override
+        public String getType() {
+            return "histogram";
+        }
+
+        @Override
+        public String getSummary() {
+            final long n = getCount();
+            return String.format("count=%d, avg=%.3fms, p50<=%.3fms, p95<=%.3fms, max=%.3fms",
+                                 n,
+                                 (n == 0L) ? 0d : getSum() / (double)n / 1e6d,
+                                 getQuantileBound(0.5d) / 1e6d,
+                                 getQuantileBound(0.95d) / 1e6d,
+                                 getMax() / 1e6d);
+        }
+
+        @Override
+        void reset() {
+            for (int i = 0; i < BOUNDS.length; i++) {
+                buckets.set(i, 0L);
+            }
+            count.set(0L);
+            sum.set(0L);
+            max.set(0L);
+        }
+
+        @Override
+        void writeSamples(StringBuilder buffer) {
+            final String name = getName();
+            long cumulative = 0L;
+            for (int i = 0; i < BOUNDS.length; i++) {
+                cumulative += buckets.get(i);
+                final String le = (BOUNDS[i] == Long.MAX_VALUE) ? "+Inf" : String.valueOf(BOUNDS[i] / 1e9d);
+                buffer.append(name).append("_bucket{le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+            }
+            buffer.append(name).append("_sum ").append(getSum() / 1e9d).append('\n');
+            buffer.append(name).append("_count ").append(getCount()).append('\n');
+        }
+
+    }
+
+    /**
+     * Returns the counter, which is created if it does not exist.
+     * @param name
+     * @param help
+     * @return
+     */
+    public Counter counter(String name, String help) {
+        return register(new Counter(name, help), Counter.class);
+    }
+
+    /**
+     * Returns the gauge, which is created if it does not exist.
+     * @param name
+     * @param help
+     * @return
+     */
+    public Gauge gauge(String name, String help) {
+        return register(new Gauge(name, help), Gauge.class);
+    }
+
+    /**
+     * Returns the histogram, which is created if it does not exist.
+     * @param name
+     * @param help
+     * @return
+     */
+    public Histogram histogram(String name, String help) {
+        return register(new Histogram(name, help), Histogram.class);
+    }
+
+    private <T extends Metric> T register(T metric, Class<T> type) {
+        Metric existing = metrics.putIfAbsent(metric.getName(), metric);
+        if (existing == null) {
+            return metric;
+        }
+        if (!type.isInstance(existing)) {
+            throw new IllegalArgumentException("metric type mismatch: " + metric.getName());
+        }
+        return type.cast(existing);
+    }
+
+    /**
+     * Returns all of the metrics in order of the name.
+     * @return
+     */
+    public List<Metric> getMetrics() {
+        return new ArrayList<>(metrics.values());
+    }
+
+    /**
+     * Resets the counters and the histograms.
+     */
+    public void reset() {
+        for (final Metric metric : metrics.values()) {
+            metric.reset();
+        }
+    }
+
+    /**
+     * Returns all of the metrics in Prometheus text format.
+     * @return
+     */
+    public String toPrometheusText() {
+        StringBuilder buffer = new StringBuilder();
+        for (final Metric metric : metrics.values()) {
+            buffer.append("# HELP ").append(metric.getName()).append(' ').append(metric.getHelp()).append('\n');
+            buffer.append("# TYPE ").append(metric.getName()).append(' ').append(metric.getType()).append('\n');
+            metric.writeSamples(buffer);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Writes all of the metrics into the file in Prometheus text format.
+     * The file is replaced after written completely.
+     * @param file
+     * @throws IOException
+     */
+    public void dump(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            out.write(toPrometheusText());
+        }
+        if (file.exists() && !file.delete() || !tmp.renameTo(file)) {
+            throw new IOException("failed to rename: " + tmp);
+        }
+    }
+
+}
@@ -13,11 +13,14 @@ public final class OptionSet {
     private boolean cui;
     private boolean gui;
     private boolean edit;
+    private boolean daemon;
+    private boolean remote;
     private String connecterName;
     private String commandString;
     private boolean quiet;
     private boolean showVersion;
     private boolean help;
+    private boolean jfr;
 
     private OptionSet() { // empty
     }
@@ -52,6 +55,14 @@ public final class OptionSet {
         return edit;
     }
 
+    public boolean isDaemon() {
+        return daemon;
+    }
+
+    public boolean isRemote() {
+        return remote;
+    }
+
     public String getCommandString() {
         return commandString;
     }
@@ -72,6 +83,10 @@ public final class OptionSet {
         return help;
     }
 
+    public boolean isJfr() {
+        return jfr;
+    }
+
     /**
      * The parser for OptionSet.
      */
@@ -82,10 +97,13 @@ public final class OptionSet {
         private static final String OPTION_CUI = "cui";
         private static final String OPTION_GUI = "gui";
         private static final String OPTION_EDIT = "edit";
+        private static final String OPTION_DAEMON = "daemon";
+        private static final String OPTION_REMOTE = "remote";
         private static final String OPTION_CONNECT = "connect";
         private static final String OPTION_QUIET = "quiet";
         private static final String OPTION_VERSION = "version";
         private static final String OPTION_HELP = "help";
+        private static final String OPTION_JFR = "jfr";
 
         private final Options options;
 
@@ -94,10 +112,13 @@ public final class OptionSet {
             option(OPTION_CUI);
             option(OPTION_GUI);
             option(OPTION_EDIT);
+            option(OPTION_DAEMON);
+            option(OPTION_REMOTE);
             option(OPTION_CONNECT, "c", true);
             option(OPTION_QUIET, "q");
             option(OPTION_VERSION, "v");
             option(OPTION_HELP);
+            option(OPTION_JFR);
         }
 
         public Options getOptions() {
@@ -111,11 +132,14 @@ public final class OptionSet {
             o.cui = bool(cl, OPTION_CUI);
             o.gui = bool(cl, OPTION_GUI);
             o.edit = bool(cl, OPTION_EDIT);
+            o.daemon = bool(cl, OPTION_DAEMON);
+            o.remote = bool(cl, OPTION_REMOTE);
             o.connecterName = getConnectorName(cl);
             o.quiet = bool(cl, OPTION_QUIET);
             o.showVersion = bool(cl, OPTION_VERSION);
             o.help = bool(cl, OPTION_HELP);
-            log.debug("non-option args=" + cl.getArgList());
+            o.jfr = bool(cl, OPTION_JFR);
+            log.debug("non-option args=%s", cl.getArgList());
             StringBuilder sb = new StringBuilder();
             for (final String arg : cl.getArgs())
                 sb.append(' ').append(arg);
@@ -0,0 +1,84 @@
+package stew5;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+import stew5.io.*;
+
+/**
+ * A rolling log file of the executed SQL statements with the timing breakdown.
+ *
+ * It is enabled by <code>query.log</code>, and written to <code>query.log</code> in the system directory.
+ * Each line consists of tab-separated fields: the time, the connector ID, the total time,
+ * the times of the phases (milliseconds), the row count and the SQL.
+ * When the file exceeds <code>query.log.size</code> bytes, it is renamed to <code>query.log.1</code>.
+ * @see QueryProfile
+ */
+public final class QueryLog {
+
+    private static final Logger log = Logger.getLogger(QueryLog.class);
+    private static final QueryLog instance = new QueryLog();
+
+    static final int DEFAULT_SIZE = 1048576;
+
+    private final DateFormat dateFormat;
+
+    private QueryLog() {
+        this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    }
+
+    /**
+     * Returns the instance of QueryLog.
+     * @return
+     */
+    public static QueryLog getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns whether the query log is enabled.
+     * @return
+     */
+    public static boolean isEnabled() {
+        return App.props.getAsBoolean("query.log");
+    }
+
+    /**
+     * Writes the profile into the log file.
+     * @param connector
+     * @param profile
+     */
+    public void write(Connector connector, QueryProfile profile) {
+        write(App.getSystemFile("query.log"), connector, profile);
+    }
+
+    synchronized void write(File file, Connector connector, QueryProfile profile) {
+        final int maxSize = App.props.getAsInt("query.log.size", DEFAULT_SIZE);
+        try {
+            if (!FileUtilities.appendRolling(file, format(connector, profile), maxSize)) {
+                log.warn("failed to rotate: %s", file);
+            }
+        } catch (IOException ex) {
+            log.warn(ex);
+        }
+    }
+
+    String format(Connector connector, QueryProfile profile) {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append(dateFormat.format(new Date()));
+        buffer.append('\t').append((connector == null) ? "" : connector.getId());
+        buffer.append('\t').append(toMillis(profile.getTotalTime()));
+        for (final QueryProfile.Phase phase : QueryProfile.Phase.values()) {
+            buffer.append('\t').append(toMillis(profile.get(phase)));
+        }
+        buffer.append('\t').append(profile.getRowCount());
+        buffer.append('\t').append(ResultCache.normalize(profile.getSql()).replace('\t', ' '));
+        buffer.append(String.format("%n"));
+        return buffer.toString();
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6d);
+    }
+
+}
@@ -0,0 +1,147 @@
+package stew5;
+
+import java.lang.reflect.*;
+import java.sql.*;
+
+/**
+ * The timing breakdown of an executed SQL statement.
+ *
+ * <ul>
+ * <li>DISPATCH: from the input to the start of the execution, includes parsing the command</li>
+ * <li>PREPARE: creating the statement and binding the parameters</li>
+ * <li>EXECUTE: <code>executeQuery</code> or <code>executeUpdate</code></li>
+ * <li>FIRST_ROW: the first <code>ResultSet#next</code></li>
+ * <li>FETCH: the other calls of the ResultSet, which mostly wait for the driver (network)</li>
+ * <li>RENDER: the output of the rows except the time in the ResultSet</li>
+ * </ul>
+ * @see QueryLog
+ */
+public final class QueryProfile {
+
+    /**
+     * The phases of the execution.
+     */
+    public enum Phase {
+        DISPATCH, PREPARE, EXECUTE, FIRST_ROW, FETCH, RENDER
+    }
+
+    private final String sql;
+    private final long startTime;
+    private final long[] times;
+
+    private long rowCount;
+    private long totalTime;
+    private boolean firstRowFetched;
+
+    /**
+     * A constructor.
+     * @param sql
+     * @param startTime the value of <code>System.nanoTime()</code> when the command was accepted
+     */
+    public QueryProfile(String sql, long startTime) {
+        this.sql = sql;
+        this.startTime = startTime;
+        this.times = new long[Phase.values().length];
+        this.rowCount = -1L;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Adds the time to the phase.
+     * @param phase
+     * @param nanos
+     */
+    public void add(Phase phase, long nanos) {
+        times[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * Returns the time of the phase.
+     * @param phase
+     * @return the time in nanoseconds
+     */
+    public long get(Phase phase) {
+        return times[phase.ordinal()];
+    }
+
+    /**
+     * Returns the row count.
+     * @return the count of the selected or the updated rows, or -1 if unknown
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Returns the total time from the start to {@link #finish()}.
+     * @return the time in nanoseconds
+     */
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * Marks the end of the dispatch phase.
+     */
+    public void endDispatch() {
+        times[Phase.DISPATCH.ordinal()] = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Marks the end of the statement.
+     */
+    public void finish() {
+        totalTime = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Wraps the ResultSet to measure the time spent in it.
+     * @param rs
+     * @return
+     */
+    public ResultSet wrap(final ResultSet rs) {
+        InvocationHandler h = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                final long t = System.nanoTime();
+                try {
+                    return method.invoke(rs, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                } finally {
+                    final long elapsed = System.nanoTime() - t;
+                    if (!firstRowFetched && method.getName().equals("next")) {
+                        firstRowFetched = true;
+                        add(Phase.FIRST_ROW, elapsed);
+                    } else {
+                        add(Phase.FETCH, elapsed);
+                    }
+                }
+            }
+        };
+        return (ResultSet)Proxy.newProxyInstance(QueryProfile.class.getClassLoader(), new Class<?>[]{ResultSet.class}, h);
+    }
+
+    /**
+     * Returns the arguments for the message <code>i.profile</code>.
+     * @return the times of the phases (milliseconds), the row count and the total time (milliseconds)
+     */
+    public Object[] toMessageArguments() {
+        final Phase[] phases = Phase.values();
+        Object[] a = new Object[phases.length + 2];
+        for (int i = 0; i < phases.length; i++) {
+            a[i] = times[i] / 1e6d;
+        }
+        a[phases.length] = rowCount;
+        a[phases.length + 1] = totalTime / 1e6d;
+        return a;
+    }
+
+}
@@ -0,0 +1,375 @@
+package stew5;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.charset.*;
+import java.security.*;
+import java.sql.*;
+import java.util.*;
+import java.util.zip.*;
+import javax.sql.rowset.*;
+
+/**
+ * A persistent cache of SELECT results.
+ *
+ * It is enabled by <code>result.cache</code>, and only used with read-only connectors.
+ * The results are stored as compressed files in the system directory,
+ * keyed by the connector (ID, URL and user) and the normalized SQL.
+ * The total size is limited by <code>result.cache.size</code> (bytes) with LRU eviction,
+ * and the entries older than <code>result.cache.ttl</code> seconds are discarded.
+ * The results which exceed <code>rowcount.limit</code> are not cached,
+ * and at most the limit plus one rows are read into memory.
+ */
+public final class ResultCache {
+
+    private static final Logger log = Logger.getLogger(ResultCache.class);
+    private static final ResultCache instance = new ResultCache();
+
+    static final int DEFAULT_SIZE = 67108864;
+    static final int DEFAULT_TTL = 3600;
+
+    private static final String SUFFIX = ".ser.gz";
+
+    private final File directory;
+    private final Map<String, File> entries;
+    private long totalSize;
+    private boolean loaded;
+
+    private ResultCache() {
+        this(App.getSystemFile("resultcache"));
+    }
+
+    ResultCache(File directory) {
+        this.directory = directory;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the instance of ResultCache.
+     * @return
+     */
+    public static ResultCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * An entry of the cache.
+     */
+    public static final class Entry {
+
+        private final ResultSet resultSet;
+        private final long createdTime;
+
+        Entry(ResultSet resultSet, long createdTime) {
+            this.resultSet = resultSet;
+            this.createdTime = createdTime;
+        }
+
+        public ResultSet getResultSet() {
+            return resultSet;
+        }
+
+        public long getCreatedTime() {
+            return createdTime;
+        }
+
+    }
+
+    /**
+     * Returns whether the cache is available for the connector.
+     * @param connector
+     * @return
+     */
+    public static boolean isEnabled(Connector connector) {
+        return connector != null && connector.isReadOnly() && App.props.getAsBoolean("result.cache");
+    }
+
+    /**
+     * Returns the cached result.
+     * @param connector
+     * @param sql
+     * @return the entry, or null if not cached or expired
+     */
+    public Entry get(Connector connector, String sql) {
+        final String key = getKey(connector, sql);
+        final File file;
+        final long createdTime;
+        synchronized (this) {
+            ensureLoaded();
+            file = entries.get(key);
+            if (file == null) {
+                return null;
+            }
+            createdTime = file.lastModified();
+            if (isExpired(createdTime)) {
+                log.debug("expired: %s", key);
+                remove(key);
+                return null;
+            }
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new GZIPInputStream(new FileInputStream(file)))) {
+            CachedRowSet crs = (CachedRowSet)ois.readObject();
+            crs.beforeFirst();
+            log.debug("hit: %s", key);
+            return new Entry(crs, createdTime);
+        } catch (IOException | ClassNotFoundException | ClassCastException | SQLException ex) {
+            log.warn(ex);
+            synchronized (this) {
+                if (entries.get(key) == file) {
+                    remove(key);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Reads the result into memory and stores it into the cache.
+     * If the result exceeds <code>rowcount.limit</code>, it is not stored,
+     * and the returned ResultSet contains the limit plus one rows.
+     * The result is read and written into a temporary file without the lock,
+     * so that a slow query does not block the other sessions.
+     * @param connector
+     * @param sql
+     * @param rs
+     * @return the ResultSet in memory, which is positioned before the first row
+     * @throws SQLException
+     */
+    public ResultSet put(Connector connector, String sql, ResultSet rs) throws SQLException {
+        CachedRowSet crs = RowSetProvider.newFactory().createCachedRowSet();
+        RowLimit rowLimit = new RowLimit(rs, App.props.getAsInt("rowcount.limit", Integer.MAX_VALUE) + 1L);
+        crs.populate(rowLimit.newProxy());
+        if (rowLimit.exceeded) {
+            log.debug("not stored: exceeded rowcount.limit");
+            crs.beforeFirst();
+            return crs;
+        }
+        final String key = getKey(connector, sql);
+        final File dir = getDirectory();
+        File tmpFile = null;
+        try {
+            tmpFile = File.createTempFile(key, ".tmp", dir);
+            try (ObjectOutputStream oos = new ObjectOutputStream(new GZIPOutputStream(new FileOutputStream(tmpFile)))) {
+                oos.writeObject(crs);
+            }
+        } catch (IOException ex) {
+            log.warn(ex);
+            if (tmpFile != null) {
+                deleteFile(tmpFile);
+            }
+            crs.beforeFirst();
+            return crs;
+        }
+        final File file = new File(dir, key + SUFFIX);
+        synchronized (this) {
+            ensureLoaded();
+            remove(key);
+            if (tmpFile.renameTo(file)) {
+                entries.put(key, file);
+                totalSize += file.length();
+                log.debug("stored: %s (%d bytes)", key, file.length());
+                evict();
+            } else {
+                log.warn("failed to rename: %s", tmpFile);
+                deleteFile(tmpFile);
+            }
+        }
+        crs.beforeFirst();
+        return crs;
+    }
+
+    /**
+     * Removes the cached result of the SQL.
+     * @param connector
+     * @param sql
+     */
+    public synchronized void invalidate(Connector connector, String sql) {
+        ensureLoaded();
+        remove(getKey(connector, sql));
+    }
+
+    /**
+     * Removes all of the cached results.
+     * @return the number of the removed entries
+     */
+    public synchronized int clear() {
+        ensureLoaded();
+        final int count = entries.size();
+        for (final String key : new ArrayList<>(entries.keySet())) {
+            remove(key);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of the entries.
+     * @return
+     */
+    public synchronized int size() {
+        ensureLoaded();
+        return entries.size();
+    }
+
+    /**
+     * Returns the total size of the entries in bytes.
+     * @return
+     */
+    public synchronized long getTotalSize() {
+        ensureLoaded();
+        return totalSize;
+    }
+
+    /**
+     * Limits the rows to be read from the ResultSet.
+     */
+    private static final class RowLimit implements InvocationHandler {
+
+        private final ResultSet rs;
+        private final long maxRows;
+
+        private long count;
+        boolean exceeded;
+
+        RowLimit(ResultSet rs, long maxRows) {
+            this.rs = rs;
+            this.maxRows = maxRows;
+        }
+
+        ResultSet newProxy() {
+            return (ResultSet)Proxy.newProxyInstance(ResultCache.class.getClassLoader(), new Class<?>[]{ResultSet.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("next") && method.getParameterTypes().length == 0) {
+                if (count >= maxRows || !rs.next()) {
+                    return false;
+                }
+                if (++count == maxRows) {
+                    exceeded = true;
+                }
+                return true;
+            }
+            try {
+                return method.invoke(rs, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        File[] files = getDirectory().listFiles();
+        if (files == null) {
+            return;
+        }
+        // least recently stored first
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                return Long.compare(f1.lastModified(), f2.lastModified());
+            }
+        });
+        for (final File file : files) {
+            final String name = file.getName();
+            if (name.endsWith(SUFFIX)) {
+                entries.put(name.substring(0, name.length() - SUFFIX.length()), file);
+                totalSize += file.length();
+            }
+        }
+        log.debug("loaded: %d entries, %d bytes", entries.size(), totalSize);
+    }
+
+    private void evict() {
+        final long maxSize = App.props.getAsInt("result.cache.size", DEFAULT_SIZE);
+        Iterator<Map.Entry<String, File>> it = entries.entrySet().iterator();
+        while (totalSize > maxSize && entries.size() > 1 && it.hasNext()) {
+            final Map.Entry<String, File> entry = it.next();
+            final File file = entry.getValue();
+            totalSize -= file.length();
+            it.remove();
+            deleteFile(file);
+            log.debug("evicted: %s", entry.getKey());
+        }
+    }
+
+    private void remove(String key) {
+        File file = entries.remove(key);
+        if (file != null) {
+            totalSize -= file.length();
+            deleteFile(file);
+        }
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            log.warn("failed to delete: %s", file);
+        }
+    }
+
+    private static boolean isExpired(long createdTime) {
+        final long ttl = App.props.getAsInt("result.cache.ttl", DEFAULT_TTL);
+        return ttl > 0L && System.currentTimeMillis() - createdTime > ttl * 1000L;
+    }
+
+    private File getDirectory() {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            log.warn("failed to create: %s", directory);
+        }
+        return directory;
+    }
+
+    static String getKey(Connector connector, String sql) {
+        final String s = connector.getId()
+                         + '\n'
+                         + connector.getUrl()
+                         + '\n'
+                         + connector.getUser()
+                         + '\n'
+                         + normalize(sql);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(s.getBytes(StandardCharsets.UTF_8));
+            StringBuilder buffer = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) {
+                buffer.append(String.format("%02x", b & 0xFF));
+            }
+            return buffer.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Normalizes the SQL by collapsing the white spaces outside of the quotes.
+     * @param sql
+     * @return
+     */
+    static String normalize(String sql) {
+        StringBuilder buffer = new StringBuilder(sql.length());
+        char quote = 0;
+        boolean spacing = false;
+        for (final char c : sql.trim().toCharArray()) {
+            if (quote == 0 && Character.isWhitespace(c)) {
+                spacing = true;
+                continue;
+            }
+            if (spacing) {
+                buffer.append(' ');
+                spacing = false;
+            }
+            if (quote == 0 && (c == '\'' || c == '"')) {
+                quote = c;
+            } else if (c == quote) {
+                quote = 0;
+            }
+            buffer.append(c);
+        }
+        return buffer.toString();
+    }
+
+}
@@ -0,0 +1,230 @@
+package stew5;
+
+import java.io.*;
+import java.sql.*;
+import java.text.*;
+import java.util.*;
+import java.util.Date;
+import java.util.concurrent.*;
+import stew5.io.*;
+
+/**
+ * The log of the slow statements.
+ *
+ * The statements whose execution time exceeds <code>slowquery.threshold</code> milliseconds
+ * are appended to <code>slowquery.log</code> in the system directory.
+ * The threshold and <code>slowquery.explain</code> can be overridden by the connector properties of the same name.
+ * If <code>slowquery.explain</code> is true, the execution plan is captured on a separate connection
+ * (H2, PostgreSQL, MySQL/MariaDB and Oracle).
+ * The entries are written by a background thread, so the command is not delayed.
+ * When the file exceeds <code>slowquery.log.size</code> bytes, it is renamed to <code>slowquery.log.1</code>.
+ */
+public final class SlowQueryLog {
+
+    private static final Logger log = Logger.getLogger(SlowQueryLog.class);
+    private static final SlowQueryLog instance = new SlowQueryLog();
+
+    static final int DEFAULT_SIZE = 1048576;
+    static final int EXPLAIN_TIMEOUT_SECONDS = 30;
+
+    private final ExecutorService executor;
+    private final DateFormat dateFormat;
+
+    private SlowQueryLog() {
+        this.executor = Executors.newSingleThreadExecutor(DaemonThreadFactory.getInstance());
+        this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    }
+
+    /**
+     * Returns the instance of SlowQueryLog.
+     * @return
+     */
+    public static SlowQueryLog getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the threshold for the connector.
+     * @param connector
+     * @return the threshold in milliseconds, or a negative value if disabled
+     */
+    public static long getThreshold(Connector connector) {
+        final String s = connector.getProperty("slowquery.threshold");
+        if (s != null && !s.trim().isEmpty()) {
+            try {
+                return Long.parseLong(s.trim());
+            } catch (NumberFormatException ex) {
+                log.warn("invalid slowquery.threshold of %s: %s", connector.getId(), s);
+            }
+        }
+        return App.props.getAsInt("slowquery.threshold", -1);
+    }
+
+    /**
+     * Returns whether the execution time exceeds the threshold.
+     * @param connector
+     * @param nanos the execution time in nanoseconds
+     * @return
+     */
+    public static boolean isSlow(Connector connector, long nanos) {
+        final long threshold = getThreshold(connector);
+        return threshold >= 0L && nanos >= threshold * 1000000L;
+    }
+
+    static boolean usesExplain(Connector connector) {
+        final String s = connector.getProperty("slowquery.explain");
+        return (s == null) ? App.props.getAsBoolean("slowquery.explain") : Boolean.parseBoolean(s);
+    }
+
+    /**
+     * Records the slow statement.
+     * @param connector
+     * @param sql the SQL, which may have the parameters after <code>;</code>
+     * @param nanos the execution time in nanoseconds
+     * @param rowCount the updated count, or -1 if unknown
+     */
+    public void record(final Connector connector, final String sql, final long nanos, final long rowCount) {
+        final long time = System.currentTimeMillis();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int index = sql.indexOf(';');
+                final String statement = (index >= 0) ? sql.substring(0, index) : sql;
+                final List<String> params = (index >= 0)
+                        ? Arrays.asList(sql.substring(index + 1).split(",", -1))
+                        : Collections.<String> emptyList();
+                List<String> plan = Collections.emptyList();
+                if (usesExplain(connector)) {
+                    plan = explain(connector, statement, params);
+                }
+                write(App.getSystemFile("slowquery.log"),
+                      format(connector, time, statement, params, nanos, rowCount, plan));
+            }
+        });
+    }
+
+    private static List<String> explain(Connector connector, String statement, List<String> params) {
+        final StatementKind kind = StatementKind.of(statement);
+        if (kind != StatementKind.SELECT && !kind.isDml()) {
+            return Collections.emptyList();
+        }
+        List<String> explainSql = getExplainSql(connector.getUrl(), statement);
+        if (explainSql.isEmpty()) {
+            return Collections.singletonList("(EXPLAIN is not supported for this database)");
+        }
+        try (Connection conn = connector.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                return capturePlan(conn, explainSql, params);
+            } finally {
+                conn.rollback();
+            }
+        } catch (SQLException ex) {
+            log.warn(ex);
+            return Collections.singletonList("(failed to EXPLAIN: " + ex.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Returns the statements to get the execution plan.
+     * The last statement returns the plan.
+     * @param url
+     * @param statement
+     * @return the statements, or an empty list if not supported
+     */
+    static List<String> getExplainSql(String url, String statement) {
+        final String u = String.valueOf(url).toLowerCase();
+        if (u.startsWith("jdbc:h2:")
+            || u.startsWith("jdbc:postgresql:")
+            || u.startsWith("jdbc:mysql:")
+            || u.startsWith("jdbc:mariadb:")) {
+            return Collections.singletonList("EXPLAIN " + statement);
+        } else if (u.startsWith("jdbc:oracle:")) {
+            return Arrays.asList("EXPLAIN PLAN FOR " + statement,
+                                 "SELECT PLAN_TABLE_OUTPUT FROM TABLE(DBMS_XPLAN.DISPLAY())");
+        }
+        return Collections.emptyList();
+    }
+
+    static List<String> capturePlan(Connection conn, List<String> explainSql, List<String> params) throws SQLException {
+        final int last = explainSql.size() - 1;
+        for (int i = 0; i < last; i++) {
+            try (PreparedStatement stmt = prepare(conn, explainSql.get(i), params)) {
+                stmt.execute();
+            }
+        }
+        List<String> a = new ArrayList<>();
+        final String sql = explainSql.get(last);
+        try (PreparedStatement stmt = prepare(conn, sql, (last == 0) ? params : Collections.<String> emptyList());
+             ResultSet rs = stmt.executeQuery()) {
+            final int columnCount = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                StringBuilder buffer = new StringBuilder();
+                for (int i = 1; i <= columnCount; i++) {
+                    if (i > 1) {
+                        buffer.append(" | ");
+                    }
+                    buffer.append(rs.getString(i));
+                }
+                a.addAll(Arrays.asList(buffer.toString().split("\r?\n")));
+            }
+        }
+        return a;
+    }
+
+    private static PreparedStatement prepare(Connection conn, String sql, List<String> params) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        try {
+            stmt.setQueryTimeout(EXPLAIN_TIMEOUT_SECONDS);
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setString(i + 1, params.get(i));
+            }
+        } catch (SQLException ex) {
+            stmt.close();
+            throw ex;
+        }
+        return stmt;
+    }
+
+    String format(Connector connector,
+                  long time,
+                  String statement,
+                  List<String> params,
+                  long nanos,
+                  long rowCount,
+                  List<String> plan) {
+        final String lineSeparator = String.format("%n");
+        StringBuilder buffer = new StringBuilder();
+        synchronized (dateFormat) {
+            buffer.append("# Time: ").append(dateFormat.format(new Date(time))).append(lineSeparator);
+        }
+        buffer.append("# Connector: ").append(connector.getId());
+        buffer.append(" (").append(connector.getUrl()).append(')').append(lineSeparator);
+        buffer.append(String.format(Locale.ROOT, "# Execution: %.3f ms, Rows: %d", nanos / 1e6d, rowCount));
+        buffer.append(lineSeparator);
+        if (!params.isEmpty()) {
+            buffer.append("# Parameters: ").append(params).append(lineSeparator);
+        }
+        buffer.append(statement.trim()).append(';').append(lineSeparator);
+        if (!plan.isEmpty()) {
+            buffer.append("# Plan:").append(lineSeparator);
+            for (final String line : plan) {
+                buffer.append("#   ").append(line).append(lineSeparator);
+            }
+        }
+        buffer.append(lineSeparator);
+        return buffer.toString();
+    }
+
+    synchronized void write(File file, String entry) {
+        final int maxSize = App.props.getAsInt("slowquery.log.size", DEFAULT_SIZE);
+        try {
+            if (!FileUtilities.appendRolling(file, entry, maxSize)) {
+                log.warn("failed to rotate: %s", file);
+            }
+        } catch (IOException ex) {
+            log.warn(ex);
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package stew5;
+
+/**
+ * The kind of SQL statement, which is determined by the first keyword.
+ */
+public enum StatementKind {
+
+    SELECT, INSERT, UPDATE, DELETE, MERGE, DDL, OTHER;
+
+    private static final String[] DDL_KEYWORDS = {"CREATE", "ALTER", "DROP", "TRUNCATE", "RENAME", "COMMENT"};
+
+    /**
+     * Returns whether this kind is a DML (INSERT, UPDATE, DELETE or MERGE).
+     * @return
+     */
+    public boolean isDml() {
+        switch (this) {
+            case INSERT:
+            case UPDATE:
+            case DELETE:
+            case MERGE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the kind of the SQL.
+     * The leading white spaces and comments (<code>--</code> and <code>/* &#42;/</code>) are skipped.
+     * This method scans the SQL in a single pass and does not allocate.
+     * @param sql
+     * @return
+     */
+    public static StatementKind of(CharSequence sql) {
+        final int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            final char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                ++i;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                while (i < length && sql.charAt(i) != '\n') {
+                    ++i;
+                }
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                i += 2;
+                while (i + 1 < length && !(sql.charAt(i) == '*' && sql.charAt(i + 1) == '/')) {
+                    ++i;
+                }
+                if (i + 1 >= length) {
+                    return OTHER; // unclosed comment
+                }
+                i += 2;
+            } else {
+                break;
+            }
+        }
+        final int start = i;
+        while (i < length && isWordChar(sql.charAt(i))) {
+            ++i;
+        }
+        final int wordLength = i - start;
+        if (matches(sql, start, wordLength, "SELECT")) {
+            return SELECT;
+        } else if (matches(sql, start, wordLength, "INSERT")) {
+            return INSERT;
+        } else if (matches(sql, start, wordLength, "UPDATE")) {
+            return UPDATE;
+        } else if (matches(sql, start, wordLength, "DELETE")) {
+            return DELETE;
+        } else if (matches(sql, start, wordLength, "MERGE")) {
+            return MERGE;
+        }
+        for (final String keyword : DDL_KEYWORDS) {
+            if (matches(sql, start, wordLength, keyword)) {
+                return DDL;
+            }
+        }
+        return OTHER;
+    }
+
+    private static boolean isWordChar(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    private static boolean matches(CharSequence sql, int start, int wordLength, String keyword) {
+        if (wordLength != keyword.length()) {
+            return false;
+        }
+        for (int i = 0; i < wordLength; i++) {
+            if (Character.toUpperCase(sql.charAt(start + i)) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
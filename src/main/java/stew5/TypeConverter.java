@@ -3,14 +3,33 @@ package stew5;
 import java.math.*;
 import java.sql.*;
 import java.text.*;
+import java.util.*;
 import java.util.Date;
+import java.util.regex.*;
 
 /**
  * TypeConverter provides conversion for incompatible types.
  * This class is thread-safe.
+ *
+ * For converting many values of the same column, use a Plan compiled by {@link #compile(Class)}.
  */
 public final class TypeConverter {
 
+    private static final Pattern DATE_ISO = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+    private static final Pattern DATE_DMY_HYPHEN = Pattern.compile("[23]\\d-[01]\\d-\\d{4}");
+    private static final Pattern DATE_MDY_HYPHEN = Pattern.compile("\\d{2}-\\d{2}-\\d{4}");
+    private static final Pattern DATE_YMD_SLASH = Pattern.compile("\\d{4}/\\d{2}/\\d{2}");
+    private static final Pattern DATE_DMY_SLASH = Pattern.compile("[23]\\d/[01]\\d/\\d{4}");
+    private static final Pattern DATE_MDY_SLASH = Pattern.compile("\\d{2}/\\d{2}/\\d{4}");
+    private static final Pattern DATE_DIGITS = Pattern.compile("\\d{8}");
+    private static final Pattern TIME_COLON = Pattern.compile("\\d{2}:\\d{2}(:\\d{2}(\\.\\d{1,3})?)?");
+    private static final Pattern TIME_6DIGITS = Pattern.compile("\\d{6}");
+    private static final Pattern TIME_4DIGITS = Pattern.compile("\\d{4}");
+
+    // SimpleDateFormat is not thread-safe, so the instances are cached for each thread
+    private static final DateFormatCache lenientFormats = new DateFormatCache(true);
+    private static final DateFormatCache strictFormats = new DateFormatCache(false);
+
     private final boolean optimistic;
 
     public TypeConverter() {
@@ -28,7 +47,7 @@ public final class TypeConverter {
      * @return converted value
      */
     public Object convert(Object o, Class<?> destType) {
-        if (o == null) {
+        if (o == null || destType.isInstance(o)) {
             return o;
         }
         if (o instanceof CharSequence) {
@@ -168,8 +187,33 @@ public final class TypeConverter {
     }
 
     public static Date convertToDate(String dateString, String dateFormatString) throws ParseException {
-        DateFormat fmt = new SimpleDateFormat(dateFormatString);
-        return fmt.parse(dateString);
+        return lenientFormats.getFormat(dateFormatString).parse(dateString);
+    }
+
+    private static final class DateFormatCache extends ThreadLocal<Map<String, DateFormat>> {
+
+        private final boolean lenient;
+
+        DateFormatCache(boolean lenient) {
+            this.lenient = lenient;
+        }
+
+        @Override
+        protected Map<String, DateFormat> initialValue() {
+            return new HashMap<>();
+        }
+
+        DateFormat getFormat(String pattern) {
+            Map<String, DateFormat> m = get();
+            DateFormat fmt = m.get(pattern);
+            if (fmt == null) {
+                fmt = new SimpleDateFormat(pattern);
+                fmt.setLenient(lenient);
+                m.put(pattern, fmt);
+            }
+            return fmt;
+        }
+
     }
 
     public String detectDatetimeFormat(String datetimeString) {
@@ -189,25 +233,25 @@ public final class TypeConverter {
     }
 
     public String detectDateFormat(String dateString) {
-        if (dateString.matches("\\d{4}-\\d{2}-\\d{2}")) {
+        if (DATE_ISO.matcher(dateString).matches()) {
             return "yyyy-MM-dd";
         }
-        if (dateString.matches("[23]\\d-[01]\\d-\\d{4}")) {
+        if (DATE_DMY_HYPHEN.matcher(dateString).matches()) {
             return "dd-MM-yyyy";
         }
-        if (dateString.matches("\\d{2}-\\d{2}-\\d{4}")) {
+        if (DATE_MDY_HYPHEN.matcher(dateString).matches()) {
             return "MM-dd-yyyy";
         }
-        if (dateString.matches("\\d{4}/\\d{2}/\\d{2}")) {
+        if (DATE_YMD_SLASH.matcher(dateString).matches()) {
             return "yyyy/MM/dd";
         }
-        if (dateString.matches("[23]\\d/[01]\\d/\\d{4}")) {
+        if (DATE_DMY_SLASH.matcher(dateString).matches()) {
             return "dd/MM/yyyy";
         }
-        if (dateString.matches("\\d{2}/\\d{2}/\\d{4}")) {
+        if (DATE_MDY_SLASH.matcher(dateString).matches()) {
             return "MM/dd/yyyy";
         }
-        if (dateString.matches("\\d{2}\\d{2}\\d{4}")) {
+        if (DATE_DIGITS.matcher(dateString).matches()) {
             return "yyyyMMdd";
         }
         return optimistic ? "yyyy-MM-dd" : "";
@@ -215,15 +259,13 @@ public final class TypeConverter {
 
     public String detectTimeFormat(String timeString) {
         final String pattern = "HH:mm:ss.SSS";
-        if (timeString.matches("\\d{2}:\\d{2}:\\d{2}\\.\\d{1,3}")
-            || timeString.matches("\\d{2}:\\d{2}:\\d{2}")
-            || timeString.matches("\\d{2}:\\d{2}")) {
+        if (TIME_COLON.matcher(timeString).matches()) {
             return pattern.substring(0, timeString.length());
         }
-        if (timeString.matches("\\d{6}")) {
+        if (TIME_6DIGITS.matcher(timeString).matches()) {
             return "HHmmss";
         }
-        if (timeString.matches("\\d{4}")) {
+        if (TIME_4DIGITS.matcher(timeString).matches()) {
             return "HHmm";
         }
         return optimistic ? pattern : "";
@@ -237,4 +279,188 @@ public final class TypeConverter {
         }
     }
 
+    /**
+     * Compiles a conversion plan for the destination type.
+     * @param destType the desired type to convert
+     * @return
+     */
+    public Plan compile(Class<?> destType) {
+        if (destType == java.sql.Date.class || destType == Time.class || destType == Timestamp.class) {
+            return new DatePlan(this, destType);
+        }
+        final int kind = StringParsePlan.kindOf(destType);
+        if (kind >= 0) {
+            return new StringParsePlan(this, destType, kind);
+        }
+        return new Plan(this, destType);
+    }
+
+    /**
+     * Compiles the conversion plans for the destination types.
+     * @param destTypes
+     * @return
+     */
+    public Plan[] compile(List<Class<?>> destTypes) {
+        Plan[] plans = new Plan[destTypes.size()];
+        for (int i = 0; i < plans.length; i++) {
+            plans[i] = compile(destTypes.get(i));
+        }
+        return plans;
+    }
+
+    /**
+     * A conversion plan for a destination type, which is compiled once for a column.
+     * The plans are thread-safe, and can be shared by the threads.
+     */
+    public static class Plan {
+
+        final TypeConverter converter;
+        final Class<?> destType;
+
+        Plan(TypeConverter converter, Class<?> destType) {
+            this.converter = converter;
+            this.destType = destType;
+        }
+
+        /**
+         * Converts the value to the destination type.
+         * @param o
+         * @return
+         */
+        public Object convert(Object o) {
+            return converter.convert(o, destType);
+        }
+
+        public final Object convertWithoutException(Object o) {
+            try {
+                return convert(o);
+            } catch (Exception ex) {
+                return o;
+            }
+        }
+
+    }
+
+    /**
+     * A plan which parses strings into a number or a boolean without type dispatching.
+     */
+    private static final class StringParsePlan extends Plan {
+
+        private static final List<Class<?>> TYPES = Arrays.<Class<?>>asList(String.class,
+                                                                            Integer.class,
+                                                                            Long.class,
+                                                                            Short.class,
+                                                                            Byte.class,
+                                                                            Float.class,
+                                                                            Double.class,
+                                                                            Boolean.class,
+                                                                            BigInteger.class,
+                                                                            BigDecimal.class);
+        private static final List<Class<?>> PRIMITIVE_TYPES = Arrays.<Class<?>>asList(null,
+                                                                                      int.class,
+                                                                                      long.class,
+                                                                                      short.class,
+                                                                                      byte.class,
+                                                                                      float.class,
+                                                                                      double.class,
+                                                                                      boolean.class);
+
+        private final int kind;
+
+        StringParsePlan(TypeConverter converter, Class<?> destType, int kind) {
+            super(converter, destType);
+            this.kind = kind;
+        }
+
+        static int kindOf(Class<?> destType) {
+            final int index = TYPES.indexOf(destType);
+            return (index >= 0) ? index : PRIMITIVE_TYPES.indexOf(destType);
+        }
+
+        @Override
+        public Object convert(Object o) {
+            if (!(o instanceof CharSequence)) {
+                return converter.convert(o, destType);
+            }
+            final String s = o.toString();
+            switch (kind) {
+                case 0:
+                    return s;
+                case 1:
+                    return Integer.valueOf(s);
+                case 2:
+                    return Long.valueOf(s);
+                case 3:
+                    return Short.valueOf(s);
+                case 4:
+                    return Byte.valueOf(s);
+                case 5:
+                    return Float.valueOf(s);
+                case 6:
+                    return Double.valueOf(s);
+                case 7:
+                    return Boolean.valueOf(s);
+                case 8:
+                    return new BigInteger(s);
+                case 9:
+                    return new BigDecimal(s);
+                default:
+                    throw new IllegalStateException("kind=" + kind);
+            }
+        }
+
+    }
+
+    /**
+     * A plan which parses strings into a date/time with the format detected from the first sample.
+     * If a value does not match the format, it falls back to the detection for each value.
+     */
+    private static final class DatePlan extends Plan {
+
+        private volatile String pattern;
+
+        DatePlan(TypeConverter converter, Class<?> destType) {
+            super(converter, destType);
+        }
+
+        @Override
+        public Object convert(Object o) {
+            if (o == null || destType.isInstance(o) || !(o instanceof CharSequence)) {
+                return converter.convert(o, destType);
+            }
+            final String s = o.toString();
+            String p = pattern;
+            if (p == null) {
+                p = detect(s);
+                if (p.isEmpty()) {
+                    return converter.convertFromString(s, destType);
+                }
+                pattern = p;
+            }
+            ParsePosition pos = new ParsePosition(0);
+            final Date d = strictFormats.getFormat(p).parse(s, pos);
+            if (d == null || pos.getIndex() != s.length()) {
+                return converter.convertFromString(s, destType); // mismatch
+            }
+            if (destType == java.sql.Date.class) {
+                return new java.sql.Date(d.getTime());
+            }
+            if (destType == Time.class) {
+                return new Time(d.getTime());
+            }
+            return new Timestamp(d.getTime());
+        }
+
+        private String detect(String s) {
+            if (destType == java.sql.Date.class) {
+                return converter.detectDateFormat(s);
+            }
+            if (destType == Time.class) {
+                return converter.detectTimeFormat(s);
+            }
+            return converter.detectDatetimeFormat(s);
+        }
+
+    }
+
 }
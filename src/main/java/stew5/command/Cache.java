@@ -0,0 +1,52 @@
+package stew5.command;
+
+import java.sql.*;
+import net.argius.stew.*;
+import stew5.*;
+
+/**
+ * The Cache command used to manage the result cache.
+ *
+ * <code>cache status</code> shows the summary,
+ * <code>cache clear</code> removes all of the cached results,
+ * and <code>cache bypass SELECT ...</code> executes the query without the cached result
+ * (and replaces the cached result).
+ * @see ResultCache
+ */
+public final class Cache extends Command {
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public boolean requiresConnection() {
+        return false;
+    }
+
+    @Override
+    public void execute(Connection conn, Parameter p) throws CommandException {
+        final String subcommand = p.at(1);
+        ResultCache cache = ResultCache.getInstance();
+        if (subcommand.equalsIgnoreCase("status")) {
+            outputMessage("Cache.msg.status",
+                          ResultCache.isEnabled(env.getCurrentConnector()) ? "ON" : "OFF",
+                          cache.size(),
+                          cache.getTotalSize());
+        } else if (subcommand.equalsIgnoreCase("clear")) {
+            outputMessage("Cache.msg.cleared", cache.clear());
+        } else if (subcommand.equalsIgnoreCase("bypass") && isSelect(p.after(2))) {
+            final Connector connector = env.getCurrentConnector();
+            if (conn == null || connector == null) {
+                throw new CommandException(getMessage("e.not-connect"));
+            }
+            final String sql = p.after(2);
+            cache.invalidate(connector, sql);
+            Commands.invoke(env, sql);
+        } else {
+            throw new UsageException(getUsage());
+        }
+    }
+
+}
@@ -0,0 +1,255 @@
+package stew5.command;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import net.argius.stew.*;
+import stew5.*;
+import stew5.text.*;
+
+/**
+ * The Connectors command used to check the connectors in parallel.
+ *
+ * <code>connectors check [pattern] [KEEP]</code> tests the connections and reports
+ * the driver load time, the connect latency and the server round-trip time.
+ * With KEEP, the connections are kept in the ConnectionPool for later connect.
+ */
+public final class Connectors extends Command {
+
+    private static final Logger log = Logger.getLogger(Connectors.class);
+
+    static final int DEFAULT_THREADS = 8;
+    static final int DEFAULT_TIMEOUT = 15;
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public boolean requiresConnection() {
+        return false;
+    }
+
+    @Override
+    public void execute(Connection conn, Parameter p) throws CommandException {
+        final String subcommand = p.at(1);
+        if (subcommand.equalsIgnoreCase("check")) {
+            final boolean keeps;
+            final String pattern;
+            if (p.at(2).equalsIgnoreCase("KEEP")) {
+                pattern = "*";
+                keeps = true;
+            } else {
+                pattern = p.has(2) ? p.at(2) : "*";
+                keeps = p.at(3).equalsIgnoreCase("KEEP");
+            }
+            check(pattern, keeps);
+        } else if (subcommand.equalsIgnoreCase("release")) {
+            outputMessage("Connectors.released", ConnectionPool.getInstance().closeAll());
+        } else {
+            throw new UsageException(getUsage());
+        }
+    }
+
+    private void check(String pattern, boolean keeps) {
+        env.updateConnectorMap();
+        ConnectorMap connectorMap = env.getConnectorMap();
+        List<String> ids = Fanout.getTargetIds(connectorMap, pattern);
+        if (ids.isEmpty()) {
+            outputMessage("e.no-connector", pattern);
+            return;
+        }
+        final int threads = Math.max(1, App.props.getAsInt("command.Connectors.threads", DEFAULT_THREADS));
+        final int timeoutSeconds = App.props.getAsInt("timeout.connection.tryout", DEFAULT_TIMEOUT);
+        List<Task> tasks = new ArrayList<>(ids.size());
+        for (final String id : ids) {
+            tasks.add(new Task(connectorMap.getConnector(id), keeps, timeoutSeconds));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, ids.size()),
+                                                                DaemonThreadFactory.getInstance());
+        final long beginningTime = System.currentTimeMillis();
+        List<Future<Result>> futures;
+        try {
+            futures = executor.invokeAll(tasks, timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            throw new CommandException(ex);
+        } finally {
+            executor.shutdownNow();
+        }
+        final long totalTime = System.currentTimeMillis() - beginningTime;
+        int idWidth = getMessage("Connectors.label.id").length();
+        for (final String id : ids) {
+            idWidth = Math.max(idWidth, id.length());
+        }
+        final String format = "%-" + idWidth + "s %-8s %10s %10s %10s  ";
+        output(PrintFormat.format(format,
+                                  getMessage("Connectors.label.id"),
+                                  getMessage("Connectors.label.result"),
+                                  getMessage("Connectors.label.driver"),
+                                  getMessage("Connectors.label.connect"),
+                                  getMessage("Connectors.label.roundtrip"))
+               + getMessage("Connectors.label.info"));
+        final String ok = getMessage("Connectors.status.ok");
+        final String failed = getMessage("Connectors.status.failed");
+        final String timedOut = getMessage("Connectors.status.timeout");
+        int okCount = 0;
+        int failedCount = 0;
+        int timedOutCount = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            final String id = ids.get(i);
+            final Future<Result> future = futures.get(i);
+            Result result = null;
+            if (future.isCancelled()) {
+                tasks.get(i).abandon();
+            } else {
+                try {
+                    result = future.get();
+                } catch (InterruptedException ex) {
+                    throw new CommandException(ex);
+                } catch (ExecutionException ex) {
+                    log.warn(ex);
+                }
+            }
+            if (result == null) {
+                ++timedOutCount;
+                output(PrintFormat.format(format, id, timedOut, "-", "-", "-"));
+                continue;
+            }
+            if (result.succeeded) {
+                ++okCount;
+            } else {
+                ++failedCount;
+            }
+            output(PrintFormat.format(format,
+                                      id,
+                                      result.succeeded ? ok : failed,
+                                      toMillisString(result.driverTime),
+                                      toMillisString(result.connectTime),
+                                      toMillisString(result.roundTripTime))
+                   + result.info);
+        }
+        outputMessage("Connectors.summary", ids.size(), okCount, failedCount, timedOutCount, totalTime / 1000f);
+        if (keeps) {
+            outputMessage("Connectors.kept", ConnectionPool.getInstance().getIds().size());
+        }
+    }
+
+    private static String toMillisString(long nanos) {
+        return (nanos < 0) ? "-" : String.format("%.1fms", nanos / 1000000f);
+    }
+
+    private static final class Result {
+
+        boolean succeeded;
+        long driverTime = -1L;
+        long connectTime = -1L;
+        long roundTripTime = -1L;
+        String info = "";
+
+        Result() {
+            // empty
+        }
+
+    }
+
+    private static final class Task implements Callable<Result> {
+
+        private final Connector connector;
+        private final boolean keeps;
+        private final int timeoutSeconds;
+
+        private boolean abandoned;
+        private boolean kept;
+
+        Task(Connector connector, boolean keeps, int timeoutSeconds) {
+            this.connector = connector;
+            this.keeps = keeps;
+            this.timeoutSeconds = timeoutSeconds;
+        }
+
+        /**
+         * Abandons this task which has been reported as timed out,
+         * so that its connection is not left in the ConnectionPool.
+         */
+        void abandon() {
+            final boolean wasKept;
+            synchronized (this) {
+                abandoned = true;
+                wasKept = kept;
+            }
+            if (wasKept) {
+                // kept just before the cancellation
+                Connection conn = ConnectionPool.getInstance().poll(connector);
+                if (conn != null) {
+                    close(conn);
+                }
+            }
+        }
+
+        private synchronized boolean keep(Connection conn) {
+            if (abandoned || Thread.currentThread().isInterrupted()) {
+                log.debug("abandoned: %s", connector.getId());
+                return false;
+            }
+            ConnectionPool.getInstance().offer(connector, conn);
+            kept = true;
+            return true;
+        }
+
+        @Override
+        public Result call() {
+            Result result = new Result();
+            Connection conn = null;
+            try {
+                long t = System.nanoTime();
+                connector.loadDriver();
+                result.driverTime = System.nanoTime() - t;
+                t = System.nanoTime();
+                conn = connector.getConnection();
+                result.connectTime = System.nanoTime() - t;
+                t = System.nanoTime();
+                DatabaseMetaData dbmeta = roundTrip(conn);
+                result.roundTripTime = System.nanoTime() - t;
+                result.info = dbmeta.getDatabaseProductName() + " " + dbmeta.getDatabaseProductVersion();
+                result.succeeded = true;
+                if (keeps && keep(conn)) {
+                    conn = null;
+                }
+            } catch (Exception ex) {
+                log.warn(ex, connector.getId());
+                result.info = String.valueOf(ex.getMessage());
+            } finally {
+                if (conn != null) {
+                    close(conn);
+                }
+            }
+            return result;
+        }
+
+        private static void close(Connection conn) {
+            try {
+                conn.close();
+            } catch (SQLException ex) {
+                log.warn(ex);
+            }
+        }
+
+        private DatabaseMetaData roundTrip(Connection conn) throws SQLException {
+            try {
+                if (!conn.isValid(timeoutSeconds)) {
+                    throw new SQLException("invalid connection");
+                }
+                return conn.getMetaData();
+            } catch (AbstractMethodError | SQLFeatureNotSupportedException ex) {
+                log.debug("isValid not supported: %s", ex);
+                // getDatabaseProductVersion requires a round-trip on most drivers
+                DatabaseMetaData dbmeta = conn.getMetaData();
+                dbmeta.getDatabaseProductVersion();
+                return dbmeta;
+            }
+        }
+
+    }
+
+}
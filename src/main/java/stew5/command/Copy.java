@@ -0,0 +1,316 @@
+package stew5.command;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import net.argius.stew.*;
+import stew5.*;
+
+/**
+ * The Copy command used to copy rows from a connector to a table of another connector.
+ *
+ * The rows are read from the source ResultSet on the calling thread,
+ * and inserted by the writer thread in batches through a bounded queue.
+ * With <code>SPLIT key n</code>, the numeric key range is divided into n ranges
+ * which are copied in parallel, each with its own pair of connections.
+ */
+public final class Copy extends Command {
+
+    private static final Logger log = Logger.getLogger(Copy.class);
+
+    static final int DEFAULT_BATCH_LIMIT = 1000;
+    static final int DEFAULT_COMMIT_INTERVAL = 10000;
+    static final int DEFAULT_QUEUE_SIZE = 4;
+
+    private static final List<Object[]> EOF = Collections.emptyList();
+
+    @Override
+    public boolean isReadOnly() {
+        return true; // does not modify the current connection
+    }
+
+    @Override
+    public boolean requiresConnection() {
+        return false;
+    }
+
+    @Override
+    public void execute(Connection conn, Parameter p) throws CommandException {
+        final int offset;
+        final String splitKey;
+        final int splitCount;
+        if (p.at(1).equalsIgnoreCase("SPLIT")) {
+            offset = 4;
+            splitKey = p.at(2);
+            try {
+                splitCount = Integer.parseInt(p.at(3));
+            } catch (NumberFormatException ex) {
+                throw new UsageException(getUsage());
+            }
+            if (splitCount < 1) {
+                throw new UsageException(getUsage());
+            }
+        } else {
+            offset = 1;
+            splitKey = "";
+            splitCount = 1;
+        }
+        final int n = p.asArray().length;
+        if (n < offset + 4) {
+            throw new UsageException(getUsage());
+        }
+        final Connector src = getConnector(p.at(offset));
+        final String sql = p.between(offset + 1, n - 2);
+        final Connector dst = getConnector(p.at(n - 2));
+        final String table = p.at(n - 1);
+        if (dst.isReadOnly()) {
+            throw new CommandException(getMessage("e.readonly"));
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("src=%s, dst=%s, table=%s", src.getId(), dst.getId(), table);
+            log.debug("SQL=[%s]", sql);
+            log.debug("split key=%s, count=%d", splitKey, splitCount);
+        }
+        final long beginningTime = System.currentTimeMillis();
+        final long count;
+        try {
+            if (splitCount > 1) {
+                count = copyInParallel(src, sql, dst, table, splitKey, splitCount);
+            } else {
+                count = copy(src, sql, new Object[0], dst, table);
+            }
+        } catch (SQLException ex) {
+            SQLException next = ex.getNextException();
+            if (next != null && next != ex) {
+                log.error(next, "next exception: ");
+            }
+            throw new CommandException(ex);
+        }
+        final float seconds = (System.currentTimeMillis() - beginningTime) / 1000f;
+        outputMessage("Copy.msg.copied", count, seconds, (seconds > 0f) ? count / seconds : count);
+    }
+
+    private Connector getConnector(String id) {
+        Connector connector = env.getConnectorMap().getConnector(id);
+        if (connector == null) {
+            throw new CommandException(getMessage("e.no-connector", id));
+        }
+        return connector;
+    }
+
+    private long copyInParallel(final Connector src,
+                                final String sql,
+                                final Connector dst,
+                                final String table,
+                                String key,
+                                int splitCount) throws SQLException {
+        final String rangeSql = String.format("SELECT * FROM (%s) t WHERE %s >= ? AND %s < ?", sql, key, key);
+        final String lastRangeSql = String.format("SELECT * FROM (%s) t WHERE %s >= ? AND %s <= ?", sql, key, key);
+        final long min;
+        final long max;
+        try (Connection conn = src.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(String.format("SELECT MIN(%s), MAX(%s) FROM (%s) t", key, key, sql))) {
+            rs.next();
+            min = rs.getLong(1);
+            if (rs.wasNull()) {
+                return 0L; // no rows
+            }
+            max = rs.getLong(2);
+        }
+        final long width = Math.max(1L, (max - min) / splitCount + 1);
+        List<Callable<Long>> tasks = new ArrayList<>(splitCount);
+        for (long lower = min; lower <= max; lower += width) {
+            final long upper = lower + width;
+            final boolean isLast = upper > max;
+            final Object[] args = {lower, isLast ? max : upper};
+            log.debug("range: %s", Arrays.asList(args));
+            tasks.add(new Callable<Long>() {
+                @Override
+                public Long call() throws SQLException {
+                    return copy(src, isLast ? lastRangeSql : rangeSql, args, dst, table);
+                }
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size(), DaemonThreadFactory.getInstance());
+        try {
+            long count = 0L;
+            for (Future<Long> future : executor.invokeAll(tasks)) {
+                count += future.get();
+            }
+            return count;
+        } catch (InterruptedException ex) {
+            throw new CommandException(ex);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException)cause;
+            }
+            throw new CommandException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Copies the rows with a new pair of connections.
+     * @return the number of inserted rows
+     */
+    long copy(Connector src, String sql, Object[] args, Connector dst, String table) throws SQLException {
+        final int batchLimit = Math.max(1, App.props.getAsInt("command.Copy.batch.limit", DEFAULT_BATCH_LIMIT));
+        final int queueSize = Math.max(1, App.props.getAsInt("command.Copy.queue.size", DEFAULT_QUEUE_SIZE));
+        try (Connection srcConn = src.getConnection(); Connection dstConn = dst.getConnection()) {
+            srcConn.setReadOnly(true);
+            try (PreparedStatement stmt = srcConn.prepareStatement(sql)) {
+                setTimeout(stmt);
+                stmt.setFetchSize(batchLimit);
+                for (int i = 0; i < args.length; i++) {
+                    stmt.setObject(i + 1, args[i]);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    final int columnCount = rs.getMetaData().getColumnCount();
+                    final String insertSql = createInsertSql(table, rs.getMetaData());
+                    log.debug("insert SQL=[%s]", insertSql);
+                    BlockingQueue<List<Object[]>> queue = new ArrayBlockingQueue<>(queueSize);
+                    ExecutorService executor = Executors.newSingleThreadExecutor(DaemonThreadFactory.getInstance());
+                    try {
+                        Future<Long> writer = executor.submit(new Writer(dstConn, insertSql, queue));
+                        read(rs, columnCount, batchLimit, queue, writer);
+                        return writer.get();
+                    } catch (InterruptedException ex) {
+                        throw new CommandException(ex);
+                    } catch (ExecutionException ex) {
+                        final Throwable cause = ex.getCause();
+                        if (cause instanceof SQLException) {
+                            throw (SQLException)cause;
+                        }
+                        throw new CommandException(cause);
+                    } finally {
+                        executor.shutdownNow();
+                    }
+                }
+            }
+        }
+    }
+
+    private static String createInsertSql(String table, ResultSetMetaData meta) throws SQLException {
+        final int columnCount = meta.getColumnCount();
+        StringBuilder columns = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+                columns.append(',');
+                values.append(',');
+            }
+            columns.append(meta.getColumnLabel(i));
+            values.append('?');
+        }
+        return String.format("INSERT INTO %s (%s) VALUES (%s)", table, columns, values);
+    }
+
+    private static void read(ResultSet rs,
+                             int columnCount,
+                             int batchLimit,
+                             BlockingQueue<List<Object[]>> queue,
+                             Future<Long> writer) throws SQLException, InterruptedException {
+        List<Object[]> batch = new ArrayList<>(batchLimit);
+        while (rs.next()) {
+            Object[] row = new Object[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                row[i] = detach(rs.getObject(i + 1));
+            }
+            batch.add(row);
+            if (batch.size() >= batchLimit) {
+                if (!put(queue, batch, writer)) {
+                    return;
+                }
+                batch = new ArrayList<>(batchLimit);
+            }
+        }
+        if (!batch.isEmpty() && !put(queue, batch, writer)) {
+            return;
+        }
+        put(queue, EOF, writer);
+    }
+
+    /**
+     * Puts a batch into the queue.
+     * @return false if the writer has already stopped
+     */
+    private static boolean put(BlockingQueue<List<Object[]>> queue, List<Object[]> batch, Future<Long> writer)
+            throws InterruptedException {
+        while (!queue.offer(batch, 100L, TimeUnit.MILLISECONDS)) {
+            if (writer.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the LOB into memory, because it is only valid on the source connection.
+     */
+    private static Object detach(Object o) throws SQLException {
+        if (o instanceof Blob) {
+            final Blob blob = (Blob)o;
+            return blob.getBytes(1L, (int)blob.length());
+        } else if (o instanceof Clob) {
+            final Clob clob = (Clob)o;
+            return clob.getSubString(1L, (int)clob.length());
+        }
+        return o;
+    }
+
+    private static final class Writer implements Callable<Long> {
+
+        private final Connection conn;
+        private final String sql;
+        private final BlockingQueue<List<Object[]>> queue;
+
+        Writer(Connection conn, String sql, BlockingQueue<List<Object[]>> queue) {
+            this.conn = conn;
+            this.sql = sql;
+            this.queue = queue;
+        }
+
+        @Override
+        public Long call() throws SQLException, InterruptedException {
+            final int commitInterval = App.props.getAsInt("command.Copy.commit.interval", DEFAULT_COMMIT_INTERVAL);
+            conn.setAutoCommit(false);
+            long count = 0L;
+            long uncommitted = 0L;
+            boolean succeeded = false;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                while (true) {
+                    final List<Object[]> batch = queue.take();
+                    if (batch == EOF) {
+                        break;
+                    }
+                    for (final Object[] row : batch) {
+                        for (int i = 0; i < row.length; i++) {
+                            stmt.setObject(i + 1, row[i]);
+                        }
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    count += batch.size();
+                    uncommitted += batch.size();
+                    if (commitInterval > 0 && uncommitted >= commitInterval) {
+                        conn.commit();
+                        uncommitted = 0L;
+                        log.debug("committed: %d", count);
+                    }
+                }
+                conn.commit();
+                succeeded = true;
+            } finally {
+                if (!succeeded) {
+                    conn.rollback();
+                }
+            }
+            return count;
+        }
+
+    }
+
+}
@@ -2,16 +2,27 @@ package stew5.command;
 
 import java.io.*;
 import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
 import net.argius.stew.*;
 import stew5.*;
+import stew5.io.*;
 
 /**
  * The Download command used to save selected data to files.
+ *
+ * The result set is read by the command thread, and the files are written by a pool of writer threads.
+ * The data is written as it is, unless <code>command.Download.compress</code> is true.
  */
 public final class Download extends Command {
 
     private static final Logger log = Logger.getLogger(Download.class);
 
+    static final int DEFAULT_THREADS = 4;
+    static final int DEFAULT_SPILL_THRESHOLD = 0x800000; // 8MB
+
+    private static final int BUFFER_SIZE = 0x10000;
+
     @Override
     public void execute(Connection conn, Parameter p) throws CommandException {
         if (!p.has(2)) {
@@ -20,8 +31,8 @@ public final class Download extends Command {
         final String root = p.at(1);
         final String sql = p.after(2);
         if (log.isDebugEnabled()) {
-            log.debug("root: " + root);
-            log.debug("SQL: " + sql);
+            log.debug("root: %s", root);
+            log.debug("SQL: %s", sql);
         }
         try (Statement stmt = prepareStatement(conn, p.asString()); ResultSet rs = executeQuery(stmt, sql)) {
             download(rs, root);
@@ -42,51 +53,138 @@ public final class Download extends Command {
         } catch (IllegalArgumentException ex) {
             throw new CommandException(ex);
         }
-        byte[] buffer = new byte[(isBinary) ? 0x10000 : 0];
+        final int threads = Math.max(1, App.props.getAsInt("command.Download.threads", DEFAULT_THREADS));
+        final int spillThreshold = App.props.getAsInt("command.Download.spill.threshold", DEFAULT_SPILL_THRESHOLD);
+        log.debug("threads=%d, spillThreshold=%d", threads, spillThreshold);
+        final Semaphore permits = new Semaphore(threads * 4);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, DaemonThreadFactory.getInstance());
+        final Deque<Future<File>> pendings = new ArrayDeque<>();
+        final Set<File> reservedFiles = new HashSet<>();
+        final Set<File> knownDirs = new HashSet<>();
+        final File path = resolvePath(root);
+        final long beginningTime = System.currentTimeMillis();
+        long totalSize = 0L;
         int count = 0;
-        while (rs.next()) {
-            ++count;
-            StringBuilder fileName = new StringBuilder();
-            for (int i = 2; i <= columnCount; i++) {
-                fileName.append(rs.getString(i));
+        try {
+            while (rs.next()) {
+                ++count;
+                StringBuilder fileName = new StringBuilder();
+                for (int i = 2; i <= columnCount; i++) {
+                    fileName.append(rs.getString(i));
+                }
+                final File file = (columnCount == 1) ? path : new File(path, fileName.toString());
+                if (!reservedFiles.add(file) || file.exists()) {
+                    throw new IOException(getMessage("e.file-already-exists", file.getAbsolutePath()));
+                }
+                mkdirs(file, knownDirs);
+                final WriteTask task;
+                if (isBinary) {
+                    try (InputStream is = rs.getBinaryStream(targetColumn)) {
+                        task = (is == null) ? new WriteTask(file) : readChunks(is, file, spillThreshold);
+                    }
+                } else {
+                    task = new WriteTask(file, String.valueOf(rs.getObject(targetColumn)));
+                }
+                permits.acquire();
+                pendings.add(executor.submit(new Callable<File>() {
+                    @Override
+                    public File call() throws IOException {
+                        try {
+                            return task.call();
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                }));
+                while (!pendings.isEmpty() && pendings.peek().isDone()) {
+                    totalSize += outputDownloaded(pendings.poll());
+                }
             }
-            final File path = resolvePath(root);
-            final File file = (columnCount == 1) ? path : new File(path, fileName.toString());
-            if (file.exists()) {
-                throw new IOException(getMessage("e.file-already-exists", file.getAbsolutePath()));
+            while (!pendings.isEmpty()) {
+                totalSize += outputDownloaded(pendings.poll());
             }
-            if (isBinary) {
-                try (InputStream is = rs.getBinaryStream(targetColumn)) {
-                    mkdirs(file);
-                    if (is == null) {
-                        if (!file.createNewFile()) {
-                            throw new IOException(getMessage("e.failed-create-new-file", file.getAbsolutePath()));
-                        }
-                    } else {
-                        try (OutputStream os = new FileOutputStream(file)) {
-                            while (true) {
-                                int readLength = is.read(buffer);
-                                if (readLength <= 0) {
-                                    break;
-                                }
-                                os.write(buffer, 0, readLength);
-                            }
+        } catch (InterruptedException ex) {
+            throw new CommandException(ex);
+        } finally {
+            executor.shutdownNow();
+        }
+        final long elapsedTime = Math.max(1L, System.currentTimeMillis() - beginningTime);
+        outputMessage("i.download-throughput",
+                      count,
+                      getSizeString(totalSize),
+                      elapsedTime / 1000f,
+                      getSizeString(totalSize * 1000L / elapsedTime),
+                      count * 1000f / elapsedTime);
+        outputMessage("i.selected", count);
+    }
+
+    private long outputDownloaded(Future<File> future) throws IOException, InterruptedException {
+        final File file;
+        try {
+            file = future.get();
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            throw new CommandException(cause);
+        }
+        final long size = file.length();
+        outputMessage("i.downloaded", getSizeString(size), file);
+        return size;
+    }
+
+    /**
+     * Reads the data into memory to hand it to a writer thread.
+     * If the size exceeds the threshold, the data is written directly by this thread.
+     */
+    private static WriteTask readChunks(InputStream is, File file, int spillThreshold) throws IOException {
+        List<byte[]> chunks = new ArrayList<>();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0L;
+        while (true) {
+            final int readLength = is.read(buffer);
+            if (readLength <= 0) {
+                break;
+            }
+            chunks.add(Arrays.copyOf(buffer, readLength));
+            size += readLength;
+            if (size > spillThreshold) {
+                log.debug("spill: %s", file);
+                try (OutputStream os = openFile(file)) {
+                    for (final byte[] chunk : chunks) {
+                        os.write(chunk);
+                    }
+                    while (true) {
+                        final int n = is.read(buffer);
+                        if (n <= 0) {
+                            break;
                         }
+                        os.write(buffer, 0, n);
                     }
                 }
-            } else {
-                mkdirs(file);
-                try (PrintWriter out = new PrintWriter(file)) {
-                    out.print(rs.getObject(targetColumn));
-                }
+                return new WriteTask(file, (List<byte[]>)null);
             }
-            outputMessage("i.downloaded", getSizeString(file.length()), file);
         }
-        outputMessage("i.selected", count);
+        return new WriteTask(file, chunks);
     }
 
-    private void mkdirs(File file) throws IOException {
+    /**
+     * Opens the file to write.
+     * If <code>command.Download.compress</code> is true and the file name has a compression suffix
+     * such as ".gz", the data is compressed.
+     * It is disabled by default, because the data may be already compressed.
+     */
+    static OutputStream openFile(File file) throws IOException {
+        final boolean compresses = App.props.getAsBoolean("command.Download.compress");
+        return (compresses ? Compression.of(file) : Compression.NONE).wrap(new FileOutputStream(file));
+    }
+
+    private void mkdirs(File file, Set<File> knownDirs) throws IOException {
         final File dir = file.getParentFile();
+        if (knownDirs.contains(dir)) {
+            return;
+        }
         if (!dir.isDirectory()) {
             if (log.isDebugEnabled()) {
                 log.debug(String.format("mkdir [%s]", dir.getAbsolutePath()));
@@ -97,6 +195,74 @@ public final class Download extends Command {
                 throw new IOException(getMessage("e.failed-mkdir-filedir", file));
             }
         }
+        knownDirs.add(dir);
+    }
+
+    /**
+     * The task to write a file.
+     */
+    private static final class WriteTask implements Callable<File> {
+
+        private final File file;
+        private final List<byte[]> chunks;
+        private final String text;
+        private final boolean createsEmptyFile;
+
+        /**
+         * A constructor to create a new empty file.
+         * @param file
+         */
+        WriteTask(File file) {
+            this.file = file;
+            this.chunks = null;
+            this.text = null;
+            this.createsEmptyFile = true;
+        }
+
+        /**
+         * A constructor to write binary data.
+         * @param file
+         * @param chunks the data, or null if the file was already written
+         */
+        WriteTask(File file, List<byte[]> chunks) {
+            this.file = file;
+            this.chunks = chunks;
+            this.text = null;
+            this.createsEmptyFile = false;
+        }
+
+        /**
+         * A constructor to write text data.
+         * @param file
+         * @param text
+         */
+        WriteTask(File file, String text) {
+            this.file = file;
+            this.chunks = null;
+            this.text = text;
+            this.createsEmptyFile = false;
+        }
+
+        @Override
+        public File call() throws IOException {
+            if (createsEmptyFile) {
+                if (!file.createNewFile()) {
+                    throw new IOException(getMessage("e.failed-create-new-file", file.getAbsolutePath()));
+                }
+            } else if (text != null) {
+                try (PrintWriter out = new PrintWriter(new OutputStreamWriter(openFile(file)))) {
+                    out.print(text);
+                }
+            } else if (chunks != null) {
+                try (OutputStream os = openFile(file)) {
+                    for (final byte[] chunk : chunks) {
+                        os.write(chunk);
+                    }
+                }
+            }
+            return file;
+        }
+
     }
 
     static String getSizeString(long size) {
@@ -17,6 +17,8 @@ import stew5.io.*;
 public final class Export extends Command {
 
     private static final Logger log = Logger.getLogger(Export.class);
+    private static final Metrics.Counter bytesExported = Metrics.getInstance()
+            .counter("stew_export_bytes_total", "Size of the files exported.");
 
     @Override
     public void execute(Connection conn, Parameter p) throws CommandException {
@@ -32,9 +34,13 @@ public final class Export extends Command {
         final String cmd = p.after(argsIndex);
         if (log.isDebugEnabled()) {
             log.debug(String.format("file: [%s]", path));
-            log.debug("withHeader: " + withHeader);
+            log.debug("withHeader: %s", withHeader);
             log.debug(String.format("command: [%s]", cmd));
         }
+        final FlightRecorder.Event event = FlightRecorder.begin(FlightRecorder.EventKind.EXPORT,
+                                                                env.getCurrentConnector(),
+                                                                "export");
+        long rowCount = -1L;
         try {
             final File file = resolvePath(path);
             if (file.exists()) {
@@ -77,6 +83,8 @@ public final class Export extends Command {
             } else {
                 throw new UsageException(getUsage());
             }
+            bytesExported.add(file.length());
+            rowCount = ref.getRecordCount();
             outputMessage("i.selected", ref.getRecordCount());
             outputMessage("i.exported");
         } catch (IOException ex) {
@@ -87,6 +95,8 @@ public final class Export extends Command {
                 log.error(next, "next exception: ");
             }
             throw new CommandException(ex);
+        } finally {
+            event.commit(rowCount);
         }
     }
 
@@ -102,18 +112,24 @@ public final class Export extends Command {
             boolean needOrderChange = order.size() > 0;
             int columnCount;
             List<String> header = new ArrayList<>();
+            ResultSetMetaData m = rs.getMetaData();
             if (needOrderChange) {
                 columnCount = order.size();
                 for (int i = 0; i < columnCount; i++) {
                     header.add(order.getName(i));
                 }
             } else {
-                ResultSetMetaData m = rs.getMetaData();
                 columnCount = m.getColumnCount();
                 for (int i = 0; i < columnCount; i++) {
                     header.add(m.getColumnName(i + 1));
                 }
             }
+            ColumnDefinition[] columns = new ColumnDefinition[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                int index = (needOrderChange) ? order.getOrder(i) : i + 1;
+                columns[i] = new ColumnDefinition(header.get(i), m.getColumnType(index));
+            }
+            exporter.declareColumns(columns);
             if (withHeader) {
                 exporter.addHeader(header.toArray());
             }
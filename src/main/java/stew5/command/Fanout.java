@@ -0,0 +1,218 @@
+package stew5.command;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.*;
+import net.argius.stew.*;
+import stew5.*;
+import stew5.text.*;
+import stew5.ui.*;
+import stew5.ui.console.*;
+
+/**
+ * The Fanout command used to execute a command on multiple connectors in parallel.
+ *
+ * Each connector runs in its own copy of the environment,
+ * and its outputs are buffered and printed in the order of the connector list.
+ */
+public final class Fanout extends Command {
+
+    private static final Logger log = Logger.getLogger(Fanout.class);
+
+    static final int DEFAULT_THREADS = 4;
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public boolean requiresConnection() {
+        return false;
+    }
+
+    @Override
+    public void execute(Connection conn, Parameter p) throws CommandException {
+        if (!p.has(2)) {
+            throw new UsageException(getUsage());
+        }
+        final String targets = p.at(1);
+        final String commandString = p.after(2);
+        List<String> ids = getTargetIds(env.getConnectorMap(), targets);
+        if (ids.isEmpty()) {
+            outputMessage("Fanout.msg.noTarget", targets);
+            return;
+        }
+        final int threads = Math.max(1, App.props.getAsInt("command.Fanout.threads", DEFAULT_THREADS));
+        log.debug("targets=%s, threads=%d", ids, threads);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, ids.size()),
+                                                                DaemonThreadFactory.getInstance());
+        final long beginningTime = System.currentTimeMillis();
+        try {
+            List<Future<Result>> futures = new ArrayList<>(ids.size());
+            for (final String id : ids) {
+                futures.add(executor.submit(new Task(env, id, commandString)));
+            }
+            List<Result> results = new ArrayList<>(ids.size());
+            for (Future<Result> future : futures) {
+                final Result result;
+                try {
+                    result = future.get();
+                } catch (InterruptedException ex) {
+                    throw new CommandException(ex);
+                } catch (ExecutionException ex) {
+                    throw new CommandException(ex.getCause());
+                }
+                outputMessage("Fanout.header", result.id);
+                for (String line : result.lines) {
+                    output(line);
+                }
+                results.add(result);
+            }
+            outputSummary(results, System.currentTimeMillis() - beginningTime);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void outputSummary(List<Result> results, long totalTime) {
+        int idWidth = 1;
+        for (Result result : results) {
+            idWidth = Math.max(idWidth, result.id.length());
+        }
+        final String format = "%-" + idWidth + "s";
+        final String ok = getMessage("Fanout.status.ok");
+        final String failed = getMessage("Fanout.status.failed");
+        int failedCount = 0;
+        output("");
+        for (Result result : results) {
+            if (!result.succeeded) {
+                ++failedCount;
+            }
+            final String status = PrintFormat.format(format, result.id) + " : " + (result.succeeded ? ok : failed);
+            outputMessage("Fanout.result", status, result.elapsedTime / 1000f);
+        }
+        outputMessage("Fanout.summary",
+                      results.size(),
+                      results.size() - failedCount,
+                      failedCount,
+                      totalTime / 1000f);
+        if (failedCount > 0) {
+            env.setExitStatus(1);
+        }
+    }
+
+    /**
+     * Returns the IDs which match the targets.
+     * @param connectorMap
+     * @param targets comma separated IDs or patterns (wildcard: <code>*</code> and <code>?</code>)
+     * @return
+     */
+    static List<String> getTargetIds(ConnectorMap connectorMap, String targets) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (String target : targets.split(",")) {
+            final String s = target.trim();
+            if (s.isEmpty()) {
+                continue;
+            }
+            if (s.indexOf('*') < 0 && s.indexOf('?') < 0) {
+                if (connectorMap.containsKey(s)) {
+                    ids.add(s);
+                }
+                continue;
+            }
+            Pattern pattern = toPattern(s);
+            for (String id : connectorMap.keySet()) {
+                if (pattern.matcher(id).matches()) {
+                    ids.add(id);
+                }
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private static Pattern toPattern(String wildcard) {
+        StringBuilder buffer = new StringBuilder();
+        for (final char c : wildcard.toCharArray()) {
+            switch (c) {
+                case '*':
+                    buffer.append(".*");
+                    break;
+                case '?':
+                    buffer.append('.');
+                    break;
+                default:
+                    buffer.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(buffer.toString());
+    }
+
+    private static final class Result {
+
+        final String id;
+        final List<String> lines;
+        final boolean succeeded;
+        final long elapsedTime;
+
+        Result(String id, List<String> lines, boolean succeeded, long elapsedTime) {
+            this.id = id;
+            this.lines = lines;
+            this.succeeded = succeeded;
+            this.elapsedTime = elapsedTime;
+        }
+
+    }
+
+    private static final class Task implements Callable<Result> {
+
+        private final Environment parent;
+        private final String id;
+        private final String commandString;
+
+        Task(Environment parent, String id, String commandString) {
+            this.parent = parent;
+            this.id = id;
+            this.commandString = commandString;
+        }
+
+        @Override
+        public Result call() {
+            final long beginningTime = System.currentTimeMillis();
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            PrintStream out = newPrintStream(bos);
+            OutputProcessor op = new ConsoleOutputProcessor(out, out);
+            Environment env = new Environment(parent);
+            env.setOutputProcessor(op);
+            boolean succeeded = false;
+            try {
+                Commands.invoke(env, "connect " + id);
+                if (env.getCurrentConnection() != null) {
+                    Commands.invoke(env, commandString);
+                    succeeded = env.getExitStatus() == 0;
+                }
+            } catch (RuntimeException ex) {
+                log.error(ex, "fanout: %s", id);
+                op.output(getMessage("e.runtime", ex));
+            } finally {
+                env.release();
+            }
+            out.flush();
+            List<String> lines = Arrays.asList(new String(bos.toByteArray(), StandardCharsets.UTF_8).split("\\r?\\n"));
+            return new Result(id, lines, succeeded, System.currentTimeMillis() - beginningTime);
+        }
+
+        private static PrintStream newPrintStream(OutputStream os) {
+            try {
+                return new PrintStream(os, true, StandardCharsets.UTF_8.name());
+            } catch (UnsupportedEncodingException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+    }
+
+}
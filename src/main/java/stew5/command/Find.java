@@ -7,6 +7,10 @@ import stew5.*;
 
 /**
  * The Find command is used to search table names.
+ * If the metadata cache is available, the names are searched in the snapshot.
+ * <code>find COLUMN pattern</code> and <code>find ANY pattern</code> search the column names,
+ * or all of the names, types and remarks, with the search index of the metadata cache.
+ * To search the tables named COLUMN or ANY, the name must be quoted.
  * @see DatabaseMetaData#getTables(String, String, String, String[])
  */
 public final class Find extends Command {
@@ -32,6 +36,10 @@ public final class Find extends Command {
         }
         final String p1 = p.at(1);
         final String p2 = p.at(2);
+        final boolean isKeyword = !p.after(1).startsWith("\"");
+        if (isKeyword && (p1.equalsIgnoreCase("COLUMN") || p1.equalsIgnoreCase("ANY")) && p.has(2)) {
+            return getIndexedResult(conn, p1.equalsIgnoreCase("COLUMN"), p2, p.asString());
+        }
         final String p3 = p.at(3);
         final String p4 = p.at(4);
         final String p5 = p.at(5);
@@ -42,13 +50,16 @@ public final class Find extends Command {
         final String catalogNamePattern = editNamePattern(p4);
         final boolean isFull = p5.equalsIgnoreCase("FULL");
         if (log.isDebugEnabled()) {
-            log.debug("name   : " + tableNamePattern);
-            log.debug("types  : " + (tableTypes == null ? null : Arrays.asList(tableTypes)));
-            log.debug("schema : " + schemaNamePattern);
-            log.debug("catalog: " + catalogNamePattern);
-            log.debug("full?  : " + isFull);
+            log.debug("name   : %s", tableNamePattern);
+            log.debug("types  : %s", tableTypes == null ? null : Arrays.asList(tableTypes));
+            log.debug("schema : %s", schemaNamePattern);
+            log.debug("catalog: %s", catalogNamePattern);
+            log.debug("full?  : %s", isFull);
         }
-        ResultSet rs = dbmeta.getTables(catalogNamePattern, schemaNamePattern, tableNamePattern, tableTypes);
+        MetadataSnapshot snapshot = MetadataCache.getInstance().getSnapshot(env.getCurrentConnector(), conn);
+        ResultSet rs = (snapshot == null)
+                ? dbmeta.getTables(catalogNamePattern, schemaNamePattern, tableNamePattern, tableTypes)
+                : snapshot.getTables(catalogNamePattern, schemaNamePattern, tableNamePattern, tableTypes);
         try {
             ResultSetReference ref = new ResultSetReference(rs, p.asString());
             if (!isFull) {
@@ -74,6 +85,30 @@ public final class Find extends Command {
         }
     }
 
+    private ResultSetReference getIndexedResult(Connection conn,
+                                                boolean columnOnly,
+                                                String pattern,
+                                                String cmd) throws SQLException {
+        if (log.isDebugEnabled()) {
+            log.debug("search index: column-only=%s, pattern=%s", columnOnly, pattern);
+        }
+        final Connector connector = env.getCurrentConnector();
+        if (connector == null) {
+            throw new CommandException(getMessage("e.not-connect"));
+        }
+        MetadataIndex index = MetadataCache.getInstance().getIndex(connector, conn);
+        ResultSet rs = columnOnly ? index.findColumns(pattern) : index.findAny(pattern);
+        ResultSetReference ref = new ResultSetReference(rs, cmd);
+        ColumnOrder order = ref.getOrder();
+        order.addOrder(3, getColumnName("name"));
+        order.addOrder(4, getColumnName("column"));
+        order.addOrder(5, getColumnName("type"));
+        order.addOrder(2, getColumnName("schema"));
+        order.addOrder(1, getColumnName("catalog"));
+        order.addOrder(6, getColumnName("remarks"));
+        return ref;
+    }
+
     @Override
     public boolean isReadOnly() {
         return true;
@@ -98,7 +133,7 @@ public final class Find extends Command {
         }
         final String edited = convertPattern(pattern);
         if (log.isDebugEnabled()) {
-            log.debug("table-name-condition : " + edited);
+            log.debug("table-name-condition : %s", edited);
         }
         return edited;
     }
@@ -2,7 +2,6 @@ package stew5.command;
 
 import java.io.*;
 import java.sql.*;
-import java.util.*;
 import net.argius.stew.*;
 import stew5.*;
 import stew5.io.*;
@@ -29,9 +28,9 @@ public final class Import extends Load {
         final String table = p.at(2);
         final boolean hasHeader = p.at(3).equalsIgnoreCase("HEADER");
         if (log.isDebugEnabled()) {
-            log.debug("file: " + file.getAbsolutePath());
-            log.debug("table: " + table);
-            log.debug("hasHeader: " + hasHeader);
+            log.debug("file: %s", file.getAbsolutePath());
+            log.debug("table: %s", table);
+            log.debug("hasHeader: %s", hasHeader);
         }
         try {
             loadRecord(conn, file, table, hasHeader);
@@ -50,23 +49,22 @@ public final class Import extends Load {
     protected void insertRecords(PreparedStatement stmt, Importer importer) throws IOException, SQLException {
         final int batchLimit = App.props.getAsInt("command.Import.batch.limit", DEFAULT_BATCH_LIMIT);
         if (log.isDebugEnabled()) {
-            log.debug("batch limit = " + batchLimit);
+            log.debug("batch limit = %d", batchLimit);
         }
         int recordCount = 0;
         int insertedCount = 0;
         int errorCount = 0;
-        TypeConverter conv = new TypeConverter(true);
-        List<Class<?>> types = getTypes(stmt);
-        final boolean autoConversion = !types.isEmpty();
+        TypeConverter.Plan[] plans = new TypeConverter(true).compile(getTypes(stmt));
+        final boolean autoConversion = plans.length > 0;
         while (true) {
             Object[] row = importer.nextRow();
             final boolean eof = row.length == 0;
             if (!eof) {
                 ++recordCount;
                 if (autoConversion) {
-                    final int n = Math.min(types.size(), row.length);
+                    final int n = Math.min(plans.length, row.length);
                     for (int i = 0; i < n; i++) {
-                        row[i] = conv.convertWithoutException(row[i], types.get(i));
+                        row[i] = plans[i].convertWithoutException(row[i]);
                     }
                 }
                 try {
@@ -77,7 +75,7 @@ public final class Import extends Load {
                 } catch (SQLException ex) {
                     String message = "error occurred at " + recordCount;
                     if (log.isDebugEnabled()) {
-                        log.debug(message + " : " + ex);
+                        log.debug("%s : %s", message, ex);
                     }
                     if (log.isTraceEnabled()) {
                         log.trace(ex);
@@ -86,10 +84,18 @@ public final class Import extends Load {
                 }
             }
             if (recordCount % batchLimit == 0 || eof) {
-                int inserted = executeBatch(stmt);
+                final FlightRecorder.Event event = FlightRecorder.begin(FlightRecorder.EventKind.IMPORT,
+                                                                        env.getCurrentConnector(),
+                                                                        "import");
+                int inserted = -1;
+                try {
+                    inserted = executeBatch(stmt);
+                } finally {
+                    event.commit(inserted);
+                }
                 insertedCount += inserted;
                 if (log.isDebugEnabled()) {
-                    log.debug("record/inserted = " + recordCount + "/" + insertedCount);
+                    log.debug("record/inserted = %d/%d", recordCount, insertedCount);
                 }
                 if (eof) {
                     break;
@@ -97,7 +103,7 @@ public final class Import extends Load {
             }
         }
         if (errorCount > 0) {
-            log.warn("error count = " + errorCount);
+            log.warn("error count = %d", errorCount);
         }
         outputMessage("i.loaded", insertedCount, recordCount);
     }
@@ -131,13 +137,13 @@ public final class Import extends Load {
             }
         }
         if (failedCount > 0) {
-            log.warn("failedCount = " + failedCount);
+            log.warn("failedCount = %d", failedCount);
         }
         if (noInfoCount > 0) {
-            log.warn("noInfoCount = " + noInfoCount);
+            log.warn("noInfoCount = %d", noInfoCount);
         }
         if (resultCount != results.length) {
-            log.warn("array size = " + results.length + ", but result count = " + resultCount);
+            log.warn("array size = %d, but result count = %d", results.length, resultCount);
         }
         stmt.clearBatch();
         return resultCount;
@@ -21,6 +21,8 @@ import stew5.io.*;
 public class Load extends Command {
 
     private static final Logger log = Logger.getLogger(Load.class);
+    private static final Metrics.Counter bytesImported = Metrics.getInstance()
+            .counter("stew_import_bytes_total", "Size of the files imported.");
 
     @Override
     public void execute(Connection conn, Parameter p) throws CommandException {
@@ -30,14 +32,14 @@ public class Load extends Command {
         try {
             final File file = resolvePath(p.at(1));
             if (log.isDebugEnabled()) {
-                log.debug("file: " + file.getAbsolutePath());
+                log.debug("file: %s", file.getAbsolutePath());
             }
             if (p.has(2)) {
                 final String table = p.at(2);
                 final boolean hasHeader = p.at(3).equalsIgnoreCase("HEADER");
                 if (log.isDebugEnabled()) {
-                    log.debug("table: " + table);
-                    log.debug("hasHeader: " + hasHeader);
+                    log.debug("table: %s", table);
+                    log.debug("hasHeader: %s", hasHeader);
                 }
                 loadRecord(conn, file, table, hasHeader);
             } else {
@@ -57,7 +59,7 @@ public class Load extends Command {
     private void loadSql(Connection conn, File file) throws IOException, SQLException {
         final String sql = FileUtilities.readAllBytesAsString(file);
         if (log.isDebugEnabled()) {
-            log.debug("sql : " + sql);
+            log.debug("sql : %s", sql);
         }
         try (Statement stmt = prepareStatement(conn, sql)) {
             if (isSelect(sql)) {
@@ -94,12 +96,13 @@ public class Load extends Command {
             Collections.fill(valueList, "?");
             final String sql = String.format("INSERT INTO %s %s VALUES (%s)", tableName, columns, join(",", valueList));
             if (log.isDebugEnabled()) {
-                log.debug("SQL : " + sql);
+                log.debug("SQL : %s", sql);
             }
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 insertRecords(stmt, importer);
             }
         }
+        bytesImported.add(file.length());
     }
 
     protected List<Class<?>> getTypes(PreparedStatement stmt) {
@@ -124,9 +127,11 @@ public class Load extends Command {
         int recordCount = 0;
         int insertedCount = 0;
         int errorCount = 0;
-        TypeConverter conv = new TypeConverter(true);
-        List<Class<?>> types = getTypes(stmt);
-        final boolean autoConversion = !types.isEmpty();
+        TypeConverter.Plan[] plans = new TypeConverter(true).compile(getTypes(stmt));
+        final boolean autoConversion = plans.length > 0;
+        final FlightRecorder.Event event = FlightRecorder.begin(FlightRecorder.EventKind.IMPORT,
+                                                                env.getCurrentConnector(),
+                                                                "load");
         while (true) {
             Object[] row = importer.nextRow();
             if (row == null || row.length == 0) {
@@ -134,15 +139,14 @@ public class Load extends Command {
             }
             ++recordCount;
             if (autoConversion) {
-                final int n = Math.min(types.size(), row.length);
+                final int n = Math.min(plans.length, row.length);
                 for (int i = 0; i < n; i++) {
-                    row[i] = conv.convertWithoutException(row[i], types.get(i));
+                    row[i] = plans[i].convertWithoutException(row[i]);
                 }
             }
             try {
                 for (int i = 0; i < row.length; i++) {
-                    Object o = autoConversion ? conv.convertWithoutException(row[i], types.get(i)) : row[i];
-                    stmt.setObject(i + 1, o);
+                    stmt.setObject(i + 1, row[i]);
                 }
                 insertedCount += stmt.executeUpdate();
             } catch (SQLException ex) {
@@ -150,15 +154,16 @@ public class Load extends Command {
                 if (log.isTraceEnabled()) {
                     log.trace(message, ex);
                 } else if (log.isDebugEnabled()) {
-                    log.debug(message + " : " + ex);
+                    log.debug("%s : %s", message, ex);
                 }
                 ++errorCount;
             }
         }
+        event.commit(insertedCount);
         if (log.isDebugEnabled()) {
-            log.debug("record   = " + recordCount);
-            log.debug("inserted = " + insertedCount);
-            log.debug("error    = " + errorCount);
+            log.debug("record   = %d", recordCount);
+            log.debug("inserted = %d", insertedCount);
+            log.debug("error    = %d", errorCount);
         }
         outputMessage("i.loaded", insertedCount, recordCount);
     }
@@ -0,0 +1,63 @@
+package stew5.command;
+
+import java.sql.*;
+import net.argius.stew.*;
+import stew5.*;
+
+/**
+ * The Metadata command used to manage the metadata cache of the current connector.
+ *
+ * <code>metadata load</code> loads the snapshot in bulk,
+ * <code>metadata refresh [pattern]</code> reloads the tables which match the pattern,
+ * <code>metadata clear</code> discards the snapshot,
+ * and <code>metadata status</code> shows the summary.
+ * @see MetadataCache
+ */
+public final class Metadata extends Command {
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public void execute(Connection conn, Parameter p) throws CommandException {
+        final Connector connector = env.getCurrentConnector();
+        if (connector == null) {
+            throw new CommandException(getMessage("e.not-connect"));
+        }
+        final String subcommand = p.at(1);
+        MetadataCache cache = MetadataCache.getInstance();
+        try {
+            if (subcommand.equalsIgnoreCase("load")) {
+                MetadataSnapshot snapshot = cache.load(connector, conn);
+                outputMessage("Metadata.msg.loaded", snapshot.getTableCount());
+            } else if (subcommand.equalsIgnoreCase("refresh")) {
+                final String pattern = p.has(2) ? convertPattern(p.at(2)) : "%";
+                MetadataSnapshot snapshot = cache.refresh(connector, conn, pattern);
+                if (snapshot == null) {
+                    snapshot = cache.load(connector, conn);
+                }
+                outputMessage("Metadata.msg.loaded", snapshot.getTableCount());
+            } else if (subcommand.equalsIgnoreCase("clear")) {
+                cache.clear(connector.getId());
+                outputMessage("Metadata.msg.cleared");
+            } else if (subcommand.equalsIgnoreCase("status")) {
+                MetadataSnapshot snapshot = cache.peek(connector);
+                if (snapshot == null) {
+                    outputMessage("Metadata.msg.not-loaded");
+                } else {
+                    outputMessage("Metadata.msg.status",
+                                  snapshot.getTableCount(),
+                                  snapshot.getColumnCount(),
+                                  new java.util.Date(snapshot.getLoadedTime()));
+                }
+            } else {
+                throw new UsageException(getUsage());
+            }
+        } catch (SQLException ex) {
+            throw new CommandException(ex);
+        }
+    }
+
+}
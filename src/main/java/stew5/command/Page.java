@@ -0,0 +1,202 @@
+package stew5.command;
+
+import java.sql.*;
+import java.util.regex.*;
+import net.argius.stew.*;
+import stew5.*;
+
+/**
+ * The Page command used to show a page of the last SELECT result.
+ *
+ * It does not fetch the preceding rows; the query is rewritten with
+ * <code>OFFSET/FETCH</code> or <code>LIMIT/OFFSET</code> according to the database product
+ * (or <code>command.Page.dialect</code>).
+ * The clause is appended to a query which ends with <code>ORDER BY</code>,
+ * so that the order of the pages is kept.
+ * Otherwise, <code>LIMIT/OFFSET</code> is applied to the query as a derived table,
+ * and <code>OFFSET/FETCH</code> is not used because some databases require <code>ORDER BY</code>.
+ * If the query cannot be rewritten or the dialect is unknown,
+ * the rows before the page are skipped on the cursor.
+ */
+public final class Page extends Command {
+
+    private static final Logger log = Logger.getLogger(Page.class);
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final Pattern ORDER_BY = Pattern.compile("(?i)\\bORDER\\s+BY\\b");
+    private static final Pattern NOT_IN_ORDER_BY = Pattern.compile("(?i)\\b(LIMIT|OFFSET|FETCH|FOR)\\b");
+
+    enum Dialect {
+        OFFSET, LIMIT, CURSOR
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public void execute(Connection conn, Parameter p) throws CommandException {
+        final String p1 = p.at(1);
+        final int pageNumber;
+        if (isSelect(p.after(1))) {
+            env.setLastQuery(p.after(1));
+            pageNumber = 1;
+        } else if (!p.has(1) || p1.equalsIgnoreCase("next")) {
+            pageNumber = env.getPageNumber() + 1;
+        } else if (p1.equalsIgnoreCase("prev")) {
+            pageNumber = Math.max(1, env.getPageNumber() - 1);
+        } else if (p1.equalsIgnoreCase("first")) {
+            pageNumber = 1;
+        } else if (p1.matches("\\d+") && !p.has(2)) {
+            pageNumber = Math.max(1, Integer.parseInt(p1));
+        } else {
+            throw new UsageException(getUsage());
+        }
+        final String sql = env.getLastQuery();
+        if (sql == null) {
+            throw new CommandException(getMessage("Page.msg.no-query"));
+        }
+        final int pageSize = getPageSize();
+        final long offset = (long)(pageNumber - 1) * pageSize;
+        try {
+            Dialect dialect = getDialect(conn);
+            String pagedSql = (dialect == Dialect.CURSOR) ? null : rewrite(sql, dialect, offset, pageSize);
+            if (pagedSql == null) {
+                dialect = Dialect.CURSOR;
+                pagedSql = sql;
+            }
+            log.debug("dialect=%s, page=%d, size=%d", dialect, pageNumber, pageSize);
+            log.debug("SQL=[%s]", pagedSql);
+            try (Statement stmt = prepareStatement(conn, pagedSql)) {
+                if (dialect == Dialect.CURSOR && offset + pageSize < Integer.MAX_VALUE) {
+                    stmt.setMaxRows((int)(offset + pageSize));
+                }
+                final long startTime = System.currentTimeMillis();
+                try (ResultSet rs = executeQuery(stmt, pagedSql)) {
+                    if (dialect == Dialect.CURSOR) {
+                        skip(rs, offset);
+                    }
+                    outputMessage("i.response-time", (System.currentTimeMillis() - startTime) / 1000f);
+                    ResultSetReference ref = new ResultSetReference(rs, sql);
+                    output(ref);
+                    outputMessage("Page.msg.page", pageNumber, offset + 1, offset + ref.getRecordCount());
+                }
+            }
+            env.setPageNumber(pageNumber);
+        } catch (SQLException ex) {
+            throw new CommandException(ex);
+        }
+    }
+
+    static int getPageSize() {
+        final int limit = App.props.getAsInt("rowcount.limit", Integer.MAX_VALUE);
+        final int defaultSize = (limit > 0 && limit != Integer.MAX_VALUE) ? limit : DEFAULT_PAGE_SIZE;
+        return Math.max(1, App.props.getAsInt("command.Page.size", defaultSize));
+    }
+
+    static Dialect getDialect(Connection conn) throws SQLException {
+        final String name = App.props.get("command.Page.dialect", "auto");
+        if (!name.equalsIgnoreCase("auto")) {
+            try {
+                return Dialect.valueOf(name.toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                log.warn("unknown dialect: %s", name);
+            }
+        }
+        DatabaseMetaData dbmeta = conn.getMetaData();
+        final String product = dbmeta.getDatabaseProductName();
+        if (product.matches("(?i).*(MySQL|MariaDB|SQLite|PostgreSQL|H2|HSQL).*")) {
+            return Dialect.LIMIT;
+        } else if (product.matches("(?i).*Oracle.*")) {
+            // OFFSET/FETCH is supported since 12c
+            return (dbmeta.getDatabaseMajorVersion() >= 12) ? Dialect.OFFSET : Dialect.CURSOR;
+        } else if (product.matches("(?i).*SQL Server.*")) {
+            // OFFSET/FETCH is supported since 2012 (11.0)
+            return (dbmeta.getDatabaseMajorVersion() >= 11) ? Dialect.OFFSET : Dialect.CURSOR;
+        } else if (product.matches("(?i).*(DB2|Derby).*")) {
+            return Dialect.OFFSET;
+        }
+        return Dialect.CURSOR;
+    }
+
+    /**
+     * Rewrites the SQL to select a page.
+     * The parameters of the prepared statement (after ';') are kept.
+     * @return the rewritten SQL, or null if the SQL cannot be rewritten for the dialect
+     */
+    static String rewrite(String sql, Dialect dialect, long offset, int pageSize) {
+        final int index = sql.indexOf(';');
+        final String query = (index >= 0) ? sql.substring(0, index).trim() : sql.trim();
+        final String parameters = (index >= 0) ? sql.substring(index) : "";
+        final boolean ordered = endsWithOrderBy(query);
+        final String paged;
+        switch (dialect) {
+            case OFFSET:
+                if (!ordered) {
+                    return null;
+                }
+                paged = String.format("%s OFFSET %d ROWS FETCH NEXT %d ROWS ONLY", query, offset, pageSize);
+                break;
+            case LIMIT:
+                paged = ordered
+                        ? String.format("%s LIMIT %d OFFSET %d", query, pageSize, offset)
+                        : String.format("SELECT * FROM (%s) stew_page LIMIT %d OFFSET %d", query, pageSize, offset);
+                break;
+            default:
+                throw new IllegalArgumentException("dialect: " + dialect);
+        }
+        return paged + parameters;
+    }
+
+    /**
+     * Returns whether the last clause of the query is <code>ORDER BY</code>.
+     * The quoted strings and the parenthesized expressions are ignored.
+     */
+    static boolean endsWithOrderBy(String query) {
+        StringBuilder buffer = new StringBuilder(query.length());
+        int depth = 0;
+        char quote = 0;
+        for (final char c : query.toCharArray()) {
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+                buffer.append(' ');
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+                buffer.append(' ');
+            } else if (c == '(') {
+                ++depth;
+                buffer.append(' ');
+            } else if (c == ')') {
+                --depth;
+                buffer.append(' ');
+            } else {
+                buffer.append((depth > 0) ? ' ' : c);
+            }
+        }
+        final String s = buffer.toString();
+        Matcher m = ORDER_BY.matcher(s);
+        int end = -1;
+        while (m.find()) {
+            end = m.end();
+        }
+        return end >= 0 && !NOT_IN_ORDER_BY.matcher(s.substring(end)).find();
+    }
+
+    private static void skip(ResultSet rs, long offset) throws SQLException {
+        if (offset == 0L) {
+            return;
+        }
+        if (rs.getType() != ResultSet.TYPE_FORWARD_ONLY && offset < Integer.MAX_VALUE) {
+            rs.absolute((int)offset);
+            return;
+        }
+        for (long i = 0L; i < offset && rs.next(); i++) {
+            // skip
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package stew5.command;
+
+import java.sql.*;
+import net.argius.stew.*;
+import stew5.*;
+
+/**
+ * The Profile command used to show the timing breakdown of the statements.
+ *
+ * <code>profile on</code> outputs the breakdown after each statement,
+ * <code>profile off</code> stops it,
+ * and <code>profile</code> (or <code>profile last</code>) shows the breakdown of the last statement.
+ * @see QueryProfile
+ */
+public final class Profile extends Command {
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public boolean requiresConnection() {
+        return false;
+    }
+
+    @Override
+    public void execute(Connection conn, Parameter p) throws CommandException {
+        final String subcommand = p.at(1);
+        if (p.has(2)) {
+            throw new UsageException(getUsage());
+        }
+        if (subcommand.equalsIgnoreCase("on")) {
+            env.setProfiling(true);
+            outputMessage("Profile.msg.on");
+        } else if (subcommand.equalsIgnoreCase("off")) {
+            env.setProfiling(false);
+            outputMessage("Profile.msg.off");
+        } else if (subcommand.isEmpty() || subcommand.equalsIgnoreCase("last")) {
+            QueryProfile profile = env.getLastProfile();
+            if (profile == null) {
+                outputMessage("Profile.msg.no-profile");
+                return;
+            }
+            output(profile.getSql());
+            outputMessage("i.profile", profile.toMessageArguments());
+        } else {
+            throw new UsageException(getUsage());
+        }
+    }
+
+}
@@ -6,6 +6,7 @@ import stew5.*;
 
 /**
  * The Report command used to show database informations.
+ * If the metadata cache is available, the informations are read from the snapshot.
  */
 public final class Report extends Command {
 
@@ -46,14 +47,15 @@ public final class Report extends Command {
         final String option = p.at(2);
         try {
             DatabaseMetaData dbmeta = conn.getMetaData();
+            MetadataSnapshot snapshot = MetadataCache.getInstance().getSnapshot(env.getCurrentConnector(), conn);
             if (option.equalsIgnoreCase("FULL")) {
-                return getTableFullDescription(dbmeta, tableName, cmd);
+                return getTableFullDescription(dbmeta, snapshot, tableName, cmd);
             } else if (option.equalsIgnoreCase("PK")) {
-                return getPrimaryKeyInfo(dbmeta, tableName, cmd);
+                return getPrimaryKeyInfo(dbmeta, snapshot, tableName, cmd);
             } else if (option.equalsIgnoreCase("INDEX")) {
-                return getIndexInfo(dbmeta, tableName, cmd);
+                return getIndexInfo(dbmeta, snapshot, tableName, cmd);
             }
-            return getTableDescription(dbmeta, tableName, cmd);
+            return getTableDescription(dbmeta, snapshot, tableName, cmd);
         } catch (Throwable th) {
             if (th instanceof SQLException) {
                 throw (SQLException)th;
@@ -65,12 +67,16 @@ public final class Report extends Command {
     }
 
     private ResultSetReference getTableFullDescription(DatabaseMetaData dbmeta,
+                                                       MetadataSnapshot snapshot,
                                                        String tableName,
                                                        String cmd) throws Throwable {
         if (log.isDebugEnabled()) {
-            log.debug("report table-full-description of : " + tableName);
+            log.debug("report table-full-description of : %s", tableName);
         }
-        ResultSet rs = dbmeta.getColumns(null, null, convertPattern(tableName), null);
+        final String pattern = convertPattern(tableName);
+        ResultSet rs = (snapshot == null)
+                ? dbmeta.getColumns(null, null, pattern, null)
+                : snapshot.getColumns(dbmeta, pattern);
         try {
             return new ResultSetReference(rs, cmd);
         } catch (Throwable th) {
@@ -80,12 +86,16 @@ public final class Report extends Command {
     }
 
     private ResultSetReference getTableDescription(DatabaseMetaData dbmeta,
+                                                   MetadataSnapshot snapshot,
                                                    String tableName,
                                                    String cmd) throws Throwable {
         if (log.isDebugEnabled()) {
-            log.debug("report table-description of : " + tableName);
+            log.debug("report table-description of : %s", tableName);
         }
-        ResultSet rs = dbmeta.getColumns(null, null, convertPattern(tableName), null);
+        final String pattern = convertPattern(tableName);
+        ResultSet rs = (snapshot == null)
+                ? dbmeta.getColumns(null, null, pattern, null)
+                : snapshot.getColumns(dbmeta, pattern);
         try {
             ResultSetReference ref = new ResultSetReference(rs, cmd);
             ColumnOrder order = ref.getOrder();
@@ -103,12 +113,16 @@ public final class Report extends Command {
     }
 
     private ResultSetReference getPrimaryKeyInfo(DatabaseMetaData dbmeta,
+                                                 MetadataSnapshot snapshot,
                                                  String tableName,
                                                  String cmd) throws Throwable {
         if (log.isDebugEnabled()) {
-            log.debug("report primary-key of : " + tableName);
+            log.debug("report primary-key of : %s", tableName);
         }
-        ResultSet rs = dbmeta.getPrimaryKeys(null, null, convertPattern(tableName));
+        final String pattern = convertPattern(tableName);
+        ResultSet rs = (snapshot == null)
+                ? dbmeta.getPrimaryKeys(null, null, pattern)
+                : snapshot.getPrimaryKeys(dbmeta, pattern);
         try {
             ResultSetReference ref = new ResultSetReference(rs, cmd);
             ColumnOrder order = ref.getOrder();
@@ -125,11 +139,17 @@ public final class Report extends Command {
         }
     }
 
-    private ResultSetReference getIndexInfo(DatabaseMetaData dbmeta, String tableName, String cmd) throws Throwable {
+    private ResultSetReference getIndexInfo(DatabaseMetaData dbmeta,
+                                            MetadataSnapshot snapshot,
+                                            String tableName,
+                                            String cmd) throws Throwable {
         if (log.isDebugEnabled()) {
-            log.debug("report index of : " + tableName);
+            log.debug("report index of : %s", tableName);
         }
-        ResultSet rs = dbmeta.getIndexInfo(null, null, convertPattern(tableName), false, false);
+        final String pattern = convertPattern(tableName);
+        ResultSet rs = (snapshot == null)
+                ? dbmeta.getIndexInfo(null, null, pattern, false, false)
+                : snapshot.getIndexInfo(dbmeta, pattern);
         try {
             ResultSetReference ref = new ResultSetReference(rs, cmd);
             ColumnOrder order = ref.getOrder();
@@ -0,0 +1,64 @@
+package stew5.command;
+
+import java.io.*;
+import java.sql.*;
+import java.util.*;
+import net.argius.stew.*;
+import stew5.*;
+import stew5.text.*;
+
+/**
+ * The Stats command used to show the runtime metrics.
+ *
+ * <code>stats</code> shows all of the metrics,
+ * <code>stats reset</code> resets the counters and the histograms,
+ * and <code>stats dump FILE</code> writes the metrics in Prometheus text format.
+ * @see Metrics
+ */
+public final class Stats extends Command {
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public boolean requiresConnection() {
+        return false;
+    }
+
+    @Override
+    public void execute(Connection conn, Parameter p) throws CommandException {
+        final String subcommand = p.at(1);
+        Metrics metrics = Metrics.getInstance();
+        if (subcommand.isEmpty()) {
+            List<Metrics.Metric> a = metrics.getMetrics();
+            int nameWidth = getMessage("Stats.label.name").length();
+            for (final Metrics.Metric metric : a) {
+                nameWidth = Math.max(nameWidth, metric.getName().length());
+            }
+            final String format = "%-" + nameWidth + "s %-9s %s";
+            output(PrintFormat.format(format,
+                                      getMessage("Stats.label.name"),
+                                      getMessage("Stats.label.type"),
+                                      getMessage("Stats.label.value")));
+            for (final Metrics.Metric metric : a) {
+                output(PrintFormat.format(format, metric.getName(), metric.getType(), metric.getSummary()));
+            }
+        } else if (subcommand.equalsIgnoreCase("reset") && !p.has(2)) {
+            metrics.reset();
+            outputMessage("Stats.msg.reset");
+        } else if (subcommand.equalsIgnoreCase("dump") && p.has(2) && !p.has(3)) {
+            final File file = resolvePath(p.at(2));
+            try {
+                metrics.dump(file);
+            } catch (IOException ex) {
+                throw new CommandException(ex);
+            }
+            outputMessage("Stats.msg.dumped", file);
+        } else {
+            throw new UsageException(getUsage());
+        }
+    }
+
+}
@@ -62,8 +62,8 @@ public final class Time extends Command {
                 endTime = System.currentTimeMillis();
             }
             if (log.isDebugEnabled()) {
-                log.debug("beginning: " + beginningTime);
-                log.debug("      end: " + endTime);
+                log.debug("beginning: %d", beginningTime);
+                log.debug("      end: %d", endTime);
             }
             outputMessage("Time.once", (endTime - beginningTime) / 1000f);
         }
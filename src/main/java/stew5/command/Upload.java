@@ -1,19 +1,28 @@
 package stew5.command;
 
 import java.io.*;
+import java.nio.channels.*;
 import java.nio.charset.*;
 import java.nio.file.*;
 import java.sql.*;
+import java.util.*;
 import net.argius.stew.*;
 import stew5.*;
 
 /**
  * The Upload command used to upload a file into specified column.
+ *
+ * If the file is a directory, each file in it is uploaded into a row in batches;
+ * the SQL takes the data as the 1st parameter and the file name as the 2nd.
  */
 public final class Upload extends Command {
 
     private static final Logger log = Logger.getLogger(Upload.class);
 
+    static final int DEFAULT_BATCH_LIMIT = 16;
+
+    private static final int BUFFER_SIZE = 65536;
+
     @Override
     public void execute(Connection conn, Parameter p) throws CommandException {
         if (!p.has(2)) {
@@ -22,19 +31,16 @@ public final class Upload extends Command {
         final File file = resolvePath(p.at(1));
         final String p2 = p.at(2);
         if (log.isDebugEnabled()) {
-            log.debug("file=" + file.getAbsolutePath());
+            log.debug("file=%s", file.getAbsolutePath());
             log.debug("file length=%d", file.length());
-            log.debug("p2=" + p2);
-            log.debug("after3=" + p.after(3));
-        }
-        if (file.length() > Integer.MAX_VALUE) {
-            throw new CommandException("file too large: " + file);
+            log.debug("p2=%s", p2);
+            log.debug("after3=%s", p.after(3));
         }
         final int modeOption = getModeOption(p2);
         final String sql = p.after(modeOption > 0 ? 3 : 2);
         if (log.isDebugEnabled()) {
             log.debug("SQL=[%s]", sql);
-            log.debug("modeOption=" + modeOption);
+            log.debug("modeOption=%d", modeOption);
         }
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             uploadFile(stmt, file, modeOption);
@@ -45,8 +51,8 @@ public final class Upload extends Command {
 
     void uploadFile(PreparedStatement stmt, File f, int modeOption) throws IOException, SQLException {
         setTimeout(stmt);
-        final int length = (int)f.length();
         assert modeOption >= 0 && modeOption <= 2 : "mode option=" + modeOption;
+        final List<File> files = listFiles(f);
         boolean requiresBinaryStream = false;
         if (modeOption == 0) {
             try {
@@ -60,7 +66,7 @@ public final class Upload extends Command {
                 log.warn("failed to detect type with ParameterMetaData: %s", ex);
                 outputMessage("Upload.msg.failedToDetectDestinationType", ex.getMessage());
                 try {
-                    final String detectedContentType = Files.probeContentType(f.toPath());
+                    final String detectedContentType = files.isEmpty() ? null : Files.probeContentType(files.get(0).toPath());
                     log.debug("detected content type=[%s]", detectedContentType);
                     outputMessage("Upload.msg.fileContentTypeIs", detectedContentType);
                     requiresBinaryStream = detectedContentType == null || !detectedContentType.startsWith("text/");
@@ -71,17 +77,176 @@ public final class Upload extends Command {
         } else {
             requiresBinaryStream = modeOption == 1;
         }
-        try (InputStream is = new FileInputStream(f)) {
+        if (!f.isDirectory()) {
+            Closeable resource = setParameter(stmt, f, requiresBinaryStream);
+            try {
+                final int updatedCount = stmt.executeUpdate();
+                outputMessage("i.updated", updatedCount);
+            } finally {
+                resource.close();
+            }
+            return;
+        }
+        final int batchLimit = Math.max(1, App.props.getAsInt("command.Upload.batch.limit", DEFAULT_BATCH_LIMIT));
+        log.debug("batch limit = %d", batchLimit);
+        List<Closeable> resources = new ArrayList<>();
+        int updatedCount = 0;
+        try {
+            for (final File file : files) {
+                resources.add(setParameter(stmt, file, requiresBinaryStream));
+                stmt.setString(2, file.getName());
+                stmt.addBatch();
+                if (resources.size() >= batchLimit) {
+                    updatedCount += executeBatch(stmt);
+                    closeAll(resources);
+                }
+            }
+            if (!resources.isEmpty()) {
+                updatedCount += executeBatch(stmt);
+            }
+        } finally {
+            closeAll(resources);
+        }
+        outputMessage("Upload.msg.uploaded", files.size(), updatedCount);
+    }
+
+    private static List<File> listFiles(File f) throws IOException {
+        if (!f.isDirectory()) {
+            return Collections.singletonList(f);
+        }
+        File[] a = f.listFiles();
+        if (a == null) {
+            throw new IOException("failed to list files: " + f);
+        }
+        Arrays.sort(a);
+        List<File> files = new ArrayList<>(a.length);
+        for (final File file : a) {
+            if (file.isFile()) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Sets the content of the file into the 1st parameter.
+     * @param stmt
+     * @param f
+     * @param requiresBinaryStream
+     * @return the resource to close after the statement has been executed
+     * @throws IOException
+     * @throws SQLException
+     */
+    private static Closeable setParameter(PreparedStatement stmt, File f, boolean requiresBinaryStream) throws IOException,
+                                                                                                        SQLException {
+        final long length = f.length();
+        if (requiresBinaryStream && App.props.getAsBoolean("command.Upload.useBlob")) {
+            final Blob blob = createBlob(stmt.getConnection(), f);
+            if (blob != null) {
+                stmt.setBlob(1, blob);
+                return new Closeable() {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            blob.free();
+                        } catch (SQLException ex) {
+                            throw new IOException(ex);
+                        }
+                    }
+                };
+            }
+        }
+        final InputStream is = openStream(f);
+        try {
             if (requiresBinaryStream) {
-                stmt.setBinaryStream(1, is, length);
-            } else {
-                Charset charset = Charset.defaultCharset();
-                Reader r = new InputStreamReader(is, charset);
-                stmt.setCharacterStream(1, r, length);
+                try {
+                    stmt.setBinaryStream(1, is, length);
+                } catch (AbstractMethodError | SQLFeatureNotSupportedException ex) {
+                    log.debug("setBinaryStream(int, InputStream, long) not supported: %s", ex);
+                    stmt.setBinaryStream(1, is, toIntLength(f));
+                }
+                return is;
+            }
+            final Reader r = new InputStreamReader(is, getCharset());
+            try {
+                // the length in characters is unknown without decoding the whole file
+                stmt.setCharacterStream(1, r);
+            } catch (AbstractMethodError | SQLFeatureNotSupportedException ex) {
+                log.debug("setCharacterStream(int, Reader) not supported: %s", ex);
+                stmt.setCharacterStream(1, r, toIntLength(f));
+            }
+            return r;
+        } catch (IOException | SQLException | RuntimeException | Error ex) {
+            is.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Creates a Blob and writes the content of the file into it.
+     * @param conn
+     * @param f
+     * @return the Blob, or null if the driver does not support it
+     * @throws IOException
+     * @throws SQLException
+     */
+    private static Blob createBlob(Connection conn, File f) throws IOException, SQLException {
+        final Blob blob;
+        try {
+            blob = conn.createBlob();
+        } catch (AbstractMethodError | SQLFeatureNotSupportedException ex) {
+            log.debug("createBlob not supported: %s", ex);
+            return null;
+        }
+        try (OutputStream os = blob.setBinaryStream(1L)) {
+            Files.copy(f.toPath(), os);
+        } catch (AbstractMethodError | SQLFeatureNotSupportedException ex) {
+            log.debug("Blob.setBinaryStream not supported: %s", ex);
+            blob.free();
+            return null;
+        }
+        return blob;
+    }
+
+    private static InputStream openStream(File f) throws IOException {
+        FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+        return new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+    }
+
+    private static int toIntLength(File f) throws IOException {
+        final long length = f.length();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("file too large for this driver: " + f);
+        }
+        return (int)length;
+    }
+
+    private static Charset getCharset() {
+        final String name = App.props.get("command.Upload.charset", "");
+        return name.isEmpty() ? Charset.defaultCharset() : Charset.forName(name);
+    }
+
+    private static int executeBatch(PreparedStatement stmt) throws SQLException {
+        int count = 0;
+        for (final int result : stmt.executeBatch()) {
+            if (result > 0) {
+                count += result;
+            } else if (result == Statement.SUCCESS_NO_INFO) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    private static void closeAll(List<Closeable> resources) {
+        for (final Closeable resource : resources) {
+            try {
+                resource.close();
+            } catch (IOException ex) {
+                log.warn(ex);
             }
-            final int updatedCount = stmt.executeUpdate();
-            outputMessage("i.updated", updatedCount);
         }
+        resources.clear();
     }
 
     static int getModeOption(String keyword) {
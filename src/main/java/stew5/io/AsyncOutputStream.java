@@ -0,0 +1,119 @@
+package stew5.io;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import stew5.*;
+
+/**
+ * An OutputStream which writes into the underlying stream on another thread.
+ * It is used to overlap the compression with the fetch of the data.
+ */
+final class AsyncOutputStream extends OutputStream {
+
+    private static final int QUEUE_CAPACITY = 8;
+    private static final byte[] EOF = new byte[0];
+
+    private final BlockingQueue<byte[]> queue;
+    private final Future<Void> future;
+    private final int chunkSize;
+
+    private byte[] buffer;
+    private int count;
+    private boolean closed;
+
+    AsyncOutputStream(final OutputStream os, int chunkSize) {
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.chunkSize = chunkSize;
+        this.buffer = new byte[chunkSize];
+        ExecutorService executor = Executors.newSingleThreadExecutor(DaemonThreadFactory.getInstance());
+        this.future = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                try (OutputStream out = os) {
+                    while (true) {
+                        final byte[] chunk = queue.take();
+                        if (chunk == EOF) {
+                            break;
+                        }
+                        out.write(chunk);
+                    }
+                }
+                return null;
+            }
+        });
+        executor.shutdown();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte)b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            final int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == buffer.length) {
+                put(buffer);
+                buffer = new byte[chunkSize];
+                count = 0;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (count > 0) {
+            put(Arrays.copyOf(buffer, count));
+            count = 0;
+        }
+        put(EOF);
+        try {
+            future.get();
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException(ex.getMessage());
+        } catch (ExecutionException ex) {
+            throw toIOException(ex);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+    }
+
+    private void put(byte[] chunk) throws IOException {
+        try {
+            // the writer may have failed and stopped taking the chunks
+            while (!queue.offer(chunk, 100L, TimeUnit.MILLISECONDS)) {
+                if (future.isDone()) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException ex) {
+                        throw toIOException(ex);
+                    }
+                    throw new IOException("writer stopped");
+                }
+            }
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException(ex.getMessage());
+        }
+    }
+
+    private static IOException toIOException(ExecutionException ex) {
+        final Throwable cause = ex.getCause();
+        return (cause instanceof IOException) ? (IOException)cause : new IOException(cause);
+    }
+
+}
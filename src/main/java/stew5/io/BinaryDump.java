@@ -0,0 +1,205 @@
+package stew5.io;
+
+import java.io.*;
+import java.math.*;
+import java.nio.charset.*;
+import java.sql.*;
+
+/**
+ * The constants and the value codec of the binary dump format (<code>.stew</code>).
+ *
+ * <pre>
+ * file   := magic(8) flags(1) columnCount(int) {name(string) sqlType(int)}* block* 0(int)
+ * block  := rowCount(int) rawLength(int) storedLength(int) bytes(storedLength)
+ * value  := tag(1) payload
+ * string := length(int) UTF-8 bytes
+ * </pre>
+ * The tags 0 to 11 correspond to the types of <code>StringBasedSerializer.Element</code>,
+ * and the others keep the JDBC types which Element does not distinguish.
+ * The values of the other types are written as strings (<code>toString()</code>);
+ * the tag OBJECT is reserved and is not read, so that a file never causes Java deserialization.
+ * If the flag FLAG_DEFLATE is set, each block is compressed with Deflater.
+ * @see StringBasedSerializer.Element
+ */
+final class BinaryDump {
+
+    static final byte[] MAGIC = {'S', 'T', 'E', 'W', 'D', 'M', 'P', 1};
+
+    static final int FLAG_DEFLATE = 1;
+
+    static final byte NULL = 0;
+    static final byte STRING = 1;
+    static final byte BOOLEAN = 2;
+    static final byte BYTE = 3;
+    static final byte SHORT = 4;
+    static final byte INT = 5;
+    static final byte LONG = 6;
+    static final byte FLOAT = 7;
+    static final byte DOUBLE = 8;
+    static final byte DECIMAL = 9;
+    static final byte TIME = 10;
+    static final byte OBJECT = 11;
+    static final byte BYTES = 12;
+    static final byte SQL_DATE = 13;
+    static final byte SQL_TIME = 14;
+    static final byte SQL_TIMESTAMP = 15;
+
+    private BinaryDump() { // empty
+    }
+
+    static void writeString(DataOutput out, String s) throws IOException {
+        writeBytes(out, s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String readString(DataInput in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static byte[] readBytes(DataInput in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("invalid length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes a value with its tag.
+     * @param out
+     * @param o
+     * @throws IOException
+     */
+    static void writeValue(DataOutput out, Object o) throws IOException {
+        if (o == null) {
+            out.writeByte(NULL);
+        } else if (o instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String)o);
+        } else if (o instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer)o);
+        } else if (o instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long)o);
+        } else if (o instanceof BigDecimal) {
+            final BigDecimal decimal = (BigDecimal)o;
+            out.writeByte(DECIMAL);
+            writeBytes(out, decimal.unscaledValue().toByteArray());
+            out.writeInt(decimal.scale());
+        } else if (o instanceof Timestamp) {
+            final Timestamp ts = (Timestamp)o;
+            out.writeByte(SQL_TIMESTAMP);
+            out.writeLong(ts.getTime());
+            out.writeInt(ts.getNanos());
+        } else if (o instanceof Date) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(((Date)o).getTime());
+        } else if (o instanceof Time) {
+            out.writeByte(SQL_TIME);
+            out.writeLong(((Time)o).getTime());
+        } else if (o instanceof java.util.Date) {
+            out.writeByte(TIME);
+            out.writeLong(((java.util.Date)o).getTime());
+        } else if (o instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean)o);
+        } else if (o instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short)o);
+        } else if (o instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte)o);
+        } else if (o instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double)o);
+        } else if (o instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float)o);
+        } else if (o instanceof byte[]) {
+            out.writeByte(BYTES);
+            writeBytes(out, (byte[])o);
+        } else if (o instanceof Blob) {
+            out.writeByte(BYTES);
+            writeBytes(out, readBlob((Blob)o));
+        } else if (o instanceof Clob) {
+            out.writeByte(STRING);
+            writeString(out, readClob((Clob)o));
+        } else {
+            out.writeByte(STRING);
+            writeString(out, o.toString());
+        }
+    }
+
+    /**
+     * Reads a value with its tag.
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    static Object readValue(DataInput in) throws IOException {
+        final byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case BOOLEAN:
+                return in.readBoolean();
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return in.readShort();
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case DECIMAL:
+                final BigInteger unscaled = new BigInteger(readBytes(in));
+                return new BigDecimal(unscaled, in.readInt());
+            case TIME:
+                return new java.util.Date(in.readLong());
+            case OBJECT:
+                throw new IOException("unsupported tag: serialized object");
+            case BYTES:
+                return readBytes(in);
+            case SQL_DATE:
+                return new Date(in.readLong());
+            case SQL_TIME:
+                return new Time(in.readLong());
+            case SQL_TIMESTAMP:
+                final Timestamp ts = new Timestamp(in.readLong());
+                ts.setNanos(in.readInt());
+                return ts;
+            default:
+                throw new IOException("unknown tag: " + tag);
+        }
+    }
+
+    private static byte[] readBlob(Blob blob) throws IOException {
+        try {
+            return blob.getBytes(1L, (int)blob.length());
+        } catch (SQLException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    private static String readClob(Clob clob) throws IOException {
+        try {
+            return clob.getSubString(1L, (int)clob.length());
+        } catch (SQLException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+}
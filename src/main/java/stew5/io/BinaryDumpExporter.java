@@ -0,0 +1,152 @@
+package stew5.io;
+
+import static stew5.io.BinaryDump.*;
+import java.io.*;
+import java.sql.*;
+import java.util.zip.*;
+import stew5.*;
+
+/**
+ * An Exporter for the binary dump format.
+ * @see BinaryDump
+ */
+public final class BinaryDumpExporter extends Exporter {
+
+    static final int DEFAULT_BLOCK_SIZE = 1048576;
+
+    private final DataOutputStream out;
+    private final int blockSize;
+    private final boolean deflates;
+    private final ByteArrayOutputStream block;
+    private final DataOutputStream blockOut;
+
+    private String[] names;
+    private int[] sqlTypes;
+    private boolean wasWrittenSchema;
+    private int blockRowCount;
+
+    protected BinaryDumpExporter(OutputStream os) {
+        super(os);
+        this.out = new DataOutputStream(os);
+        this.blockSize = Math.max(1, App.props.getAsInt("io.stew.block.size", DEFAULT_BLOCK_SIZE));
+        this.deflates = !App.props.get("io.stew.compression", "deflate").equalsIgnoreCase("none");
+        this.block = new ByteArrayOutputStream(blockSize + 8192);
+        this.blockOut = new DataOutputStream(block);
+    }
+
+    @Override
+    public void declareColumns(ColumnDefinition... columns) throws IOException {
+        ensureOpen();
+        if (wasWrittenSchema) {
+            throw new IOException("columns must be declared before rows");
+        }
+        names = new String[columns.length];
+        sqlTypes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            names[i] = columns[i].getName();
+            sqlTypes[i] = columns[i].getSqlType();
+        }
+    }
+
+    /**
+     * Sets the column names.
+     * The header is a part of the schema, not a row.
+     */
+    @Override
+    protected void writeHeader(Object[] header) throws IOException {
+        ensureOpen();
+        if (wasWrittenSchema) {
+            throw new IOException("header must be added before rows");
+        }
+        if (names == null) {
+            names = new String[header.length];
+            sqlTypes = new int[header.length];
+            java.util.Arrays.fill(sqlTypes, Types.OTHER);
+        } else if (names.length != header.length) {
+            throw new IOException("column count mismatch: " + header.length + " != " + names.length);
+        }
+        for (int i = 0; i < header.length; i++) {
+            names[i] = String.valueOf(header[i]);
+        }
+    }
+
+    @Override
+    public void addRow(Object... values) throws IOException {
+        ensureOpen();
+        if (!wasWrittenSchema) {
+            writeSchema(values.length);
+        }
+        if (values.length != names.length) {
+            throw new IOException("column count mismatch: " + values.length + " != " + names.length);
+        }
+        for (final Object value : values) {
+            writeValue(blockOut, value);
+        }
+        ++blockRowCount;
+        if (block.size() >= blockSize) {
+            flushBlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ensureOpen();
+        try {
+            if (!wasWrittenSchema) {
+                writeSchema(0);
+            }
+            flushBlock();
+            out.writeInt(0);
+            out.flush();
+        } finally {
+            super.close();
+        }
+    }
+
+    private void writeSchema(int columnCount) throws IOException {
+        if (names == null) {
+            names = new String[columnCount];
+            sqlTypes = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                names[i] = "column" + (i + 1);
+                sqlTypes[i] = Types.OTHER;
+            }
+        }
+        out.write(MAGIC);
+        out.writeByte(deflates ? FLAG_DEFLATE : 0);
+        out.writeInt(names.length);
+        for (int i = 0; i < names.length; i++) {
+            writeString(out, names[i]);
+            out.writeInt(sqlTypes[i]);
+        }
+        wasWrittenSchema = true;
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockRowCount == 0) {
+            return;
+        }
+        final int rawLength = block.size();
+        out.writeInt(blockRowCount);
+        out.writeInt(rawLength);
+        if (deflates) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream(rawLength / 2 + 64);
+                try (DeflaterOutputStream dos = new DeflaterOutputStream(bos, deflater, 65536)) {
+                    block.writeTo(dos);
+                }
+                out.writeInt(bos.size());
+                bos.writeTo(out);
+            } finally {
+                deflater.end();
+            }
+        } else {
+            out.writeInt(rawLength);
+            block.writeTo(out);
+        }
+        block.reset();
+        blockRowCount = 0;
+    }
+
+}
@@ -0,0 +1,118 @@
+package stew5.io;
+
+import static stew5.io.BinaryDump.*;
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * An Importer for the binary dump format.
+ * The header is the column names in the schema, and the values keep their types.
+ * @see BinaryDump
+ */
+public final class BinaryDumpImporter extends Importer {
+
+    private final DataInputStream in;
+    private final boolean inflates;
+    private final String[] names;
+    private final int[] sqlTypes;
+
+    private DataInputStream blockIn;
+    private int blockRowCount;
+    private boolean eof;
+
+    protected BinaryDumpImporter(InputStream is) throws IOException {
+        super(is);
+        this.in = new DataInputStream(is);
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(MAGIC, magic)) {
+                throw new IOException("not a stew dump file");
+            }
+            this.inflates = (in.readByte() & FLAG_DEFLATE) != 0;
+            final int columnCount = in.readInt();
+            if (columnCount < 0) {
+                throw new IOException("invalid column count: " + columnCount);
+            }
+            this.names = new String[columnCount];
+            this.sqlTypes = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                names[i] = readString(in);
+                sqlTypes[i] = in.readInt();
+            }
+        } catch (IOException | RuntimeException ex) {
+            is.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the SQL types (java.sql.Types) of the columns.
+     * @return
+     */
+    public int[] getSqlTypes() {
+        return sqlTypes.clone();
+    }
+
+    @Override
+    protected Object[] readHeader() throws IOException {
+        ensureOpen();
+        return names.clone();
+    }
+
+    @Override
+    public Object[] nextRow() throws IOException {
+        ensureOpen();
+        while (blockRowCount == 0) {
+            if (eof || !readBlock()) {
+                return new Object[0];
+            }
+        }
+        Object[] row = new Object[names.length];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = readValue(blockIn);
+        }
+        --blockRowCount;
+        return row;
+    }
+
+    private boolean readBlock() throws IOException {
+        final int rowCount = in.readInt();
+        if (rowCount <= 0) {
+            eof = true;
+            return false;
+        }
+        final int rawLength = in.readInt();
+        final int storedLength = in.readInt();
+        if (rawLength < 0 || storedLength < 0) {
+            throw new IOException("invalid block length");
+        }
+        byte[] stored = new byte[storedLength];
+        in.readFully(stored);
+        byte[] raw = stored;
+        if (inflates) {
+            raw = new byte[rawLength];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(stored);
+                int n = 0;
+                while (n < rawLength) {
+                    final int inflated = inflater.inflate(raw, n, rawLength - n);
+                    if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                        throw new EOFException("truncated block");
+                    }
+                    n += inflated;
+                }
+            } catch (DataFormatException ex) {
+                throw new IOException(ex);
+            } finally {
+                inflater.end();
+            }
+        }
+        blockIn = new DataInputStream(new ByteArrayInputStream(raw));
+        blockRowCount = rowCount;
+        return true;
+    }
+
+}
@@ -0,0 +1,34 @@
+package stew5.io;
+
+/**
+ * The definition of a column to export.
+ */
+public final class ColumnDefinition {
+
+    private final String name;
+    private final int sqlType;
+
+    /**
+     * A constructor.
+     * @param name the column name
+     * @param sqlType the SQL type (java.sql.Types)
+     */
+    public ColumnDefinition(String name, int sqlType) {
+        this.name = name;
+        this.sqlType = sqlType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSqlType() {
+        return sqlType;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnDefinition(" + name + ", " + sqlType + ")";
+    }
+
+}
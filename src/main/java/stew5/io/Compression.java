@@ -0,0 +1,152 @@
+package stew5.io;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.zip.*;
+import stew5.*;
+
+/**
+ * The compression formats recognized by the suffix of the file name (for example, <code>data.csv.gz</code>).
+ *
+ * GZIP is built in. Zstandard and LZ4 are available when their libraries
+ * (zstd-jni and lz4-java) are in the class path.
+ */
+public enum Compression {
+
+    NONE("", null, null),
+    GZIP("gz", null, null),
+    ZSTD("zst", "com.github.luben.zstd.ZstdOutputStream", "com.github.luben.zstd.ZstdInputStream"),
+    LZ4("lz4", "net.jpountz.lz4.LZ4FrameOutputStream", "net.jpountz.lz4.LZ4FrameInputStream");
+
+    static final int DEFAULT_BUFFER_SIZE = 262144;
+
+    private final String suffix;
+    private final String outputStreamClassName;
+    private final String inputStreamClassName;
+
+    private Compression(String suffix, String outputStreamClassName, String inputStreamClassName) {
+        this.suffix = suffix;
+        this.outputStreamClassName = outputStreamClassName;
+        this.inputStreamClassName = inputStreamClassName;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * Returns the compression of this file.
+     * @param file
+     * @return
+     */
+    public static Compression of(File file) {
+        final String ext = FileUtilities.getExtension(file);
+        for (final Compression compression : values()) {
+            if (compression != NONE && compression.suffix.equalsIgnoreCase(ext)) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the file name without the compression suffix.
+     * @param file
+     * @return
+     */
+    public static File stripSuffix(File file) {
+        final Compression compression = of(file);
+        if (compression == NONE) {
+            return file;
+        }
+        final String path = file.getPath();
+        return new File(path.substring(0, path.length() - compression.suffix.length() - 1));
+    }
+
+    /**
+     * Opens the file to write through the compressor.
+     * If the property <code>io.compression.async</code> is true,
+     * the compression runs on another thread.
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static OutputStream openOutputStream(File file) throws IOException {
+        final Compression compression = of(file);
+        final int bufferSize = getBufferSize();
+        OutputStream os = compression.wrap(new FileOutputStream(file));
+        if (compression != NONE && App.props.getAsBoolean("io.compression.async")) {
+            os = new AsyncOutputStream(os, bufferSize);
+        }
+        return new BufferedOutputStream(os, bufferSize);
+    }
+
+    /**
+     * Opens the file to read through the decompressor.
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static InputStream openInputStream(File file) throws IOException {
+        return new BufferedInputStream(of(file).wrap(new FileInputStream(file)), getBufferSize());
+    }
+
+    /**
+     * Wraps the stream with the compressor.
+     * @param os
+     * @return
+     * @throws IOException
+     */
+    public OutputStream wrap(OutputStream os) throws IOException {
+        switch (this) {
+            case NONE:
+                return os;
+            case GZIP:
+                return new GZIPOutputStream(os, getBufferSize());
+            default:
+                return (OutputStream)newStream(outputStreamClassName, OutputStream.class, os);
+        }
+    }
+
+    /**
+     * Wraps the stream with the decompressor.
+     * @param is
+     * @return
+     * @throws IOException
+     */
+    public InputStream wrap(InputStream is) throws IOException {
+        switch (this) {
+            case NONE:
+                return is;
+            case GZIP:
+                return new GZIPInputStream(is, getBufferSize());
+            default:
+                return (InputStream)newStream(inputStreamClassName, InputStream.class, is);
+        }
+    }
+
+    private Closeable newStream(String className, Class<?> parameterType, Closeable stream) throws IOException {
+        try {
+            Class<?> c = Class.forName(className, true, Thread.currentThread().getContextClassLoader());
+            return (Closeable)c.getConstructor(parameterType).newInstance(stream);
+        } catch (ClassNotFoundException ex) {
+            stream.close();
+            throw new IOException("compression " + name() + " is not available: " + className + " not found");
+        } catch (InvocationTargetException ex) {
+            stream.close();
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            throw new IOException(cause);
+        } catch (ReflectiveOperationException ex) {
+            stream.close();
+            throw new IOException(ex);
+        }
+    }
+
+    private static int getBufferSize() {
+        return Math.max(512, App.props.getAsInt("io.compression.buffer", DEFAULT_BUFFER_SIZE));
+    }
+
+}
@@ -32,6 +32,17 @@ public abstract class Exporter implements AutoCloseable {
         }
     }
 
+    /**
+     * Declares the columns before writing a header and rows.
+     * The Exporter that requires the types (such as a columnar format) uses them,
+     * and the others ignore them.
+     * @param columns
+     * @throws IOException
+     */
+    public void declareColumns(ColumnDefinition... columns) throws IOException {
+        ensureOpen();
+    }
+
     /**
      * Adds a header.
      * This method can be called only once after opening stream.
@@ -18,11 +18,15 @@ final class ExporterFactory {
      * @throws IOException
      */
     static Exporter createExporter(File file) throws IOException {
-        final String ext = FileUtilities.getExtension(file);
+        final String ext = FileUtilities.getExtension(Compression.stripSuffix(file));
         if (ext.equalsIgnoreCase("xml")) {
             return new XmlExporter(openFile(file));
         } else if (ext.equalsIgnoreCase("htm") || ext.equalsIgnoreCase("html")) {
             return new HtmlExporter(openFile(file), "");
+        } else if (ext.equalsIgnoreCase("stew")) {
+            return new BinaryDumpExporter(openFile(file));
+        } else if (ext.equalsIgnoreCase("parquet")) {
+            return new ParquetExporter(openFile(file));
         } else if (ext.equalsIgnoreCase("csv")) {
             return new CsvExporter(openFile(file));
         } else {
@@ -31,7 +35,7 @@ final class ExporterFactory {
     }
 
     private static OutputStream openFile(File file) throws IOException {
-        return new FileOutputStream(file);
+        return Compression.openOutputStream(file);
     }
 
 }
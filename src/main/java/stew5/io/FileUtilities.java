@@ -2,6 +2,7 @@ package stew5.io;
 
 import java.io.*;
 import java.nio.channels.*;
+import java.nio.charset.*;
 
 /**
  * Utility methods for files.
@@ -84,6 +85,27 @@ public final class FileUtilities {
         }
     }
 
+    /**
+     * Appends the string to the file in UTF-8.
+     * If the file has reached the max size, it is renamed to <i>file</i><code>.1</code> before appending.
+     * @param file
+     * @param s
+     * @param maxSize the max size in bytes, or 0 for unlimited
+     * @return false if it failed to rename the file
+     * @throws IOException
+     */
+    public static boolean appendRolling(File file, String s, long maxSize) throws IOException {
+        boolean rotated = true;
+        if (maxSize > 0 && file.length() >= maxSize) {
+            File backup = new File(file.getPath() + ".1");
+            rotated = (!backup.exists() || backup.delete()) && file.renameTo(backup);
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            out.write(s);
+        }
+        return rotated;
+    }
+
     /**
      * Returns the string that read from file.
      * @param file
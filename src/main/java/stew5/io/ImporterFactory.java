@@ -18,9 +18,16 @@ final class ImporterFactory {
      * @throws IOException
      */
     static Importer createImporter(File file) throws IOException {
-        final String ext = FileUtilities.getExtension(file);
+        final String ext = FileUtilities.getExtension(Compression.stripSuffix(file));
         if (ext.equalsIgnoreCase("xml")) {
             return new XmlImporter(openFile(file));
+        } else if (ext.equalsIgnoreCase("stew")) {
+            return new BinaryDumpImporter(openFile(file));
+        } else if (ext.equalsIgnoreCase("parquet")) {
+            if (Compression.of(file) != Compression.NONE) {
+                throw new IOException("compressed parquet file is not supported: " + file);
+            }
+            return new ParquetImporter(file);
         } else if (ext.equalsIgnoreCase("csv")) {
             return new CsvImporter(openFile(file));
         } else {
@@ -29,7 +36,7 @@ final class ImporterFactory {
     }
 
     private static InputStream openFile(File file) throws IOException {
-        return new FileInputStream(file);
+        return Compression.openInputStream(file);
     }
 
 }
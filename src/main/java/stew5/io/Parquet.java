@@ -0,0 +1,381 @@
+package stew5.io;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * The constants and the codec of Apache Parquet files.
+ *
+ * This supports a subset of the format:
+ * flat schemas, optional columns, PLAIN encoding, and UNCOMPRESSED or GZIP codec.
+ * The metadata is encoded with the Thrift compact protocol.
+ */
+final class Parquet {
+
+    static final byte[] MAGIC = {'P', 'A', 'R', '1'};
+
+    // physical types
+    static final int BOOLEAN = 0;
+    static final int INT32 = 1;
+    static final int INT64 = 2;
+    static final int INT96 = 3;
+    static final int FLOAT = 4;
+    static final int DOUBLE = 5;
+    static final int BYTE_ARRAY = 6;
+    static final int FIXED_LEN_BYTE_ARRAY = 7;
+
+    // converted types
+    static final int NONE = -1;
+    static final int UTF8 = 0;
+    static final int DATE = 6;
+    static final int TIMESTAMP_MILLIS = 9;
+
+    // repetition types
+    static final int REQUIRED = 0;
+    static final int OPTIONAL = 1;
+
+    // encodings
+    static final int PLAIN = 0;
+    static final int RLE = 3;
+
+    // codecs
+    static final int UNCOMPRESSED = 0;
+    static final int GZIP = 2;
+
+    // page types
+    static final int DATA_PAGE = 0;
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private Parquet() { // empty
+    }
+
+    /**
+     * A column of the flat schema.
+     */
+    static final class Column {
+
+        final String name;
+        final int type;
+        final int convertedType;
+        final int repetition;
+        final int typeLength;
+
+        Column(String name, int type, int convertedType, int repetition, int typeLength) {
+            this.name = name;
+            this.type = type;
+            this.convertedType = convertedType;
+            this.repetition = repetition;
+            this.typeLength = typeLength;
+        }
+
+        static Column of(ColumnDefinition def) {
+            final String name = def.getName();
+            switch (def.getSqlType()) {
+                case Types.BIT:
+                case Types.BOOLEAN:
+                    return new Column(name, BOOLEAN, NONE, OPTIONAL, 0);
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                    return new Column(name, INT32, NONE, OPTIONAL, 0);
+                case Types.BIGINT:
+                    return new Column(name, INT64, NONE, OPTIONAL, 0);
+                case Types.REAL:
+                    return new Column(name, FLOAT, NONE, OPTIONAL, 0);
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    return new Column(name, DOUBLE, NONE, OPTIONAL, 0);
+                case Types.DATE:
+                    return new Column(name, INT32, DATE, OPTIONAL, 0);
+                case Types.TIMESTAMP:
+                    return new Column(name, INT64, TIMESTAMP_MILLIS, OPTIONAL, 0);
+                case Types.BINARY:
+                case Types.VARBINARY:
+                case Types.LONGVARBINARY:
+                case Types.BLOB:
+                    return new Column(name, BYTE_ARRAY, NONE, OPTIONAL, 0);
+                default:
+                    // DECIMAL and NUMERIC are also stored as strings to keep the precision
+                    return new Column(name, BYTE_ARRAY, UTF8, OPTIONAL, 0);
+            }
+        }
+
+    }
+
+    /**
+     * Converts a date into the number of days from the epoch, keeping the local date.
+     * @param date
+     * @return
+     */
+    static int toDays(java.util.Date date) {
+        Calendar local = Calendar.getInstance();
+        local.setTime(date);
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.clear();
+        utc.set(local.get(Calendar.YEAR), local.get(Calendar.MONTH), local.get(Calendar.DATE));
+        return (int)Math.floor(utc.getTimeInMillis() / (double)MILLIS_PER_DAY);
+    }
+
+    /**
+     * Converts the number of days from the epoch into a local date.
+     * @param days
+     * @return
+     */
+    static java.sql.Date fromDays(int days) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.setTimeInMillis(days * MILLIS_PER_DAY);
+        Calendar local = Calendar.getInstance();
+        local.clear();
+        local.set(utc.get(Calendar.YEAR), utc.get(Calendar.MONTH), utc.get(Calendar.DATE));
+        return new java.sql.Date(local.getTimeInMillis());
+    }
+
+    static void writeIntLE(OutputStream os, int value) throws IOException {
+        os.write(value);
+        os.write(value >>> 8);
+        os.write(value >>> 16);
+        os.write(value >>> 24);
+    }
+
+    static void writeLongLE(OutputStream os, long value) throws IOException {
+        writeIntLE(os, (int)value);
+        writeIntLE(os, (int)(value >>> 32));
+    }
+
+    static void writeVarint(OutputStream os, long value) throws IOException {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            os.write((int)((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        os.write((int)v);
+    }
+
+    static long readVarint(ByteBuffer buffer) throws IOException {
+        long result = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = buffer.get();
+            result |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("invalid varint");
+    }
+
+    /**
+     * A writer of the Thrift compact protocol.
+     */
+    static final class CompactWriter {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final Deque<Integer> lastIds = new ArrayDeque<>();
+        private int lastId;
+
+        void structBegin() {
+            lastIds.push(lastId);
+            lastId = 0;
+        }
+
+        void structEnd() {
+            out.write(0);
+            lastId = lastIds.pop();
+        }
+
+        void fieldStruct(int id) throws IOException {
+            fieldHeader(id, 12);
+            structBegin();
+        }
+
+        void fieldList(int id, int elementType, int size) throws IOException {
+            fieldHeader(id, 9);
+            listHeader(elementType, size);
+        }
+
+        void fieldI32(int id, int value) throws IOException {
+            fieldHeader(id, 5);
+            i32(value);
+        }
+
+        void fieldI64(int id, long value) throws IOException {
+            fieldHeader(id, 6);
+            writeVarint(out, (value << 1) ^ (value >> 63));
+        }
+
+        void fieldString(int id, String value) throws IOException {
+            fieldHeader(id, 8);
+            string(value);
+        }
+
+        void i32(int value) throws IOException {
+            writeVarint(out, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+        }
+
+        void string(String value) throws IOException {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.write(bytes);
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+        private void fieldHeader(int id, int type) throws IOException {
+            final int delta = id - lastId;
+            if (delta > 0 && delta <= 15) {
+                out.write((delta << 4) | type);
+            } else {
+                out.write(type);
+                i32(id);
+            }
+            lastId = id;
+        }
+
+        private void listHeader(int elementType, int size) throws IOException {
+            if (size < 15) {
+                out.write((size << 4) | elementType);
+            } else {
+                out.write(0xF0 | elementType);
+                writeVarint(out, size);
+            }
+        }
+
+    }
+
+    /**
+     * A reader of the Thrift compact protocol.
+     */
+    static final class CompactReader {
+
+        private final ByteBuffer buffer;
+        private final Deque<Integer> lastIds = new ArrayDeque<>();
+        private int lastId;
+        private int fieldType;
+
+        CompactReader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void structBegin() {
+            lastIds.push(lastId);
+            lastId = 0;
+        }
+
+        void structEnd() {
+            lastId = lastIds.pop();
+        }
+
+        /**
+         * Reads the header of the next field.
+         * @return the field ID, or 0 if it reached the end of the struct
+         * @throws IOException
+         */
+        int readFieldBegin() throws IOException {
+            final int b = buffer.get() & 0xFF;
+            if (b == 0) {
+                return 0;
+            }
+            fieldType = b & 0x0F;
+            final int delta = b >>> 4;
+            lastId = (delta == 0) ? readI32() : lastId + delta;
+            return lastId;
+        }
+
+        int getFieldType() {
+            return fieldType;
+        }
+
+        /**
+         * Reads the header of a list.
+         * @return the size of the list
+         * @throws IOException
+         */
+        int readListBegin() throws IOException {
+            final int b = buffer.get() & 0xFF;
+            final int size = b >>> 4;
+            return (size == 15) ? (int)readVarint(buffer) : size;
+        }
+
+        int readI32() throws IOException {
+            final int n = (int)readVarint(buffer);
+            return (n >>> 1) ^ -(n & 1);
+        }
+
+        long readI64() throws IOException {
+            final long n = readVarint(buffer);
+            return (n >>> 1) ^ -(n & 1);
+        }
+
+        String readString() throws IOException {
+            byte[] bytes = new byte[(int)readVarint(buffer)];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        void skipField() throws IOException {
+            skip(fieldType, false);
+        }
+
+        private void skip(int type, boolean element) throws IOException {
+            switch (type) {
+                case 1: // BOOLEAN_TRUE
+                case 2: // BOOLEAN_FALSE
+                    if (element) {
+                        buffer.get();
+                    }
+                    break;
+                case 3: // BYTE
+                    buffer.get();
+                    break;
+                case 4: // I16
+                case 5: // I32
+                case 6: // I64
+                    readVarint(buffer);
+                    break;
+                case 7: // DOUBLE
+                    buffer.position(buffer.position() + 8);
+                    break;
+                case 8: // BINARY
+                    final int length = (int)readVarint(buffer);
+                    buffer.position(buffer.position() + length);
+                    break;
+                case 9: // LIST
+                case 10: { // SET
+                    final int b = buffer.get() & 0xFF;
+                    final int size = ((b >>> 4) == 15) ? (int)readVarint(buffer) : b >>> 4;
+                    for (int i = 0; i < size; i++) {
+                        skip(b & 0x0F, true);
+                    }
+                    break;
+                }
+                case 11: { // MAP
+                    final int size = (int)readVarint(buffer);
+                    if (size > 0) {
+                        final int types = buffer.get() & 0xFF;
+                        for (int i = 0; i < size; i++) {
+                            skip(types >>> 4, true);
+                            skip(types & 0x0F, true);
+                        }
+                    }
+                    break;
+                }
+                case 12: // STRUCT
+                    structBegin();
+                    while (readFieldBegin() != 0) {
+                        skipField();
+                    }
+                    structEnd();
+                    break;
+                default:
+                    throw new IOException("unknown thrift type: " + type);
+            }
+        }
+
+    }
+
+}
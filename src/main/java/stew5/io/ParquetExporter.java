@@ -0,0 +1,468 @@
+package stew5.io;
+
+import static stew5.io.Parquet.*;
+import java.io.*;
+import java.nio.charset.*;
+import java.sql.*;
+import java.util.*;
+import java.util.zip.*;
+import stew5.*;
+
+/**
+ * An Exporter for Apache Parquet.
+ *
+ * The rows are buffered into column chunks, and a row group is written
+ * when the number of rows or the buffered size reaches its limit.
+ * The column types come from <code>declareColumns</code>;
+ * without the declaration, all columns are written as strings.
+ */
+public final class ParquetExporter extends Exporter {
+
+    static final int DEFAULT_ROWGROUP_ROWS = 100000;
+    static final int DEFAULT_ROWGROUP_SIZE = 67108864;
+
+    private final int rowGroupRows;
+    private final long rowGroupSize;
+    private final int codec;
+    private final List<RowGroupInfo> rowGroups;
+
+    private Column[] columns;
+    private ColumnBuffer[] buffers;
+    private int bufferedRows;
+    private long position;
+    private long rowCount;
+
+    protected ParquetExporter(OutputStream os) throws IOException {
+        super(os);
+        this.rowGroupRows = Math.max(1, App.props.getAsInt("io.parquet.rowgroup.rows", DEFAULT_ROWGROUP_ROWS));
+        this.rowGroupSize = Math.max(1, App.props.getAsInt("io.parquet.rowgroup.size", DEFAULT_ROWGROUP_SIZE));
+        this.codec = App.props.get("io.parquet.codec", "").equalsIgnoreCase("gzip") ? GZIP : UNCOMPRESSED;
+        this.rowGroups = new ArrayList<>();
+        write(MAGIC);
+    }
+
+    @Override
+    public void declareColumns(ColumnDefinition... definitions) throws IOException {
+        ensureOpen();
+        if (columns != null) {
+            throw new IOException("columns were already declared");
+        }
+        Column[] a = new Column[definitions.length];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = Column.of(definitions[i]);
+        }
+        setColumns(a);
+    }
+
+    /**
+     * Sets the column names.
+     * In Parquet, the header is a part of the schema, not a row.
+     */
+    @Override
+    protected void writeHeader(Object[] header) throws IOException {
+        ensureOpen();
+        if (bufferedRows > 0 || rowCount > 0) {
+            throw new IOException("header must be added before rows");
+        }
+        if (columns == null) {
+            setColumns(toStringColumns(header.length));
+        }
+        if (header.length != columns.length) {
+            throw new IOException("column count mismatch: " + header.length + " != " + columns.length);
+        }
+        for (int i = 0; i < columns.length; i++) {
+            final Column c = columns[i];
+            columns[i] = new Column(String.valueOf(header[i]), c.type, c.convertedType, c.repetition, c.typeLength);
+        }
+    }
+
+    @Override
+    public void addRow(Object... values) throws IOException {
+        ensureOpen();
+        if (columns == null) {
+            setColumns(toStringColumns(values.length));
+        }
+        if (values.length != columns.length) {
+            throw new IOException("column count mismatch: " + values.length + " != " + columns.length);
+        }
+        long size = 0L;
+        for (int i = 0; i < values.length; i++) {
+            try {
+                buffers[i].add(values[i]);
+            } catch (IOException | RuntimeException ex) {
+                // keeps the columns aligned
+                for (int j = 0; j <= i; j++) {
+                    buffers[j].rollback();
+                }
+                throw ex;
+            }
+            size += buffers[i].size();
+        }
+        ++bufferedRows;
+        if (bufferedRows >= rowGroupRows || size >= rowGroupSize) {
+            flushRowGroup();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ensureOpen();
+        try {
+            if (columns == null) {
+                setColumns(new Column[0]);
+            }
+            flushRowGroup();
+            byte[] footer = createFooter();
+            write(footer);
+            writeIntLE(os, footer.length);
+            write(MAGIC);
+        } finally {
+            super.close();
+        }
+    }
+
+    private void setColumns(Column[] columns) {
+        this.columns = columns;
+        this.buffers = new ColumnBuffer[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            buffers[i] = new ColumnBuffer(i);
+        }
+    }
+
+    private static Column[] toStringColumns(int count) {
+        Column[] a = new Column[count];
+        for (int i = 0; i < count; i++) {
+            a[i] = new Column("column" + (i + 1), BYTE_ARRAY, UTF8, OPTIONAL, 0);
+        }
+        return a;
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        os.write(bytes);
+        position += bytes.length;
+    }
+
+    private void flushRowGroup() throws IOException {
+        if (bufferedRows == 0) {
+            return;
+        }
+        RowGroupInfo rowGroup = new RowGroupInfo(bufferedRows);
+        for (final ColumnBuffer buffer : buffers) {
+            final long offset = position;
+            byte[] data = buffer.toPageData();
+            final int uncompressedSize = data.length;
+            if (codec == GZIP) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                try (OutputStream gz = new GZIPOutputStream(bos)) {
+                    gz.write(data);
+                }
+                data = bos.toByteArray();
+            }
+            CompactWriter w = new CompactWriter();
+            w.structBegin();
+            w.fieldI32(1, DATA_PAGE);
+            w.fieldI32(2, uncompressedSize);
+            w.fieldI32(3, data.length);
+            w.fieldStruct(5);
+            w.fieldI32(1, bufferedRows);
+            w.fieldI32(2, PLAIN);
+            w.fieldI32(3, RLE);
+            w.fieldI32(4, RLE);
+            w.structEnd();
+            w.structEnd();
+            final byte[] pageHeader = w.toByteArray();
+            write(pageHeader);
+            write(data);
+            rowGroup.add(new ChunkInfo(offset,
+                                       bufferedRows,
+                                       pageHeader.length + uncompressedSize,
+                                       pageHeader.length + data.length));
+            buffer.clear();
+        }
+        rowGroups.add(rowGroup);
+        rowCount += bufferedRows;
+        bufferedRows = 0;
+    }
+
+    private byte[] createFooter() throws IOException {
+        CompactWriter w = new CompactWriter();
+        w.structBegin();
+        w.fieldI32(1, 1); // version
+        w.fieldList(2, 12, columns.length + 1);
+        w.structBegin();
+        w.fieldString(4, "schema");
+        w.fieldI32(5, columns.length);
+        w.structEnd();
+        for (final Column c : columns) {
+            w.structBegin();
+            w.fieldI32(1, c.type);
+            w.fieldI32(3, c.repetition);
+            w.fieldString(4, c.name);
+            if (c.convertedType != NONE) {
+                w.fieldI32(6, c.convertedType);
+            }
+            w.structEnd();
+        }
+        w.fieldI64(3, rowCount);
+        w.fieldList(4, 12, rowGroups.size());
+        for (final RowGroupInfo rowGroup : rowGroups) {
+            w.structBegin();
+            w.fieldList(1, 12, rowGroup.chunks.size());
+            long totalSize = 0L;
+            for (int i = 0; i < columns.length; i++) {
+                final ChunkInfo chunk = rowGroup.chunks.get(i);
+                totalSize += chunk.uncompressedSize;
+                w.structBegin();
+                w.fieldI64(2, chunk.offset);
+                w.fieldStruct(3);
+                w.fieldI32(1, columns[i].type);
+                w.fieldList(2, 5, 2);
+                w.i32(PLAIN);
+                w.i32(RLE);
+                w.fieldList(3, 8, 1);
+                w.string(columns[i].name);
+                w.fieldI32(4, codec);
+                w.fieldI64(5, chunk.valueCount);
+                w.fieldI64(6, chunk.uncompressedSize);
+                w.fieldI64(7, chunk.compressedSize);
+                w.fieldI64(9, chunk.offset);
+                w.structEnd();
+                w.structEnd();
+            }
+            w.fieldI64(2, totalSize);
+            w.fieldI64(3, rowGroup.rowCount);
+            w.structEnd();
+        }
+        w.fieldString(6, "Stew " + App.getVersion());
+        w.structEnd();
+        return w.toByteArray();
+    }
+
+    private static final class RowGroupInfo {
+
+        final int rowCount;
+        final List<ChunkInfo> chunks;
+
+        RowGroupInfo(int rowCount) {
+            this.rowCount = rowCount;
+            this.chunks = new ArrayList<>();
+        }
+
+        void add(ChunkInfo chunk) {
+            chunks.add(chunk);
+        }
+
+    }
+
+    private static final class ChunkInfo {
+
+        final long offset;
+        final int valueCount;
+        final long uncompressedSize;
+        final long compressedSize;
+
+        ChunkInfo(long offset, int valueCount, long uncompressedSize, long compressedSize) {
+            this.offset = offset;
+            this.valueCount = valueCount;
+            this.uncompressedSize = uncompressedSize;
+            this.compressedSize = compressedSize;
+        }
+
+    }
+
+    /**
+     * The buffer of a column chunk, which holds the definition levels and the PLAIN encoded values.
+     */
+    private final class ColumnBuffer {
+
+        private final int index;
+        private final ValueBuffer values;
+        private BitBuffer definitions;
+        private BitBuffer booleans;
+        private int markedValues;
+        private int markedDefinitions;
+        private int markedBooleans;
+
+        ColumnBuffer(int index) {
+            this.index = index;
+            this.values = new ValueBuffer();
+            this.definitions = new BitBuffer();
+            this.booleans = new BitBuffer();
+        }
+
+        long size() {
+            return values.size() + definitions.byteSize() + booleans.byteSize();
+        }
+
+        void add(Object value) throws IOException {
+            markedValues = values.size();
+            markedDefinitions = definitions.size();
+            markedBooleans = booleans.size();
+            if (value == null) {
+                definitions.add(false);
+                return;
+            }
+            definitions.add(true);
+            final Column c = columns[index];
+            switch (c.type) {
+                case BOOLEAN:
+                    booleans.add(toBoolean(value));
+                    break;
+                case INT32:
+                    if (c.convertedType == DATE) {
+                        writeIntLE(values, toDays(toDate(value)));
+                    } else {
+                        writeIntLE(values, (value instanceof Number)
+                                ? ((Number)value).intValue()
+                                : Integer.parseInt(value.toString().trim()));
+                    }
+                    break;
+                case INT64:
+                    if (c.convertedType == TIMESTAMP_MILLIS) {
+                        writeLongLE(values, toTimestamp(value).getTime());
+                    } else {
+                        writeLongLE(values, (value instanceof Number)
+                                ? ((Number)value).longValue()
+                                : Long.parseLong(value.toString().trim()));
+                    }
+                    break;
+                case FLOAT:
+                    writeIntLE(values, Float.floatToIntBits((value instanceof Number)
+                            ? ((Number)value).floatValue()
+                            : Float.parseFloat(value.toString().trim())));
+                    break;
+                case DOUBLE:
+                    writeLongLE(values, Double.doubleToLongBits((value instanceof Number)
+                            ? ((Number)value).doubleValue()
+                            : Double.parseDouble(value.toString().trim())));
+                    break;
+                default:
+                    final byte[] bytes = toBytes(value);
+                    writeIntLE(values, bytes.length);
+                    values.write(bytes);
+            }
+        }
+
+        byte[] toPageData() throws IOException {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(values.size() + definitions.byteSize() + 16);
+            // definition levels: one bit-packed run with bit width 1
+            ByteArrayOutputStream levels = new ByteArrayOutputStream();
+            final int groups = (bufferedRows + 7) / 8;
+            writeVarint(levels, ((long)groups << 1) | 1);
+            levels.write(definitions.toByteArray(groups));
+            writeIntLE(bos, levels.size());
+            levels.writeTo(bos);
+            if (columns[index].type == BOOLEAN) {
+                bos.write(booleans.toByteArray((booleans.size() + 7) / 8));
+            } else {
+                values.writeTo(bos);
+            }
+            return bos.toByteArray();
+        }
+
+        /**
+         * Removes the value which was added last.
+         */
+        void rollback() {
+            values.truncate(markedValues);
+            definitions.truncate(markedDefinitions);
+            booleans.truncate(markedBooleans);
+        }
+
+        void clear() {
+            values.reset();
+            definitions = new BitBuffer();
+            booleans = new BitBuffer();
+        }
+
+    }
+
+    private static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean)value;
+        } else if (value instanceof Number) {
+            return ((Number)value).intValue() != 0;
+        }
+        return Boolean.parseBoolean(value.toString().trim());
+    }
+
+    private static java.util.Date toDate(Object value) {
+        if (value instanceof java.util.Date) {
+            return (java.util.Date)value;
+        }
+        return java.sql.Date.valueOf(value.toString().trim());
+    }
+
+    private static java.util.Date toTimestamp(Object value) {
+        if (value instanceof java.util.Date) {
+            return (java.util.Date)value;
+        }
+        return Timestamp.valueOf(value.toString().trim());
+    }
+
+    private static byte[] toBytes(Object value) throws IOException {
+        try {
+            if (value instanceof byte[]) {
+                return (byte[])value;
+            } else if (value instanceof Blob) {
+                final Blob blob = (Blob)value;
+                return blob.getBytes(1L, (int)blob.length());
+            } else if (value instanceof Clob) {
+                final Clob clob = (Clob)value;
+                return clob.getSubString(1L, (int)clob.length()).getBytes(StandardCharsets.UTF_8);
+            }
+        } catch (SQLException ex) {
+            throw new IOException(ex);
+        }
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A growable bit array packed in LSB first order.
+     */
+    private static final class BitBuffer {
+
+        private byte[] bytes = new byte[64];
+        private int size;
+
+        void add(boolean bit) {
+            final int i = size >>> 3;
+            if (i >= bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            if (bit) {
+                bytes[i] |= 1 << (size & 7);
+            }
+            ++size;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void truncate(int newSize) {
+            for (int i = newSize; i < size; i++) {
+                bytes[i >>> 3] &= ~(1 << (i & 7));
+            }
+            size = Math.min(size, newSize);
+        }
+
+        int byteSize() {
+            return (size + 7) / 8;
+        }
+
+        byte[] toByteArray(int length) {
+            return Arrays.copyOf(bytes, length);
+        }
+
+    }
+
+    private static final class ValueBuffer extends ByteArrayOutputStream {
+
+        void truncate(int newSize) {
+            count = Math.min(count, newSize);
+        }
+
+    }
+
+}
@@ -0,0 +1,394 @@
+package stew5.io;
+
+import static stew5.io.Parquet.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.sql.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * An Importer for Apache Parquet.
+ *
+ * It reads one row group at a time, so that the memory use is bounded by the row group size.
+ * The header is the column names in the schema.
+ */
+public final class ParquetImporter extends Importer {
+
+    private final FileChannel channel;
+    private final Column[] columns;
+    private final List<RowGroupInfo> rowGroups;
+
+    private int rowGroupIndex;
+    private Object[][] currentColumns;
+    private int currentRowCount;
+    private int currentRow;
+
+    protected ParquetImporter(File file) throws IOException {
+        this(new FileInputStream(file));
+    }
+
+    private ParquetImporter(FileInputStream is) throws IOException {
+        super(is);
+        this.channel = is.getChannel();
+        this.rowGroups = new ArrayList<>();
+        try {
+            this.columns = readFooter();
+        } catch (IOException | RuntimeException ex) {
+            is.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    protected Object[] readHeader() throws IOException {
+        ensureOpen();
+        Object[] a = new Object[columns.length];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = columns[i].name;
+        }
+        return a;
+    }
+
+    @Override
+    public Object[] nextRow() throws IOException {
+        ensureOpen();
+        while (currentRow >= currentRowCount) {
+            if (rowGroupIndex >= rowGroups.size()) {
+                return new Object[0];
+            }
+            loadRowGroup(rowGroups.get(rowGroupIndex++));
+        }
+        Object[] row = new Object[currentColumns.length];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = currentColumns[i][currentRow];
+        }
+        ++currentRow;
+        return row;
+    }
+
+    private Column[] readFooter() throws IOException {
+        final long size = channel.size();
+        if (size < 12) {
+            throw new IOException("not a parquet file");
+        }
+        ByteBuffer tail = read(size - 8, 8);
+        byte[] magic = new byte[4];
+        final int footerLength = tail.getInt();
+        tail.get(magic);
+        if (!Arrays.equals(MAGIC, magic) || footerLength <= 0 || footerLength > size - 12) {
+            throw new IOException("not a parquet file");
+        }
+        CompactReader r = new CompactReader(read(size - 8 - footerLength, footerLength));
+        List<Column> columnList = new ArrayList<>();
+        r.structBegin();
+        for (int id; (id = r.readFieldBegin()) != 0;) {
+            if (id == 2) {
+                final int n = r.readListBegin();
+                for (int i = 0; i < n; i++) {
+                    Column c = readSchemaElement(r);
+                    if (i > 0) {
+                        columnList.add(c);
+                    }
+                }
+            } else if (id == 4) {
+                final int n = r.readListBegin();
+                for (int i = 0; i < n; i++) {
+                    rowGroups.add(readRowGroup(r));
+                }
+            } else {
+                r.skipField();
+            }
+        }
+        r.structEnd();
+        return columnList.toArray(new Column[columnList.size()]);
+    }
+
+    private static Column readSchemaElement(CompactReader r) throws IOException {
+        int type = -1;
+        int typeLength = 0;
+        int repetition = REQUIRED;
+        String name = "";
+        int children = 0;
+        int convertedType = NONE;
+        r.structBegin();
+        for (int id; (id = r.readFieldBegin()) != 0;) {
+            switch (id) {
+                case 1:
+                    type = r.readI32();
+                    break;
+                case 2:
+                    typeLength = r.readI32();
+                    break;
+                case 3:
+                    repetition = r.readI32();
+                    break;
+                case 4:
+                    name = r.readString();
+                    break;
+                case 5:
+                    children = r.readI32();
+                    break;
+                case 6:
+                    convertedType = r.readI32();
+                    break;
+                default:
+                    r.skipField();
+            }
+        }
+        r.structEnd();
+        if (type < 0 && children > 0) {
+            return new Column(name, -1, NONE, REQUIRED, children);
+        }
+        if (repetition > OPTIONAL) {
+            throw new IOException("repeated column is not supported: " + name);
+        }
+        return new Column(name, type, convertedType, repetition, typeLength);
+    }
+
+    private static RowGroupInfo readRowGroup(CompactReader r) throws IOException {
+        RowGroupInfo rowGroup = new RowGroupInfo();
+        r.structBegin();
+        for (int id; (id = r.readFieldBegin()) != 0;) {
+            if (id == 1) {
+                final int n = r.readListBegin();
+                for (int i = 0; i < n; i++) {
+                    rowGroup.chunks.add(readColumnChunk(r));
+                }
+            } else if (id == 3) {
+                rowGroup.rowCount = r.readI64();
+            } else {
+                r.skipField();
+            }
+        }
+        r.structEnd();
+        return rowGroup;
+    }
+
+    private static ChunkInfo readColumnChunk(CompactReader r) throws IOException {
+        ChunkInfo chunk = new ChunkInfo();
+        r.structBegin();
+        for (int id; (id = r.readFieldBegin()) != 0;) {
+            if (id == 3) {
+                r.structBegin();
+                for (int id2; (id2 = r.readFieldBegin()) != 0;) {
+                    switch (id2) {
+                        case 4:
+                            chunk.codec = r.readI32();
+                            break;
+                        case 7:
+                            chunk.compressedSize = r.readI64();
+                            break;
+                        case 9:
+                            chunk.dataPageOffset = r.readI64();
+                            break;
+                        case 11:
+                            chunk.dictionaryPageOffset = r.readI64();
+                            break;
+                        default:
+                            r.skipField();
+                    }
+                }
+                r.structEnd();
+            } else {
+                r.skipField();
+            }
+        }
+        r.structEnd();
+        return chunk;
+    }
+
+    private void loadRowGroup(RowGroupInfo rowGroup) throws IOException {
+        if (rowGroup.rowCount > Integer.MAX_VALUE || rowGroup.chunks.size() != columns.length) {
+            throw new IOException("unsupported row group");
+        }
+        final int rowCount = (int)rowGroup.rowCount;
+        Object[][] a = new Object[columns.length][];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = loadColumnChunk(columns[i], rowGroup.chunks.get(i), rowCount);
+        }
+        currentColumns = a;
+        currentRowCount = rowCount;
+        currentRow = 0;
+    }
+
+    private Object[] loadColumnChunk(Column column, ChunkInfo chunk, int rowCount) throws IOException {
+        if (column.type < 0) {
+            throw new IOException("nested column is not supported: " + column.name);
+        }
+        if (chunk.dictionaryPageOffset > 0) {
+            throw new IOException("dictionary encoding is not supported: " + column.name);
+        }
+        if (chunk.codec != UNCOMPRESSED && chunk.codec != GZIP) {
+            throw new IOException("codec " + chunk.codec + " is not supported: " + column.name);
+        }
+        ByteBuffer buffer = read(chunk.dataPageOffset, (int)chunk.compressedSize);
+        Object[] values = new Object[rowCount];
+        int count = 0;
+        while (count < rowCount && buffer.hasRemaining()) {
+            CompactReader r = new CompactReader(buffer);
+            int pageType = -1;
+            int uncompressedSize = 0;
+            int compressedSize = 0;
+            int valueCount = 0;
+            int encoding = PLAIN;
+            r.structBegin();
+            for (int id; (id = r.readFieldBegin()) != 0;) {
+                if (id == 1) {
+                    pageType = r.readI32();
+                } else if (id == 2) {
+                    uncompressedSize = r.readI32();
+                } else if (id == 3) {
+                    compressedSize = r.readI32();
+                } else if (id == 5) {
+                    r.structBegin();
+                    for (int id2; (id2 = r.readFieldBegin()) != 0;) {
+                        if (id2 == 1) {
+                            valueCount = r.readI32();
+                        } else if (id2 == 2) {
+                            encoding = r.readI32();
+                        } else {
+                            r.skipField();
+                        }
+                    }
+                    r.structEnd();
+                } else {
+                    r.skipField();
+                }
+            }
+            r.structEnd();
+            byte[] data = new byte[compressedSize];
+            buffer.get(data);
+            if (pageType != DATA_PAGE) {
+                continue; // skips index pages
+            }
+            if (encoding != PLAIN) {
+                throw new IOException("encoding " + encoding + " is not supported: " + column.name);
+            }
+            if (chunk.codec == GZIP) {
+                data = inflate(data, uncompressedSize);
+            }
+            decodePage(column, ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN), values, count, valueCount);
+            count += valueCount;
+        }
+        return values;
+    }
+
+    private static byte[] inflate(byte[] data, int uncompressedSize) throws IOException {
+        byte[] bytes = new byte[uncompressedSize];
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(data)))) {
+            in.readFully(bytes);
+        }
+        return bytes;
+    }
+
+    private static void decodePage(Column column, ByteBuffer page, Object[] values, int offset, int valueCount)
+            throws IOException {
+        boolean[] defined = new boolean[valueCount];
+        if (column.repetition == OPTIONAL) {
+            final int length = page.getInt();
+            final int end = page.position() + length;
+            decodeLevels(page, defined);
+            page.position(end);
+        } else {
+            Arrays.fill(defined, true);
+        }
+        int bitIndex = 0;
+        for (int i = 0; i < valueCount; i++) {
+            if (!defined[i]) {
+                continue;
+            }
+            final Object value;
+            switch (column.type) {
+                case BOOLEAN:
+                    value = ((page.get(page.position() + (bitIndex >>> 3)) >>> (bitIndex & 7)) & 1) == 1;
+                    ++bitIndex;
+                    break;
+                case INT32:
+                    final int n = page.getInt();
+                    value = (column.convertedType == DATE) ? fromDays(n) : (Object)n;
+                    break;
+                case INT64:
+                    final long m = page.getLong();
+                    value = (column.convertedType == TIMESTAMP_MILLIS) ? new Timestamp(m) : (Object)m;
+                    break;
+                case FLOAT:
+                    value = page.getFloat();
+                    break;
+                case DOUBLE:
+                    value = page.getDouble();
+                    break;
+                case BYTE_ARRAY:
+                case FIXED_LEN_BYTE_ARRAY:
+                    byte[] bytes = new byte[(column.type == BYTE_ARRAY) ? page.getInt() : column.typeLength];
+                    page.get(bytes);
+                    value = (column.convertedType == UTF8) ? new String(bytes, StandardCharsets.UTF_8) : bytes;
+                    break;
+                default:
+                    throw new IOException("type " + column.type + " is not supported: " + column.name);
+            }
+            values[offset + i] = value;
+        }
+    }
+
+    /**
+     * Decodes the definition levels (RLE/bit-packed hybrid with bit width 1).
+     */
+    private static void decodeLevels(ByteBuffer page, boolean[] defined) throws IOException {
+        int i = 0;
+        while (i < defined.length) {
+            final long header = readVarint(page);
+            if ((header & 1) == 1) {
+                final int count = (int)(header >>> 1) * 8;
+                for (int k = 0; k < count; k += 8) {
+                    final int b = page.get() & 0xFF;
+                    for (int bit = 0; bit < 8 && i < defined.length; bit++) {
+                        defined[i++] = ((b >>> bit) & 1) == 1;
+                    }
+                }
+            } else {
+                final int count = (int)(header >>> 1);
+                final boolean value = page.get() != 0;
+                for (int k = 0; k < count && i < defined.length; k++) {
+                    defined[i++] = value;
+                }
+            }
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static final class RowGroupInfo {
+
+        final List<ChunkInfo> chunks = new ArrayList<>();
+        long rowCount;
+
+        RowGroupInfo() { // empty
+        }
+
+    }
+
+    private static final class ChunkInfo {
+
+        int codec;
+        long compressedSize;
+        long dataPageOffset;
+        long dictionaryPageOffset;
+
+        ChunkInfo() { // empty
+        }
+
+    }
+
+}
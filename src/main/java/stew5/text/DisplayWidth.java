@@ -0,0 +1,85 @@
+package stew5.text;
+
+/**
+ * The display width of characters on the console.
+ *
+ * <ul>
+ * <li>U+0000 - U+00FF: half-width</li>
+ * <li>U+FF61 - U+FFDC and U+FFE8 - U+FFEE: half-width forms (Japanese katakana, Korean jamo, symbols)</li>
+ * <li>combining marks and format characters (Mn, Me, Cf): zero-width</li>
+ * <li>CJK ideographs in the supplementary planes and emoji: full-width</li>
+ * <li>the other supplementary characters: half-width</li>
+ * <li>the other BMP characters: full-width (includes ambiguous width characters)</li>
+ * </ul>
+ * The widths of BMP characters are precomputed into a table.
+ */
+final class DisplayWidth {
+
+    private static final byte[] BMP_WIDTHS = createTable();
+
+    private DisplayWidth() { // empty
+    }
+
+    /**
+     * Returns the width of the code point.
+     * @param codePoint
+     * @return 0, 1 or 2
+     */
+    static int of(int codePoint) {
+        if (codePoint < BMP_WIDTHS.length) {
+            return BMP_WIDTHS[codePoint];
+        }
+        if (codePoint >= 0x20000 && codePoint <= 0x3FFFD || codePoint >= 0x1F000 && codePoint <= 0x1FAFF) {
+            return 2;
+        }
+        return isZeroWidth(codePoint) ? 0 : 1;
+    }
+
+    /**
+     * Returns the width of the text.
+     * @param s
+     * @return
+     */
+    static int of(CharSequence s) {
+        final int length = s.length();
+        int width = 0;
+        for (int i = 0; i < length;) {
+            final int codePoint = Character.codePointAt(s, i);
+            width += of(codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return width;
+    }
+
+    private static byte[] createTable() {
+        byte[] a = new byte[0x10000];
+        for (int c = 0; c < a.length; c++) {
+            final int width;
+            if (c <= 0xFF) {
+                width = 1;
+            } else if (isZeroWidth(c)) {
+                width = 0;
+            } else if (c >= 0xFF61 && c <= 0xFFDC || c >= 0xFFE8 && c <= 0xFFEE) {
+                width = 1;
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                width = 1; // unpaired surrogate
+            } else {
+                width = 2;
+            }
+            a[c] = (byte)width;
+        }
+        return a;
+    }
+
+    private static boolean isZeroWidth(int codePoint) {
+        switch (Character.getType(codePoint)) {
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.FORMAT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+}
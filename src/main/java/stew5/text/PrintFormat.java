@@ -2,14 +2,28 @@ package stew5.text;
 
 import static java.util.FormattableFlags.LEFT_JUSTIFY;
 
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * The text formatter supports the width of
  *  multi-byte characters and full-width characters.
+ *
+ * The formats which consist of <code>%s</code> (with the width and <code>-</code> flag),
+ * <code>%%</code> and <code>%n</code> are compiled and cached,
+ * and the text is padded directly into the output buffer.
+ * The other formats are processed by <code>java.util.Formatter</code>.
+ * @see DisplayWidth
  */
 public final class PrintFormat {
 
+    private static final char SPACE = ' ';
+    private static final int CACHE_LIMIT = 64;
+    private static final Segment[] UNSUPPORTED = new Segment[0];
+
+    private static final ConcurrentMap<String, Segment[]> compiledFormats = new ConcurrentHashMap<>();
+
     /**
      * Formats text.
      * @param format
@@ -17,6 +31,41 @@ public final class PrintFormat {
      * @return
      */
     public static String format(String format, Object... args) {
+        Segment[] segments = compiledFormats.get(format);
+        if (segments == null) {
+            segments = compile(format);
+            if (compiledFormats.size() >= CACHE_LIMIT) {
+                compiledFormats.clear();
+            }
+            compiledFormats.put(format, segments);
+        }
+        if (segments == UNSUPPORTED) {
+            return formatWithFormatter(format, args);
+        }
+        StringBuilder out = new StringBuilder(format.length() + 16 * args.length);
+        int argIndex = 0;
+        for (final Segment segment : segments) {
+            if (segment.text != null) {
+                out.append(segment.text);
+                continue;
+            }
+            if (argIndex >= args.length) {
+                // the Formatter throws MissingFormatArgumentException
+                return formatWithFormatter(format, args);
+            }
+            final Object arg = args[argIndex++];
+            if (arg == null || arg instanceof CharSequence) {
+                appendFullwidth(out, (arg == null) ? "" : (CharSequence)arg, segment.width, segment.leftJustify);
+            } else if (arg instanceof Formattable) {
+                return formatWithFormatter(format, args);
+            } else {
+                appendHalfwidth(out, String.valueOf(arg), segment.width, segment.leftJustify);
+            }
+        }
+        return out.toString();
+    }
+
+    private static String formatWithFormatter(String format, Object... args) {
         List<Object> a = new ArrayList<>();
         for (Object arg : args) {
             final Object o;
@@ -34,59 +83,153 @@ public final class PrintFormat {
         }
     }
 
-    private static final class FullwidthFormatter implements Formattable {
-
-        private static final char SPACE = ' ';
+    /**
+     * A literal text or a <code>%s</code> conversion.
+     */
+    private static final class Segment {
 
-        private final char[] chars;
-        private final int length;
+        final String text;
+        final int width;
+        final boolean leftJustify;
 
-        FullwidthFormatter(String string) {
-            this.chars = string.toCharArray();
-            this.length = chars.length;
+        Segment(String text, int width, boolean leftJustify) {
+            this.text = text;
+            this.width = width;
+            this.leftJustify = leftJustify;
         }
 
-        @Override
-        public void formatTo(Formatter formatter, int flags, int width, int precision) {
-            final boolean leftJustify = (flags & LEFT_JUSTIFY) == LEFT_JUSTIFY;
-            StringBuilder buffer = new StringBuilder(width);
-            int count = 0;
-            for (int i = 0; i < length; i++) {
-                final int index = leftJustify ? i : length - 1 - i;
-                char c = chars[index];
-                if (leftJustify) {
-                    buffer.append(c);
-                } else {
-                    buffer.insert(0, c);
+    }
+
+    private static Segment[] compile(String format) {
+        List<Segment> a = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        final int length = format.length();
+        int i = 0;
+        while (i < length) {
+            final char c = format.charAt(i++);
+            if (c != '%') {
+                literal.append(c);
+                continue;
+            }
+            boolean leftJustify = false;
+            if (i < length && format.charAt(i) == '-') {
+                leftJustify = true;
+                ++i;
+            }
+            if (i < length && format.charAt(i) == '0') {
+                return UNSUPPORTED; // zero-padding flag
+            }
+            int width = -1;
+            while (i < length && format.charAt(i) >= '0' && format.charAt(i) <= '9') {
+                if (width > 99999) {
+                    return UNSUPPORTED;
                 }
-                final int w = getWidth(c);
-                if (++count >= width) {
-                    if (w == 2) {
-                        buffer.setCharAt(index, SPACE);
-                    }
-                    break;
+                width = Math.max(width, 0) * 10 + (format.charAt(i++) - '0');
+            }
+            if (i >= length) {
+                return UNSUPPORTED;
+            }
+            final char conversion = format.charAt(i++);
+            if (conversion == 's' && (width >= 0 || !leftJustify)) {
+                if (literal.length() > 0) {
+                    a.add(new Segment(literal.toString(), 0, false));
+                    literal.setLength(0);
                 }
-                if (w == 2) {
-                    ++count;
+                a.add(new Segment(null, width, leftJustify));
+            } else if (conversion == '%' && width < 0 && !leftJustify) {
+                literal.append('%');
+            } else if (conversion == 'n' && width < 0 && !leftJustify) {
+                literal.append(String.format("%n"));
+            } else {
+                return UNSUPPORTED;
+            }
+        }
+        if (literal.length() > 0) {
+            a.add(new Segment(literal.toString(), 0, false));
+        }
+        return a.toArray(new Segment[a.size()]);
+    }
+
+    /**
+     * Appends the text padded or truncated to the display width.
+     * If the text is longer than the width, the head (left-justified) or the tail (right-justified) is kept,
+     * and a full-width character across the boundary is replaced with a space.
+     * @param out
+     * @param s
+     * @param width the display width, or a negative value if not specified
+     * @param leftJustify
+     */
+    static void appendFullwidth(StringBuilder out, CharSequence s, int width, boolean leftJustify) {
+        if (width < 0) {
+            out.append(s);
+            return;
+        }
+        final int length = s.length();
+        int used = 0;
+        if (leftJustify) {
+            int i = 0;
+            while (i < length) {
+                final int codePoint = Character.codePointAt(s, i);
+                final int w = DisplayWidth.of(codePoint);
+                if (used + w > width) {
+                    break;
                 }
+                final int n = Character.charCount(codePoint);
+                out.append(s, i, i + n);
+                used += w;
+                i += n;
             }
-            if (count < width) {
-                char[] chars = new char[width - count];
-                Arrays.fill(chars, SPACE);
-                if (leftJustify) {
-                    buffer.append(chars);
-                } else {
-                    buffer.insert(0, chars);
+            appendSpaces(out, width - used);
+        } else {
+            int start = length;
+            while (start > 0) {
+                final int codePoint = Character.codePointBefore(s, start);
+                final int w = DisplayWidth.of(codePoint);
+                if (used + w > width) {
+                    break;
                 }
+                used += w;
+                start -= Character.charCount(codePoint);
             }
-            formatter.format(buffer.toString());
+            appendSpaces(out, width - used);
+            out.append(s, start, length);
         }
+    }
 
-        private static int getWidth(char ch) {
-            // U+0000 <= C <= U+00FF: half-width character
-            // U+FF61 <= C <= U+FF9F: half-width katakana (Japanese)
-            // otherwise            : full-width character
-            return (ch > '\u00FF' && (ch < '\uFF61' || ch > '\uFF9F')) ? 2 : 1;
+    private static void appendHalfwidth(StringBuilder out, String s, int width, boolean leftJustify) {
+        final int padding = width - s.length();
+        if (leftJustify) {
+            out.append(s);
+            appendSpaces(out, padding);
+        } else {
+            appendSpaces(out, padding);
+            out.append(s);
+        }
+    }
+
+    private static void appendSpaces(StringBuilder out, int n) {
+        for (int i = 0; i < n; i++) {
+            out.append(SPACE);
+        }
+    }
+
+    private static final class FullwidthFormatter implements Formattable {
+
+        private final String string;
+
+        FullwidthFormatter(String string) {
+            this.string = string;
+        }
+
+        @Override
+        public void formatTo(Formatter formatter, int flags, int width, int precision) {
+            StringBuilder buffer = new StringBuilder();
+            appendFullwidth(buffer, string, width, (flags & LEFT_JUSTIFY) == LEFT_JUSTIFY);
+            try {
+                formatter.out().append(buffer);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
         }
 
     }
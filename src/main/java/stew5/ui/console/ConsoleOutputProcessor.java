@@ -1,5 +1,6 @@
 package stew5.ui.console;
 
+import java.io.*;
 import java.sql.*;
 import java.util.*;
 import stew5.*;
@@ -13,8 +14,28 @@ public final class ConsoleOutputProcessor implements OutputProcessor {
 
     private static final int WIDTH_LIMIT = 30;
 
+    private final PrintStream out;
+    private final PrintStream err;
+
     private boolean quiet;
 
+    /**
+     * A constructor to output into the standard streams.
+     */
+    public ConsoleOutputProcessor() {
+        this(System.out, System.err);
+    }
+
+    /**
+     * A constructor.
+     * @param out the stream for results and messages
+     * @param err the stream for prompts and warnings
+     */
+    public ConsoleOutputProcessor(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
     @Override
     public void output(Object o) {
         if (o instanceof ResultSetReference) {
@@ -23,23 +44,23 @@ public final class ConsoleOutputProcessor implements OutputProcessor {
             outputResult(new ResultSetReference((ResultSet)o, ""));
         } else if (o instanceof Prompt) {
             if (!quiet) {
-                System.err.print(o);
+                err.print(o);
             }
         } else {
             if (!quiet) {
-                System.out.println(o);
+                out.println(o);
             }
         }
     }
 
-    private static void outputResult(ResultSetReference ref) {
+    private void outputResult(ResultSetReference ref) {
         try {
             // result
             ResultSet rs = ref.getResultSet();
             ColumnOrder order = ref.getOrder();
             ResultSetMetaData rsmeta = rs.getMetaData();
             final boolean needsOrderChange = order.size() > 0;
-            System.err.println();
+            err.println();
             // column info
             final int columnCount = (needsOrderChange) ? order.size() : rsmeta.getColumnCount();
             int maxWidth = 1;
@@ -57,26 +78,26 @@ public final class ConsoleOutputProcessor implements OutputProcessor {
                 final String format = "%" + widthExpression + "s";
                 borderFormat.append(" " + format);
                 if (i != 0) {
-                    System.out.print(' ');
+                    out.print(' ');
                 }
                 final String name = (needsOrderChange) ? order.getName(i) : rsmeta.getColumnName(index);
-                System.out.print(PrintFormat.format(format, name));
+                out.print(PrintFormat.format(format, name));
             }
-            System.out.println();
+            out.println();
             // border
             String format = borderFormat.substring(1);
             char[] borderChars = new char[maxWidth];
             Arrays.fill(borderChars, '-');
             Object[] borders = new String[columnCount];
             Arrays.fill(borders, String.valueOf(borderChars));
-            System.out.println(PrintFormat.format(format, borders));
+            out.println(PrintFormat.format(format, borders));
             // beginning of loop
             Object[] a = new Object[columnCount];
             final int limit = App.props.getAsInt("rowcount.limit", Integer.MAX_VALUE);
             int count = 0;
             while (rs.next()) {
                 if (count >= limit) {
-                    System.err.println(ResourceManager.Default.get("w.exceeded-limit", limit));
+                    err.println(ResourceManager.Default.get("w.exceeded-limit", limit));
                     break;
                 }
                 ++count;
@@ -84,13 +105,13 @@ public final class ConsoleOutputProcessor implements OutputProcessor {
                     final int index = (needsOrderChange) ? order.getOrder(i) : i + 1;
                     a[i] = rs.getString(index);
                 }
-                System.out.println(PrintFormat.format(format, a));
+                out.println(PrintFormat.format(format, a));
             }
-            System.out.println();
+            out.println();
             // end of loop
             ref.setRecordCount(count);
         } catch (SQLException ex) {
-            ex.printStackTrace(System.err);
+            ex.printStackTrace(err);
         }
     }
 
@@ -0,0 +1,127 @@
+package stew5.ui.daemon;
+
+import static stew5.ui.daemon.DaemonProtocol.*;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import stew5.*;
+
+/**
+ * The thin client of the daemon mode.
+ * It sends a command to the running daemon, and streams back the output.
+ */
+public final class DaemonClient {
+
+    private static final Logger log = Logger.getLogger(DaemonClient.class);
+
+    private DaemonClient() { // empty
+    }
+
+    public static int main(OptionSet opts) {
+        return send(opts.getConnecterName(), opts.isQuiet(), opts.getCommandString(), System.out, System.err);
+    }
+
+    /**
+     * Sends a command to the daemon.
+     * @param connectorName the connector to connect before the command, or empty string
+     * @param quiet
+     * @param commandString
+     * @param stdout
+     * @param stderr
+     * @return the exit status
+     */
+    static int send(String connectorName, boolean quiet, String commandString, PrintStream stdout, PrintStream stderr) {
+        try (Socket socket = connect()) {
+            if (socket == null) {
+                stderr.println(ResourceManager.Default.get("e.daemon-not-running"));
+                return 1;
+            }
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            writeString(out, getToken());
+            out.writeByte(REQUEST_COMMAND);
+            writeString(out, connectorName);
+            out.writeBoolean(quiet);
+            writeString(out, commandString);
+            out.flush();
+            return receive(new DataInputStream(new BufferedInputStream(socket.getInputStream())), stdout, stderr);
+        } catch (IOException ex) {
+            log.error(ex);
+            stderr.println(ResourceManager.Default.get("e.command", ex.getMessage()));
+            return 1;
+        }
+    }
+
+    /**
+     * Stops the daemon.
+     * @return the exit status
+     */
+    static int stop() {
+        try (Socket socket = connect()) {
+            if (socket == null) {
+                System.err.println(ResourceManager.Default.get("e.daemon-not-running"));
+                return 1;
+            }
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            writeString(out, getToken());
+            out.writeByte(REQUEST_STOP);
+            out.flush();
+            return receive(new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+                           System.out,
+                           System.err);
+        } catch (IOException ex) {
+            log.error(ex);
+            System.err.println(ResourceManager.Default.get("e.command", ex.getMessage()));
+            return 1;
+        }
+    }
+
+    private static int receive(DataInputStream in, PrintStream stdout, PrintStream stderr) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (true) {
+            final byte type = in.readByte();
+            final int length = in.readInt();
+            if (type == FRAME_EXIT) {
+                stdout.flush();
+                stderr.flush();
+                return length; // exit status
+            }
+            final PrintStream dst = (type == FRAME_ERR) ? stderr : stdout;
+            int remaining = length;
+            while (remaining > 0) {
+                final int n = in.read(buffer, 0, Math.min(buffer.length, remaining));
+                if (n < 0) {
+                    throw new EOFException();
+                }
+                dst.write(buffer, 0, n);
+                remaining -= n;
+            }
+            dst.flush();
+        }
+    }
+
+    private static Socket connect() throws IOException {
+        Properties info = readInfo();
+        if (info == null) {
+            return null;
+        }
+        final int port;
+        try {
+            port = Integer.parseInt(info.getProperty("port", ""));
+        } catch (NumberFormatException ex) {
+            log.warn(ex);
+            return null;
+        }
+        try {
+            return new Socket(InetAddress.getLoopbackAddress(), port);
+        } catch (ConnectException ex) {
+            log.warn(ex);
+            return null;
+        }
+    }
+
+    private static String getToken() {
+        Properties info = readInfo();
+        return (info == null) ? "" : info.getProperty("token", "");
+    }
+
+}
@@ -0,0 +1,209 @@
+package stew5.ui.daemon;
+
+import static stew5.ui.daemon.DaemonProtocol.*;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.security.*;
+import java.util.concurrent.*;
+import stew5.*;
+import stew5.ui.*;
+import stew5.ui.console.*;
+
+/**
+ * The Launcher implementation of daemon mode.
+ *
+ * The daemon accepts commands from DaemonClient over the loopback interface.
+ * Each client session runs on its own copy of the environment,
+ * and the connections are returned to the ConnectionPool to keep them warm.
+ * A client has to send the token within <code>daemon.auth.timeout</code> milliseconds,
+ * and at most <code>daemon.sessions</code> sessions run at the same time.
+ */
+public final class DaemonLauncher implements Launcher {
+
+    private static final Logger log = Logger.getLogger(DaemonLauncher.class);
+
+    static final int DEFAULT_AUTH_TIMEOUT = 5000;
+    static final int DEFAULT_SESSIONS = 16;
+
+    private volatile boolean stopped;
+    private ServerSocket serverSocket;
+
+    @Override
+    public void launch(Environment env) {
+        log.info("start");
+        final String token = generateToken();
+        final ExecutorService executor = newSessionExecutor();
+        env.getConnectorMap(); // load before copying in sessions
+        try (ServerSocket ss = new ServerSocket(App.props.getAsInt("daemon.port", 0),
+                                                50,
+                                                InetAddress.getLoopbackAddress())) {
+            this.serverSocket = ss;
+            writeInfo(ss.getLocalPort(), token);
+            env.getOutputProcessor().output(ResourceManager.Default.get("i.daemon-started", ss.getLocalPort()));
+            while (!stopped) {
+                final Socket socket;
+                try {
+                    socket = ss.accept();
+                } catch (SocketException ex) {
+                    if (stopped) {
+                        break;
+                    }
+                    throw ex;
+                }
+                try {
+                    executor.execute(new Session(env, socket, token));
+                } catch (RejectedExecutionException ex) {
+                    log.warn("too many sessions, rejected %s", socket);
+                    socket.close();
+                }
+            }
+        } catch (IOException ex) {
+            log.error(ex);
+            env.getOutputProcessor().output(ResourceManager.Default.get("e.command", ex.getMessage()));
+            env.setExitStatus(1);
+        } finally {
+            executor.shutdownNow();
+            if (!getInfoFile().delete()) {
+                log.warn("failed to delete %s", getInfoFile());
+            }
+        }
+        env.getOutputProcessor().output(ResourceManager.Default.get("i.daemon-stopped"));
+        log.info("end");
+    }
+
+    void stop() {
+        stopped = true;
+        try {
+            serverSocket.close();
+        } catch (IOException ex) {
+            log.warn(ex);
+        }
+    }
+
+    private static ExecutorService newSessionExecutor() {
+        final int n = Math.max(1, App.props.getAsInt("daemon.sessions", DEFAULT_SESSIONS));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(n,
+                                                             n,
+                                                             60L,
+                                                             TimeUnit.SECONDS,
+                                                             new ArrayBlockingQueue<Runnable>(n),
+                                                             DaemonThreadFactory.getInstance());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static String generateToken() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder buffer = new StringBuilder();
+        for (final byte b : bytes) {
+            buffer.append(String.format("%02x", b & 0xFF));
+        }
+        return buffer.toString();
+    }
+
+    public static int main(OptionSet opts) {
+        if (opts.getCommandString().equalsIgnoreCase("stop")) {
+            return DaemonClient.stop();
+        }
+        Environment env = new Environment();
+        try {
+            ConsoleOutputProcessor op = new ConsoleOutputProcessor();
+            op.setQuiet(opts.isQuiet());
+            env.setOutputProcessor(op);
+            final String connectorName = opts.getConnecterName();
+            if (!connectorName.isEmpty()) {
+                // warms up the connections
+                Commands.invoke(env, "connectors check " + connectorName + " KEEP");
+            }
+            new DaemonLauncher().launch(env);
+        } finally {
+            env.release();
+            ConnectionPool.getInstance().closeAll();
+        }
+        return env.getExitStatus();
+    }
+
+    private final class Session implements Runnable {
+
+        private final Environment parent;
+        private final Socket socket;
+        private final String token;
+
+        Session(Environment parent, Socket socket, String token) {
+            this.parent = parent;
+            this.socket = socket;
+            this.token = token;
+        }
+
+        @Override
+        public void run() {
+            log.debug("session start: %s", socket);
+            try (Socket socket = this.socket) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                socket.setSoTimeout(App.props.getAsInt("daemon.auth.timeout", DEFAULT_AUTH_TIMEOUT));
+                final byte[] received = readString(in, TOKEN_LENGTH).getBytes(StandardCharsets.UTF_8);
+                if (!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), received)) {
+                    log.warn("invalid token from %s", socket);
+                    return;
+                }
+                socket.setSoTimeout(0);
+                final byte requestType = in.readByte();
+                if (requestType == REQUEST_STOP) {
+                    out.writeByte(FRAME_EXIT);
+                    out.writeInt(0);
+                    out.flush();
+                    stop();
+                    return;
+                }
+                final String connectorName = readString(in);
+                final boolean quiet = in.readBoolean();
+                final String commandString = readString(in);
+                final int exitStatus = execute(out, connectorName, quiet, commandString);
+                synchronized (out) {
+                    out.writeByte(FRAME_EXIT);
+                    out.writeInt(exitStatus);
+                    out.flush();
+                }
+            } catch (IOException ex) {
+                log.warn(ex);
+            }
+            log.debug("session end");
+        }
+
+        private int execute(DataOutputStream out,
+                            String connectorName,
+                            boolean quiet,
+                            String commandString) throws IOException {
+            final Environment env;
+            synchronized (parent) {
+                parent.updateConnectorMap();
+                env = new Environment(parent);
+            }
+            env.setConnectionPooling(true);
+            final String enc = "UTF-8";
+            PrintStream stdout = new PrintStream(new FrameOutputStream(out, FRAME_OUT), true, enc);
+            PrintStream stderr = new PrintStream(new FrameOutputStream(out, FRAME_ERR), true, enc);
+            ConsoleOutputProcessor op = new ConsoleOutputProcessor(stdout, stderr);
+            op.setQuiet(quiet);
+            env.setOutputProcessor(op);
+            try {
+                if (!connectorName.isEmpty()) {
+                    Commands.invoke(env, "connect " + connectorName);
+                }
+                if (!commandString.isEmpty()) {
+                    Commands.invoke(env, commandString);
+                }
+            } finally {
+                env.release();
+                stdout.flush();
+                stderr.flush();
+            }
+            return env.getExitStatus();
+        }
+
+    }
+
+}
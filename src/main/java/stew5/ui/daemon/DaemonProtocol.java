@@ -0,0 +1,150 @@
+package stew5.ui.daemon;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import stew5.*;
+
+/**
+ * The protocol between the daemon and its clients.
+ *
+ * A request consists of the token, the request type and (for commands) the connector ID,
+ * the quiet flag and the command string.
+ * A response is a sequence of frames (type, length and bytes), which ends with the exit frame.
+ */
+final class DaemonProtocol {
+
+    static final String INFO_FILE_NAME = "daemon.properties";
+
+    /** the length of the token (hex digits of 16 random bytes) */
+    static final int TOKEN_LENGTH = 32;
+
+    static final byte REQUEST_COMMAND = 'C';
+    static final byte REQUEST_STOP = 'S';
+
+    static final byte FRAME_OUT = 'O';
+    static final byte FRAME_ERR = 'E';
+    static final byte FRAME_EXIT = 'X';
+
+    private static final Logger log = Logger.getLogger(DaemonProtocol.class);
+
+    private DaemonProtocol() { // empty
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return readString(in, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads a string which is not longer than the max length in bytes.
+     * @param in
+     * @param maxLength
+     * @return
+     * @throws IOException if the length is invalid or exceeds the max length
+     */
+    static String readString(DataInputStream in, int maxLength) throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("invalid length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeFrame(DataOutputStream out, byte type, byte[] b, int off, int len) throws IOException {
+        synchronized (out) {
+            out.writeByte(type);
+            out.writeInt(len);
+            out.write(b, off, len);
+        }
+    }
+
+    static File getInfoFile() {
+        return App.getSystemFile(INFO_FILE_NAME);
+    }
+
+    /**
+     * Writes the port and the token into the info file which only the owner can read.
+     * @param port
+     * @param token
+     * @throws IOException
+     */
+    static void writeInfo(int port, String token) throws IOException {
+        File file = getInfoFile();
+        if (!file.exists() && !file.createNewFile()) {
+            throw new IOException("failed to create file: " + file);
+        }
+        final boolean restricted = file.setReadable(false, false)
+                                   && file.setWritable(false, false)
+                                   && file.setReadable(true, true)
+                                   && file.setWritable(true, true);
+        if (!restricted) {
+            log.warn("failed to restrict the permission of %s", file);
+        }
+        Properties props = new Properties();
+        props.setProperty("port", String.valueOf(port));
+        props.setProperty("token", token);
+        try (OutputStream os = new FileOutputStream(file)) {
+            props.store(os, "Stew daemon");
+        }
+    }
+
+    /**
+     * Reads the info file.
+     * @return the properties (port and token), or null if the daemon is not running
+     */
+    static Properties readInfo() {
+        File file = getInfoFile();
+        if (!file.exists()) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (InputStream is = new FileInputStream(file)) {
+            props.load(is);
+        } catch (IOException ex) {
+            log.warn(ex);
+            return null;
+        }
+        return props;
+    }
+
+    /**
+     * An OutputStream which writes its data as frames.
+     */
+    static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+        private final byte type;
+
+        FrameOutputStream(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte)b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) {
+                writeFrame(out, type, b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+    }
+
+}
@@ -21,6 +21,9 @@ final class AnyAction extends AbstractAction implements Runnable {
     /** Thread Pool using Daemon Thread */
     private static final ExecutorService threadPool = Executors.newCachedThreadPool(DaemonThreadFactory.getInstance());
 
+    private static final Metrics.Histogram edtHandoffTime = Metrics.getInstance()
+            .histogram("stew_edt_handoff_seconds", "Time from doLater to the start on the event dispatch thread.");
+
     /** AnyActionListener, JComponent, or JTextComponent */
     private Object o;
 
@@ -60,9 +63,24 @@ final class AnyAction extends AbstractAction implements Runnable {
         }
     }
 
-    void doLater(String methodName, Object... args) {
+    void doLater(final String methodName, Object... args) {
         final String label = "AnyAction#doLater";
-        EventQueue.invokeLater(new Task(label, o, resolveMethod(methodName), args));
+        final Task task = new Task(label, o, resolveMethod(methodName), args);
+        final long startTime = System.nanoTime();
+        EventQueue.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                edtHandoffTime.recordSince(startTime);
+                final FlightRecorder.Event event = FlightRecorder.begin(FlightRecorder.EventKind.EDT_TASK,
+                                                                        null,
+                                                                        methodName);
+                try {
+                    task.run();
+                } finally {
+                    event.commit(-1L);
+                }
+            }
+        });
     }
 
     void doParallel(String methodName, final Object... args) {
@@ -44,11 +44,13 @@ public enum AnyActionKey {
     postProcessModeBlink,
     inputEcryptionKey,
     editConnectors,
+    checkConnectors,
     sortResult,
     importFile,
     exportFile,
     showLimitedRecords,
     showHelp,
+    showStatistics,
     showAbout,
     unknown;
 
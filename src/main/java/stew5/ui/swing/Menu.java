@@ -62,10 +62,12 @@ final class Menu extends JMenuBar implements PropertyChangeListener {
         postProcessModeBlink,
         inputEcryptionKey,
         editConnectors,
+        checkConnectors,
         sortResult,
         importFile,
         exportFile,
         showHelp,
+        showStatistics,
         showAbout,
         unknown;
         static Item of(String name) {
@@ -118,6 +120,7 @@ final class Menu extends JMenuBar implements PropertyChangeListener {
                     case nextHistory:
                     case connect:
                     case disconnect:
+                    case checkConnectors:
                     case postProcessMode:
                     case sortResult:
                     case exportFile:
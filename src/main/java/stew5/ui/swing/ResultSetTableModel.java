@@ -367,8 +367,8 @@ final class ResultSetTableModel extends DefaultTableModel {
 
     private void executeSql(final String sql, final Object[] parameters) throws SQLException {
         if (log.isDebugEnabled()) {
-            log.debug("SQL: " + sql);
-            log.debug("parameters: " + Arrays.asList(parameters));
+            log.debug("SQL: %s", sql);
+            log.debug("parameters: %s", Arrays.asList(parameters));
         }
         final CountDownLatch latch = new CountDownLatch(1);
         final List<SQLException> errors = new ArrayList<>();
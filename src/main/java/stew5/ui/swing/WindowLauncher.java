@@ -352,12 +352,16 @@ public final class WindowLauncher implements
                 editEncryptionKey();
             } else if (ev.isAnyOf(editConnectors)) {
                 editConnectorMap();
+            } else if (ev.isAnyOf(checkConnectors)) {
+                executeCommand("connectors check");
             } else if (ev.isAnyOf(sortResult)) {
                 resultSetTable.doSort(resultSetTable.getSelectedColumn());
             } else if (ev.isAnyOf(importFile, exportFile, showAbout)) {
                 op.anyActionPerformed(ev);
             } else if (ev.isAnyOf(showHelp)) {
                 showHelp();
+            } else if (ev.isAnyOf(showStatistics)) {
+                showStatistics();
             } else if (ev.isAnyOf(ResultSetTable.ActionKey.findColumnName)) {
                 resultSetTable.getTableHeader().requestFocus();
                 textSearchPanel.setVisible(true);
@@ -720,9 +724,14 @@ public final class WindowLauncher implements
     private void refreshResult() {
         if (resultSetTable.getModel() instanceof ResultSetTableModel) {
             ResultSetTableModel m = resultSetTable.getResultSetTableModel();
-            if (m.isSameConnection(env.getCurrentConnection())) {
+            final boolean usesCache = ResultCache.isEnabled(env.getCurrentConnector());
+            // a cached result has no connection
+            if (m.isSameConnection(env.getCurrentConnection()) || (usesCache && m.isSameConnection(null))) {
                 final String s = m.getCommandString();
                 if (s != null && s.length() > 0) {
+                    if (usesCache) {
+                        ResultCache.getInstance().invalidate(env.getCurrentConnector(), s);
+                    }
                     executeCommand(s);
                 }
             }
@@ -773,6 +782,27 @@ public final class WindowLauncher implements
         }
     }
 
+    private void showStatistics() {
+        DefaultTableModel m = new DefaultTableModel(new Object[]{res.get("statistics.name"),
+                                                                 res.get("statistics.type"),
+                                                                 res.get("statistics.value")}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (final Metrics.Metric metric : Metrics.getInstance().getMetrics()) {
+            m.addRow(new Object[]{metric.getName(), metric.getType(), metric.getSummary()});
+        }
+        JTable table = new JTable(m);
+        table.getColumnModel().getColumn(0).setPreferredWidth(240);
+        table.getColumnModel().getColumn(1).setPreferredWidth(80);
+        table.getColumnModel().getColumn(2).setPreferredWidth(480);
+        JScrollPane pane = new JScrollPane(table);
+        pane.setPreferredSize(new Dimension(800, 320));
+        showMessageDialog(op, pane, res.get("dialog.title.statistics"), PLAIN_MESSAGE);
+    }
+
     /**
      * Executes a command.
      * @param commandString
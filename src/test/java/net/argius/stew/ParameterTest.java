@@ -83,6 +83,16 @@ public final class ParameterTest {
         }
     }
 
+    @Test
+    public void testBetween() {
+        assertEquals("a.xls select  *\nfrom", p1.between(1, 5));
+        assertEquals("select", p1.between(2, 3));
+        assertEquals("select  *\nfrom test", p1.between(2, 99));
+        assertEquals("", p1.between(2, 2));
+        assertEquals("", p1.between(6, 7));
+        assertEquals("\"my data.xml\" select\t*", p3.between(1, 4));
+    }
+
     @Test
     public void testHas() {
         assertTrue(p1.has(0));
@@ -125,6 +135,25 @@ public final class ParameterTest {
         assertEquals(String.format("Parameter[%s]", S2), p2.toString());
     }
 
+    @Test
+    public void testManyTokens() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            sb.append(" t").append(i);
+        }
+        Parameter p = new Parameter(sb.toString());
+        assertEquals(50, p.asArray().length);
+        assertEquals("t0", p.at(0));
+        assertEquals("t49", p.at(49));
+        assertEquals("t48 t49", p.after(48));
+    }
+
+    @Test
+    public void testGetStatementKind() {
+        assertEquals(stew5.StatementKind.OTHER, p1.getStatementKind());
+        assertEquals(stew5.StatementKind.SELECT, new Parameter(" select * from test").getStatementKind());
+    }
+
     private String[] a(String s) {
         Parameter p = new Parameter(s);
         return p.asArray();
@@ -0,0 +1,55 @@
+package stew5;
+
+import static org.junit.Assert.*;
+import java.sql.*;
+import java.util.*;
+import net.argius.stew.*;
+import org.junit.*;
+import stew5.command.*;
+
+public final class CommandRegistryTest {
+
+    @Test
+    public void testLookup() {
+        CommandRegistry registry = new CommandRegistry(Collections.<CommandProvider> emptyList());
+        assertSame(Find.class, registry.lookup("find"));
+        assertSame(Find.class, registry.lookup("FIND"));
+        assertSame(Find.class, registry.lookup("stew5.command.Find"));
+        assertNull(registry.lookup("select"));
+        assertNull(registry.lookup("UPDATE"));
+        assertNull(registry.lookup("nosuchcommand"));
+        assertNull(registry.lookup("nosuchcommand"));
+        assertNull(registry.lookup("java.lang.String"));
+        assertSame(CommandRegistry.getInstance(), CommandRegistry.getInstance());
+    }
+
+    @Test
+    public void testLookupPlugin() {
+        CommandProvider provider = new CommandProvider() {
+            @Override
+            public Map<String, Class<? extends Command>> getCommands() {
+                Map<String, Class<? extends Command>> m = new HashMap<>();
+                m.put("Hello", Hello.class);
+                m.put("find", Hello.class);
+                return m;
+            }
+        };
+        CommandRegistry registry = new CommandRegistry(Arrays.asList(provider));
+        assertSame(Hello.class, registry.lookup("hello"));
+        assertSame(Hello.class, registry.lookup("HELLO"));
+        // cannot override the built-in command
+        assertSame(Find.class, registry.lookup("find"));
+        assertTrue(registry.getCommandNames().contains("hello"));
+        assertTrue(registry.getCommandNames().contains("find"));
+    }
+
+    public static final class Hello extends Command {
+
+        @Override
+        public void execute(Connection conn, Parameter p) throws CommandException {
+            outputMessage("i.proceeded", 0);
+        }
+
+    }
+
+}
@@ -0,0 +1,71 @@
+package stew5;
+
+import static org.junit.Assert.*;
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.zip.*;
+import org.junit.*;
+import org.junit.rules.*;
+
+public final class DriverIndexTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testGetDriverClassNames() throws IOException {
+        File jar = createJar("a.jar", "# comment\norg.h2.Driver\n\ncom.example.Driver # trailing\n");
+        File indexFile = new File(tmpFolder.getRoot(), DriverIndex.INDEX_FILE_NAME);
+        DriverIndex index = new DriverIndex(indexFile);
+        ClassLoader cl = getClass().getClassLoader();
+        assertEquals(Arrays.asList("org.h2.Driver", "com.example.Driver"), index.getDriverClassNames(jar, cl));
+        assertTrue(indexFile.exists());
+        // reload from the file
+        DriverIndex index2 = new DriverIndex(indexFile);
+        assertEquals(Arrays.asList("org.h2.Driver", "com.example.Driver"), index2.getDriverClassNames(jar, cl));
+        // no drivers
+        File emptyJar = createJar("b.jar", null);
+        assertEquals(Collections.emptyList(), index2.getDriverClassNames(emptyJar, cl));
+    }
+
+    @Test
+    public void testSort() throws IOException {
+        File jar1 = createJar("1.jar", "com.example.Driver1");
+        File jar2 = createJar("2.jar", "com.example.Driver2");
+        File indexFile = new File(tmpFolder.getRoot(), DriverIndex.INDEX_FILE_NAME);
+        DriverIndex index = new DriverIndex(indexFile);
+        ClassLoader cl = getClass().getClassLoader();
+        index.getDriverClassNames(jar1, cl);
+        index.getDriverClassNames(jar2, cl);
+        final String url = "jdbc:example2:db;option=1";
+        assertEquals(Arrays.asList(jar1, jar2), index.sort(Arrays.asList(jar1, jar2), url));
+        index.addPrefix(jar2, url);
+        assertEquals(Arrays.asList(jar2, jar1), index.sort(Arrays.asList(jar1, jar2), url));
+        assertEquals(Arrays.asList(jar2, jar1), new DriverIndex(indexFile).sort(Arrays.asList(jar1, jar2), url));
+        assertEquals(Arrays.asList(jar1, jar2), index.sort(Arrays.asList(jar1, jar2), "jdbc:other:db"));
+    }
+
+    @Test
+    public void testGetPrefix() {
+        assertEquals("jdbc:h2:", DriverIndex.getPrefix("jdbc:h2:mem:test"));
+        assertEquals("jdbc:oracle:", DriverIndex.getPrefix("jdbc:oracle:thin:@localhost:1521:xe"));
+        assertEquals("jdbc:x", DriverIndex.getPrefix("jdbc:x"));
+    }
+
+    private File createJar(String name, String serviceEntry) throws IOException {
+        File jar = tmpFolder.newFile(name);
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(jar))) {
+            if (serviceEntry == null) {
+                zos.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+                zos.write("Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8));
+            } else {
+                zos.putNextEntry(new ZipEntry(DriverIndex.SERVICE_ENTRY_NAME));
+                zos.write(serviceEntry.getBytes(StandardCharsets.UTF_8));
+            }
+            zos.closeEntry();
+        }
+        return jar;
+    }
+
+}
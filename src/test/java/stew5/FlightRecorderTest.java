@@ -0,0 +1,25 @@
+package stew5;
+
+import static org.junit.Assert.*;
+import java.util.*;
+import org.junit.*;
+
+public final class FlightRecorderTest {
+
+    @Test
+    public void testBegin() {
+        // no recording is running, so the events are not created
+        Connector connector = new Connector("c1", new Properties());
+        FlightRecorder.Event event = FlightRecorder.begin(FlightRecorder.EventKind.COMMAND, connector, "select");
+        assertSame(FlightRecorder.Event.NOOP, event);
+        event.commit(1L);
+        FlightRecorder.begin(FlightRecorder.EventKind.EDT_TASK, null, "test").commit(-1L);
+    }
+
+    @Test
+    public void testGetEventName() {
+        assertEquals("stew5.Command", FlightRecorder.EventKind.COMMAND.getEventName());
+        assertEquals("stew5.StatementExecute", FlightRecorder.EventKind.STATEMENT.getEventName());
+    }
+
+}
@@ -106,6 +106,46 @@ public final class LayeredPropertiesTest {
         }
     }
 
+    @Test
+    public void testPrecedence() {
+        Map<String, String> layer1 = new HashMap<>();
+        Map<String, String> layer2 = new HashMap<>();
+        layer1.put("stew.key1", "A");
+        layer1.put("net.argius.stew.key1", "B");
+        layer2.put("net.argius.stew.key1", "C");
+        layer2.put("net.argius.stew.key2", "D");
+        layer2.put("stew.key2", "E");
+        LayeredProperties o = new LayeredProperties(layer1, layer2);
+        assertEquals("B", o.get("key1"));
+        assertEquals("D", o.get("key2"));
+        try {
+            o.get("stew.key1");
+            fail("this test must occur error when calling get with prefix stew");
+        } catch (IllegalArgumentException e) {
+            assertEquals("LayeredProperties now allows net.argius.stew or stew as prefix, key = stew.key1",
+                         e.getMessage());
+        }
+    }
+
+    @Test
+    public void testReload() {
+        Map<String, String> layer1 = new HashMap<>();
+        layer1.put("stew.key1", "123");
+        layer1.put("stew.key2", "true");
+        LayeredProperties o = new LayeredProperties(layer1);
+        assertEquals(123, o.getAsInt("key1", 555));
+        assertTrue(o.getAsBoolean("key2"));
+        assertEquals(555, o.getAsInt("key3", 555));
+        Map<String, String> layer2 = new HashMap<>();
+        layer2.put("stew.key1", "456");
+        layer2.put("stew.key3", "789");
+        o.reload(layer2);
+        assertEquals(456, o.getAsInt("key1", 555));
+        assertFalse(o.getAsBoolean("key2"));
+        assertEquals(789, o.getAsInt("key3", 555));
+        assertFalse(o.hasKey("key2"));
+    }
+
     private static LayeredProperties createSample() {
         Map<String, String> layer1 = new HashMap<>();
         Map<String, String> layer2 = new HashMap<>();
@@ -0,0 +1,102 @@
+package stew5;
+
+import static org.junit.Assert.*;
+import java.util.*;
+import java.util.logging.*;
+import org.junit.*;
+
+public final class LoggerTest {
+
+    @Test
+    public void testGetLogger() {
+        assertSame(Logger.getLogger(LoggerTest.class), Logger.getLogger(LoggerTest.class));
+        assertSame(Logger.getLogger(LoggerTest.class), Logger.getLogger(LoggerTest.class.getName()));
+        assertNotSame(Logger.getLogger(LoggerTest.class), Logger.getLogger(Logger.class));
+    }
+
+    @Test
+    public void testLog() {
+        final String name = LoggerTest.class.getName() + ".testLog";
+        final List<LogRecord> records = Collections.synchronizedList(new ArrayList<LogRecord>());
+        java.util.logging.Logger julLogger = java.util.logging.Logger.getLogger(name);
+        julLogger.setUseParentHandlers(false);
+        julLogger.setLevel(Level.FINE);
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+                // empty
+            }
+
+            @Override
+            public void close() {
+                // empty
+            }
+        };
+        julLogger.addHandler(handler);
+        try {
+            Logger log = Logger.getLogger(name);
+            log.setEnteredMethodName("testLog");
+            log.debug("a=%s, b=%d", "x", 3);
+            log.warn("w");
+            log.trace("not logged");
+            log.info(Arrays.asList(1, 2));
+            assertTrue(Logger.flush(3000L));
+            assertEquals(3, records.size());
+            LogRecord r = records.get(0);
+            assertEquals(Level.FINE, r.getLevel());
+            assertEquals("a=x, b=3", r.getMessage());
+            assertEquals(name, r.getSourceClassName());
+            assertEquals("testLog", r.getSourceMethodName());
+            assertEquals(Level.WARNING, records.get(1).getLevel());
+            assertEquals("[1, 2]", records.get(2).getMessage());
+        } finally {
+            julLogger.removeHandler(handler);
+        }
+    }
+
+    @Test
+    public void testPublishError() {
+        final String name = LoggerTest.class.getName() + ".testPublishError";
+        final List<Exception> errors = Collections.synchronizedList(new ArrayList<Exception>());
+        java.util.logging.Logger julLogger = java.util.logging.Logger.getLogger(name);
+        julLogger.setUseParentHandlers(false);
+        julLogger.setLevel(Level.FINE);
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                throw new IllegalStateException("publish");
+            }
+
+            @Override
+            public void flush() {
+                // empty
+            }
+
+            @Override
+            public void close() {
+                // empty
+            }
+        };
+        handler.setErrorManager(new ErrorManager() {
+            @Override
+            public synchronized void error(String msg, Exception ex, int code) {
+                errors.add(ex);
+            }
+        });
+        julLogger.addHandler(handler);
+        try {
+            Logger.getLogger(name).warn("w");
+            assertTrue(Logger.flush(3000L));
+            assertEquals(1, errors.size());
+            assertEquals("publish", errors.get(0).getMessage());
+        } finally {
+            julLogger.removeHandler(handler);
+        }
+    }
+
+}
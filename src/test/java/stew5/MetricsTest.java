@@ -0,0 +1,74 @@
+package stew5;
+
+import static org.junit.Assert.*;
+import org.hamcrest.*;
+import org.junit.*;
+
+public final class MetricsTest {
+
+    Metrics metrics = Metrics.getInstance();
+
+    @Test
+    public void testCounter() {
+        Metrics.Counter counter = metrics.counter("test_counter_total", "test");
+        final long n = counter.get();
+        counter.inc();
+        counter.add(3L);
+        assertEquals(n + 4L, counter.get());
+        assertSame(counter, metrics.counter("test_counter_total", "test"));
+    }
+
+    @Test
+    public void testGauge() {
+        Metrics.Gauge gauge = metrics.gauge("test_gauge", "test");
+        gauge.set(5L);
+        gauge.inc();
+        gauge.dec();
+        gauge.dec();
+        assertEquals(4L, gauge.get());
+    }
+
+    @Test
+    public void testHistogram() {
+        Metrics.Histogram histogram = metrics.histogram("test_histogram_seconds", "test");
+        histogram.reset();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(200000L); // 0.2ms
+        }
+        histogram.record(2000000000L); // 2s
+        assertEquals(100L, histogram.getCount());
+        assertEquals(99L * 200000L + 2000000000L, histogram.getSum());
+        assertEquals(2000000000L, histogram.getMax());
+        assertEquals(500000L, histogram.getQuantileBound(0.5d)); // upper bound of the bucket
+        assertEquals(500000L, histogram.getQuantileBound(0.95d));
+        assertEquals(2000000000L, histogram.getQuantileBound(1.0d));
+        histogram.record(-1L);
+        assertEquals(101L, histogram.getCount());
+    }
+
+    @Test
+    public void testToPrometheusText() {
+        metrics.counter("test_prom_total", "Test counter.").add(7L);
+        Metrics.Histogram histogram = metrics.histogram("test_prom_seconds", "Test histogram.");
+        histogram.reset();
+        histogram.record(300000L);
+        final String s = metrics.toPrometheusText();
+        assertThat(s, Matchers.containsString("# HELP test_prom_total Test counter.\n# TYPE test_prom_total counter\n"));
+        assertThat(s, Matchers.containsString("test_prom_seconds_bucket{le=\"1.0E-4\"} 0\n"));
+        assertThat(s, Matchers.containsString("test_prom_seconds_bucket{le=\"5.0E-4\"} 1\n"));
+        assertThat(s, Matchers.containsString("test_prom_seconds_bucket{le=\"+Inf\"} 1\n"));
+        assertThat(s, Matchers.containsString("test_prom_seconds_count 1\n"));
+    }
+
+    @Test
+    public void testTypeMismatch() {
+        metrics.counter("test_mismatch", "test");
+        try {
+            metrics.gauge("test_mismatch", "test");
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertEquals("metric type mismatch: test_mismatch", ex.getMessage());
+        }
+    }
+
+}
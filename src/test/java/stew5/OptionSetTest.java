@@ -28,6 +28,19 @@ public final class OptionSetTest {
         assertTrue(opts.isHelp());
         assertTrue(opts.isQuiet());
         assertFalse(opts.isEdit());
+        assertFalse(opts.isDaemon());
+        assertFalse(opts.isRemote());
+        assertFalse(opts.isJfr());
+        opts = OptionSet.parseArguments(a("--jfr", "--cui"));
+        assertTrue(opts.isJfr());
+        assertTrue(opts.isCui());
+        opts = OptionSet.parseArguments(a("--daemon", "stop"));
+        assertTrue(opts.isDaemon());
+        assertEquals("stop", opts.getCommandString());
+        opts = OptionSet.parseArguments(a("--remote", "-c", "connector1", "select", "1"));
+        assertTrue(opts.isRemote());
+        assertEquals("connector1", opts.getConnecterName());
+        assertEquals("select 1", opts.getCommandString());
     }
 
     @Test
@@ -0,0 +1,41 @@
+package stew5;
+
+import static org.junit.Assert.*;
+import java.io.*;
+import java.util.*;
+import org.junit.*;
+import org.junit.rules.*;
+
+public final class QueryLogTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testFormat() {
+        QueryProfile profile = new QueryProfile("select *\n  from\ttable1", System.nanoTime());
+        profile.add(QueryProfile.Phase.EXECUTE, 1500000L);
+        profile.setRowCount(3L);
+        profile.finish();
+        Connector connector = new Connector("c1", new Properties());
+        final String s = QueryLog.getInstance().format(connector, profile).trim();
+        String[] a = s.split("\t", -1);
+        assertEquals(11, a.length);
+        assertEquals("c1", a[1]);
+        assertEquals("1.500", a[5]);
+        assertEquals("3", a[9]);
+        assertEquals("select * from table1", a[10]);
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        File file = new File(tmpFolder.getRoot(), "query.log");
+        QueryProfile profile = new QueryProfile("select 1", System.nanoTime());
+        profile.finish();
+        QueryLog.getInstance().write(file, null, profile);
+        QueryLog.getInstance().write(file, null, profile);
+        assertTrue(file.length() > 0L);
+        assertFalse(new File(file.getPath() + ".1").exists());
+    }
+
+}
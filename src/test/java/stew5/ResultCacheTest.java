@@ -0,0 +1,183 @@
+package stew5;
+
+import static org.junit.Assert.*;
+import java.io.*;
+import java.lang.reflect.*;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.*;
+import org.junit.rules.*;
+
+public final class ResultCacheTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private final Connector connector = new Connector("cachetest", new Properties());
+    private ResultCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new ResultCache(tmpFolder.getRoot());
+    }
+
+    @After
+    public void tearDown() {
+        App.reloadProperties();
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("select * from t", ResultCache.normalize("  select *\n\tfrom   t "));
+        assertEquals("select 'a  b', \"C  D\" from t", ResultCache.normalize("select  'a  b',  \"C  D\"  from t"));
+        assertEquals("select 'it''s  x'", ResultCache.normalize("select   'it''s  x'"));
+    }
+
+    @Test
+    public void testGetKey() {
+        Properties props = new Properties();
+        props.setProperty("url", "jdbc:h2:mem:test");
+        props.setProperty("user", "sa");
+        Connector c1 = new Connector("c1", props);
+        Connector c2 = new Connector("c2", props);
+        final String key = ResultCache.getKey(c1, "select * from t");
+        assertEquals(40, key.length());
+        assertEquals(key, ResultCache.getKey(c1, "select *\n  from t"));
+        assertFalse(key.equals(ResultCache.getKey(c2, "select * from t")));
+        assertFalse(key.equals(ResultCache.getKey(c1, "select * from t2")));
+    }
+
+    @Test
+    public void testIsEnabled() {
+        assertFalse(ResultCache.isEnabled(null));
+        assertFalse(ResultCache.isEnabled(new Connector("c1", new Properties())));
+    }
+
+    @Test
+    public void testPutAndGet() throws SQLException {
+        final String sql = "select id, name from table1";
+        try (Connection conn = TestUtils.connection()) {
+            assertNull(cache.get(connector, sql));
+            assertEquals("[1, argius]", readRows(cache.put(connector, sql, executeQuery(conn, sql))));
+            assertEquals(1, cache.size());
+            ResultCache.Entry entry = cache.get(connector, "select id,  name\n from table1");
+            assertNotNull(entry);
+            assertEquals("[1, argius]", readRows(entry.getResultSet()));
+        }
+    }
+
+    @Test
+    public void testPutExceedingLimit() throws SQLException {
+        setProperties("rowcount.limit", "1");
+        final String sql = "select id from table1 union all select id from table2";
+        try (Connection conn = TestUtils.connection()) {
+            assertEquals("[1][1]", readRows(cache.put(connector, sql, executeQuery(conn, sql))));
+            assertEquals(0, cache.size());
+            assertNull(cache.get(connector, sql));
+        }
+    }
+
+    @Test
+    public void testEvict() throws SQLException {
+        final String sql1 = "select * from table1 where 1 = 1";
+        final String sql2 = "select * from table1 where 2 = 2";
+        final String sql3 = "select * from table1 where 3 = 3";
+        try (Connection conn = TestUtils.connection()) {
+            cache.put(connector, sql1, executeQuery(conn, sql1));
+            cache.put(connector, sql2, executeQuery(conn, sql2));
+            // room for two and a half entries
+            setProperties("result.cache.size", String.valueOf(cache.getTotalSize() * 5 / 4));
+            // sql2 becomes the least recently used one
+            assertNotNull(cache.get(connector, sql1));
+            cache.put(connector, sql3, executeQuery(conn, sql3));
+            assertEquals(2, cache.size());
+            assertNotNull(cache.get(connector, sql1));
+            assertNull(cache.get(connector, sql2));
+            assertNotNull(cache.get(connector, sql3));
+        }
+    }
+
+    @Test
+    public void testExpire() throws SQLException {
+        setProperties("result.cache.ttl", "60");
+        final String sql = "select id from table1";
+        try (Connection conn = TestUtils.connection()) {
+            cache.put(connector, sql, executeQuery(conn, sql));
+            assertNotNull(cache.get(connector, sql));
+            final long past = System.currentTimeMillis() - 61000L;
+            for (File file : tmpFolder.getRoot().listFiles()) {
+                assertTrue(file.setLastModified(past));
+            }
+            assertNull(cache.get(connector, sql));
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test(timeout = 30000L)
+    public void testPutWithoutLock() throws Exception {
+        final String sql = "select id from table1";
+        final CountDownLatch fetching = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (Connection conn = TestUtils.connection()) {
+            final ResultSet rs = executeQuery(conn, sql);
+            final ResultSet slowResultSet = (ResultSet)Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                                              new Class<?>[]{ResultSet.class},
+                                                                              new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if (method.getName().equals("next")) {
+                        fetching.countDown();
+                        release.await();
+                    }
+                    try {
+                        return method.invoke(rs, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                }
+            });
+            Future<ResultSet> future = executor.submit(new Callable<ResultSet>() {
+                @Override
+                public ResultSet call() throws SQLException {
+                    return cache.put(connector, sql, slowResultSet);
+                }
+            });
+            assertTrue(fetching.await(10, TimeUnit.SECONDS));
+            // the other sessions are not blocked while fetching
+            assertNull(cache.get(connector, "select name from table1"));
+            assertEquals(0, cache.size());
+            release.countDown();
+            assertEquals("[1]", readRows(future.get(10, TimeUnit.SECONDS)));
+            assertEquals(1, cache.size());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void setProperties(String key, String value) {
+        Map<String, String> m = new HashMap<>();
+        m.put("stew." + key, value);
+        App.props.reload(m, System.getProperties());
+    }
+
+    private static ResultSet executeQuery(Connection conn, String sql) throws SQLException {
+        return conn.createStatement().executeQuery(sql);
+    }
+
+    private static String readRows(ResultSet rs) throws SQLException {
+        StringBuilder sb = new StringBuilder();
+        final int columnCount = rs.getMetaData().getColumnCount();
+        while (rs.next()) {
+            List<Object> a = new ArrayList<>();
+            for (int i = 1; i <= columnCount; i++) {
+                a.add(rs.getObject(i));
+            }
+            sb.append(a);
+        }
+        return sb.toString();
+    }
+
+}
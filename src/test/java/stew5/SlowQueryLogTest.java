@@ -0,0 +1,80 @@
+package stew5;
+
+import static org.junit.Assert.*;
+import static stew5.TestUtils.connection;
+import java.io.*;
+import java.sql.*;
+import java.util.*;
+import org.junit.*;
+import org.junit.rules.*;
+
+public final class SlowQueryLogTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testIsSlow() {
+        Properties props = new Properties();
+        props.setProperty("slowquery.threshold", "100");
+        Connector connector = new Connector("c1", props);
+        assertEquals(100L, SlowQueryLog.getThreshold(connector));
+        assertTrue(SlowQueryLog.isSlow(connector, 100000000L));
+        assertFalse(SlowQueryLog.isSlow(connector, 99999999L));
+        assertFalse(SlowQueryLog.isSlow(new Connector("c2", new Properties()), Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testGetExplainSql() {
+        assertEquals(Arrays.asList("EXPLAIN select 1"), SlowQueryLog.getExplainSql("jdbc:h2:mem:test", "select 1"));
+        assertEquals(Arrays.asList("EXPLAIN select 1"), SlowQueryLog.getExplainSql("jdbc:postgresql://h/db", "select 1"));
+        assertEquals(Arrays.asList("EXPLAIN select 1"), SlowQueryLog.getExplainSql("jdbc:mysql://h/db", "select 1"));
+        List<String> oracle = SlowQueryLog.getExplainSql("jdbc:oracle:thin:@h:1521:db", "select 1 from dual");
+        assertEquals(2, oracle.size());
+        assertEquals("EXPLAIN PLAN FOR select 1 from dual", oracle.get(0));
+        assertTrue(SlowQueryLog.getExplainSql("jdbc:sqlite:test.db", "select 1").isEmpty());
+    }
+
+    @Test
+    public void testCapturePlan() throws SQLException {
+        try (Connection conn = connection()) {
+            List<String> explainSql = SlowQueryLog.getExplainSql("jdbc:h2:mem:test", "select * from table1 where id=?");
+            List<String> plan = SlowQueryLog.capturePlan(conn, explainSql, Arrays.asList("1"));
+            assertFalse(plan.isEmpty());
+            assertTrue(plan.toString().toUpperCase().contains("TABLE1"));
+        }
+    }
+
+    @Test
+    public void testFormat() {
+        Properties props = new Properties();
+        props.setProperty("url", "jdbc:h2:mem:test");
+        Connector connector = new Connector("c1", props);
+        final String s = SlowQueryLog.getInstance().format(connector,
+                                                           0L,
+                                                           " update table1 set name=? where id=?",
+                                                           Arrays.asList("a", "1"),
+                                                           1234500000L,
+                                                           1L,
+                                                           Arrays.asList("plan1"));
+        String[] a = s.split("\r?\n");
+        assertEquals(7, a.length);
+        assertTrue(a[0].startsWith("# Time: "));
+        assertEquals("# Connector: c1 (jdbc:h2:mem:test)", a[1]);
+        assertEquals("# Execution: 1234.500 ms, Rows: 1", a[2]);
+        assertEquals("# Parameters: [a, 1]", a[3]);
+        assertEquals("update table1 set name=? where id=?;", a[4]);
+        assertEquals("# Plan:", a[5]);
+        assertEquals("#   plan1", a[6]);
+    }
+
+    @Test
+    public void testWrite() {
+        File file = new File(tmpFolder.getRoot(), "slowquery.log");
+        SlowQueryLog.getInstance().write(file, "entry1\n");
+        SlowQueryLog.getInstance().write(file, "entry2\n");
+        assertEquals(14L, file.length());
+        assertFalse(new File(file.getPath() + ".1").exists());
+    }
+
+}
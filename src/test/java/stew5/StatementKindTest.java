@@ -0,0 +1,47 @@
+package stew5;
+
+import static org.junit.Assert.*;
+import static stew5.StatementKind.*;
+import org.junit.*;
+
+public final class StatementKindTest {
+
+    @Test
+    public void testOf() {
+        assertEquals(SELECT, StatementKind.of("select * from table1"));
+        assertEquals(SELECT, StatementKind.of("  \n\tSELECT\n*\nFROM table1"));
+        assertEquals(SELECT, StatementKind.of("Select"));
+        assertEquals(INSERT, StatementKind.of("insert into table1 values (1, 'a')"));
+        assertEquals(UPDATE, StatementKind.of("update table1\nset name='b'"));
+        assertEquals(DELETE, StatementKind.of(" delete from table1"));
+        assertEquals(MERGE, StatementKind.of("merge into table1 key(id) values (1, 'a')"));
+        assertEquals(DDL, StatementKind.of("create table table3 (id int)"));
+        assertEquals(DDL, StatementKind.of("DROP TABLE table3"));
+        assertEquals(OTHER, StatementKind.of("with x as (select 1) select * from x"));
+        assertEquals(OTHER, StatementKind.of("selects"));
+        assertEquals(OTHER, StatementKind.of("select_1"));
+        assertEquals(OTHER, StatementKind.of(""));
+        assertEquals(OTHER, StatementKind.of("   "));
+    }
+
+    @Test
+    public void testOfWithComments() {
+        assertEquals(SELECT, StatementKind.of("-- comment\nselect 1"));
+        assertEquals(SELECT, StatementKind.of("/* comment */select 1"));
+        assertEquals(DELETE, StatementKind.of("/* a */ -- b\n /* c\n d */ delete from table1"));
+        assertEquals(OTHER, StatementKind.of("/* select 1"));
+        assertEquals(OTHER, StatementKind.of("-- select 1"));
+    }
+
+    @Test
+    public void testIsDml() {
+        assertFalse(SELECT.isDml());
+        assertTrue(INSERT.isDml());
+        assertTrue(UPDATE.isDml());
+        assertTrue(DELETE.isDml());
+        assertTrue(MERGE.isDml());
+        assertFalse(DDL.isDml());
+        assertFalse(OTHER.isDml());
+    }
+
+}
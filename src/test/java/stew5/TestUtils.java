@@ -16,6 +16,10 @@ public final class TestUtils {
         return new Parameter(paramString);
     }
 
+    public static File setSystemDirectory(File dir) {
+        return App.setSystemDirectory(dir);
+    }
+
     public static Connection connection() throws SQLException {
         Connection conn = DriverManager.getConnection("jdbc:h2:mem:test", "sa", "sa");
         try (Statement stmt = conn.createStatement()) {
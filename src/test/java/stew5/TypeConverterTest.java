@@ -34,6 +34,10 @@ public final class TypeConverterTest {
         }
         Date date0test = date("20170601");
         assertSame(date0test, optim.convert(date0test, Date0.class));
+        // already converted
+        Timestamp ts = Timestamp.valueOf("2017-06-01 12:34:56.123456789");
+        assertSame(ts, optim.convert(ts, Timestamp.class));
+        assertSame(ts, pesim.convert(ts, Timestamp.class));
     }
 
     @Test
@@ -132,6 +136,32 @@ public final class TypeConverterTest {
         assertSame(12, pesim.convertWithoutException("12", Integer.class));
     }
 
+    @Test
+    public void testCompile() {
+        TypeConverter.Plan[] plans = optim.compile(Arrays.<Class<?>>asList(int.class,
+                                                                           String.class,
+                                                                           BigDecimal.class,
+                                                                           java.sql.Date.class,
+                                                                           Timestamp.class,
+                                                                           Object.class));
+        assertSame(17, plans[0].convert("17"));
+        assertSame(17, plans[0].convert(17L));
+        assertNull(plans[0].convert(null));
+        assertEquals("abc", plans[1].convert(sb("abc")));
+        assertEquals(new BigDecimal("9.876"), plans[2].convert("9.876"));
+        assertEquals(sqldate("20120317"), plans[3].convert("2012/03/17"));
+        assertEquals(sqldate("20121231"), plans[3].convert("2012/12/31"));
+        // falls back to the detection on mismatch
+        assertEquals(sqldate("20130102"), plans[3].convert("2013-01-02"));
+        assertEquals(sqldate("20121231"), plans[3].convert("2012/12/31"));
+        assertEquals(timestamp("20170513123456"), plans[4].convert("2017-05-13 12:34:56"));
+        assertEquals(timestamp("20170514000000"), plans[4].convert("2017-05-14"));
+        assertSame("XYZ", plans[4].convert("XYZ"));
+        Object o = new Object();
+        assertSame(o, plans[5].convert(o));
+        assertSame("zz", plans[0].convertWithoutException("zz"));
+    }
+
     @Test
     public void testConvertThrowsIllegalArgumentException() {
         thrown.expect(IllegalArgumentException.class);
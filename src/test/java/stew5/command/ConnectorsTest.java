@@ -0,0 +1,86 @@
+package stew5.command;
+
+import static org.junit.Assert.*;
+import static stew5.TestUtils.*;
+import java.sql.*;
+import java.util.*;
+import org.hamcrest.*;
+import org.junit.*;
+import org.junit.rules.*;
+import net.argius.stew.*;
+import stew5.*;
+
+public final class ConnectorsTest {
+
+    private static final ResourceManager res = ResourceManager.getInstance(Command.class);
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    Command cmd = new Connectors();
+    Environment env = new Environment();
+    StringBuilderOutputProcessor op = new StringBuilderOutputProcessor();
+
+    @Before
+    public void initEnv() {
+        env.setOutputProcessor(op);
+        ConnectorMap m = env.getConnectorMap();
+        m.clear();
+        m.setConnector("check1", connector("check1", "jdbc:h2:mem:check1"));
+        m.setConnector("check2", connector("check2", "jdbc:h2:mem:check2"));
+        m.setConnector("bad1", connector("bad1", "jdbc:h2:mem:bad1;NO_SUCH_OPTION=1"));
+        cmd.setEnvironment(env);
+    }
+
+    @After
+    public void releasePool() {
+        ConnectionPool.getInstance().closeAll();
+    }
+
+    private static Connector connector(String id, String url) {
+        Properties props = new Properties();
+        props.setProperty("driver", "org.h2.Driver");
+        props.setProperty("url", url);
+        props.setProperty("user", "sa");
+        props.setProperty("password", "");
+        return new Connector(id, props);
+    }
+
+    @Test
+    public void testCheck() {
+        executeCommand(cmd, null, "check");
+        final String s = op.getOutputString();
+        assertThat(s, Matchers.containsString("H2"));
+        assertThat(s, Matchers.containsString(res.get("Connectors.status.failed")));
+        assertTrue(ConnectionPool.getInstance().getIds().isEmpty());
+        executeCommand(cmd, null, "check check* KEEP");
+        assertEquals(new HashSet<>(Arrays.asList("check1", "check2")), ConnectionPool.getInstance().getIds());
+        op.clearBuffer();
+        executeCommand(cmd, null, "check nothing*");
+        assertEquals(res.get("e.no-connector", "nothing*"), op.getOutputString());
+    }
+
+    @Test
+    public void testKeepAndRelease() throws SQLException {
+        executeCommand(cmd, null, "check check1 KEEP");
+        Connector connector = env.getConnectorMap().getConnector("check1");
+        try (Connection conn = ConnectionPool.getInstance().poll(connector)) {
+            assertNotNull(conn);
+            assertFalse(conn.isClosed());
+        }
+        assertNull(ConnectionPool.getInstance().poll(connector));
+        executeCommand(cmd, null, "check KEEP");
+        op.clearBuffer();
+        executeCommand(cmd, null, "release");
+        assertEquals(res.get("Connectors.released", 2), op.getOutputString());
+        assertTrue(ConnectionPool.getInstance().getIds().isEmpty());
+    }
+
+    @Test
+    public void testUsageException() {
+        thrown.expect(UsageException.class);
+        thrown.expectMessage(res.get("usage." + cmd.getClass().getSimpleName()));
+        executeCommand(cmd, null, "");
+    }
+
+}
@@ -0,0 +1,90 @@
+package stew5.command;
+
+import static org.junit.Assert.*;
+import static stew5.TestUtils.*;
+import java.sql.*;
+import java.util.*;
+import org.junit.*;
+import org.junit.rules.*;
+import net.argius.stew.*;
+import stew5.*;
+
+public final class CopyTest {
+
+    private static final ResourceManager res = ResourceManager.getInstance(Command.class);
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    Command cmd = new Copy();
+    Environment env = new Environment();
+    StringBuilderOutputProcessor op = new StringBuilderOutputProcessor();
+
+    @Before
+    public void initEnv() throws SQLException {
+        env.setOutputProcessor(op);
+        ConnectorMap m = env.getConnectorMap();
+        m.clear();
+        m.setConnector("src", connector("src", false));
+        m.setConnector("dst", connector("dst", false));
+        m.setConnector("ro", connector("dst", true));
+        cmd.setEnvironment(env);
+        try (Connection conn = m.getConnector("src").getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("drop table if exists copy1");
+            stmt.executeUpdate("create table copy1 (id bigint primary key, name varchar(32), data blob)");
+            for (int i = 1; i <= 100; i++) {
+                stmt.executeUpdate("insert into copy1 values (" + i + ", 'name" + i + "', X'0" + (i % 10) + "')");
+            }
+        }
+        try (Connection conn = m.getConnector("dst").getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("drop table if exists copy2");
+            stmt.executeUpdate("create table copy2 (id bigint primary key, name varchar(32), data blob)");
+        }
+    }
+
+    private static Connector connector(String name, boolean readOnly) {
+        Properties props = new Properties();
+        props.setProperty("driver", "org.h2.Driver");
+        props.setProperty("url", "jdbc:h2:mem:copy" + name + ";DB_CLOSE_DELAY=-1");
+        props.setProperty("user", "sa");
+        props.setProperty("password", "");
+        props.setProperty("readonly", String.valueOf(readOnly));
+        return new Connector(name, props);
+    }
+
+    private String selectFromDestination(String sql) throws SQLException {
+        try (Connection conn = env.getConnectorMap().getConnector("dst").getConnection()) {
+            return select(conn, sql);
+        }
+    }
+
+    @Test
+    public void testExecute() throws SQLException {
+        executeCommand(cmd, null, "src select id, name, data from copy1 where id <= 50 dst copy2");
+        assertEquals("50", selectFromDestination("select count(*) from copy2"));
+        assertEquals("name7", selectFromDestination("select name from copy2 where id = 7"));
+        assertEquals("07", selectFromDestination("select data from copy2 where id = 7"));
+        assertTrue(op.getOutputString().startsWith(res.get("Copy.msg.copied", 50, 0f, 0f).substring(0, 10)));
+    }
+
+    @Test
+    public void testExecuteSplit() throws SQLException {
+        executeCommand(cmd, null, "SPLIT id 3 src select * from copy1 dst copy2");
+        assertEquals("100", selectFromDestination("select count(*) from copy2"));
+        assertEquals("5050", selectFromDestination("select sum(id) from copy2"));
+    }
+
+    @Test
+    public void testExecuteReadOnly() {
+        thrown.expect(CommandException.class);
+        thrown.expectMessage(res.get("e.readonly"));
+        executeCommand(cmd, null, "src select * from copy1 ro copy2");
+    }
+
+    @Test
+    public void testUsageException() {
+        thrown.expect(UsageException.class);
+        executeCommand(cmd, null, "src select dst");
+    }
+
+}
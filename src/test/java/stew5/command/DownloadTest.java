@@ -64,6 +64,37 @@ public final class DownloadTest {
         }
     }
 
+    @Test
+    public void testExecuteParallel() throws Exception {
+        final String testName = TestUtils.getCurrentMethodString(new Exception());
+        String tmpFolderPath = tmpFolder.newFolder(testName).getAbsolutePath();
+        try (Connection conn = connection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("create table download2 (id bigint primary key, data blob)");
+                stmt.executeUpdate("insert into download2 select x, stringtoutf8('data' || x) from system_range(1, 100)");
+            }
+            final String dir = tmpFolderPath + "/p";
+            executeCommand(cmd, conn, dir + " select data, 'd' || mod(id, 10), '/' || id || '.bin' from download2");
+            for (int i = 1; i <= 100; i++) {
+                final Path path = Paths.get(dir + "/d" + (i % 10) + "/" + i + ".bin");
+                assertEquals("data" + i, TestUtils.readAllLines(path).get(0));
+            }
+            conn.rollback();
+        }
+    }
+
+    @Test
+    public void testExecuteWithCompressionSuffix() throws Exception {
+        final String testName = TestUtils.getCurrentMethodString(new Exception());
+        String tmpFolderPath = tmpFolder.newFolder(testName).getAbsolutePath();
+        try (Connection conn = connection()) {
+            // written as it is by default
+            final String dir = tmpFolderPath + "/gz";
+            executeCommand(cmd, conn, dir + " select stringtoutf8('data'), 'backup.tar.gz' from table1");
+            assertArrayEquals("data".getBytes("UTF-8"), Files.readAllBytes(Paths.get(dir + "/backup.tar.gz")));
+        }
+    }
+
     @Test
     public void testExecuteUsageException1() throws SQLException {
         try (Connection conn = connection()) {
@@ -0,0 +1,79 @@
+package stew5.command;
+
+import static org.junit.Assert.*;
+import static stew5.TestUtils.*;
+import java.util.*;
+import org.hamcrest.*;
+import org.junit.*;
+import org.junit.rules.*;
+import net.argius.stew.*;
+import stew5.*;
+
+public final class FanoutTest {
+
+    private static final ResourceManager res = ResourceManager.getInstance(Command.class);
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    Command cmd = new Fanout();
+    Environment env = new Environment();
+    StringBuilderOutputProcessor op = new StringBuilderOutputProcessor();
+
+    @Before
+    public void initEnv() {
+        env.setOutputProcessor(op);
+        ConnectorMap m = env.getConnectorMap();
+        m.clear();
+        m.setConnector("shard1", connector("shard1"));
+        m.setConnector("shard2", connector("shard2"));
+        m.setConnector("other1", connector("other1"));
+        cmd.setEnvironment(env);
+    }
+
+    private static Connector connector(String id) {
+        Properties props = new Properties();
+        props.setProperty("driver", "org.h2.Driver");
+        props.setProperty("url", "jdbc:h2:mem:fanout" + id);
+        props.setProperty("user", "sa");
+        props.setProperty("password", "");
+        return new Connector(id, props);
+    }
+
+    @Test
+    public void testExecute() {
+        executeCommand(cmd, null, "shard* select 1 as col1");
+        final String s = op.getOutputString();
+        assertThat(s, Matchers.containsString(res.get("Fanout.header", "shard1")));
+        assertThat(s, Matchers.containsString(res.get("Fanout.header", "shard2")));
+        assertFalse(s.contains(res.get("Fanout.header", "other1")));
+        assertThat(s, Matchers.containsString("COL1"));
+        assertTrue(s.indexOf("[shard1]") < s.indexOf("[shard2]"));
+        assertEquals(0, env.getExitStatus());
+        executeCommand(cmd, null, "shard1,other? select * from not_exists");
+        final String s2 = op.getOutputString();
+        assertThat(s2, Matchers.containsString(res.get("Fanout.header", "shard1")));
+        assertThat(s2, Matchers.containsString(res.get("Fanout.header", "other1")));
+        assertThat(s2, Matchers.containsString(res.get("Fanout.status.failed")));
+        assertEquals(1, env.getExitStatus());
+        executeCommand(cmd, null, "unknown* select 1");
+        assertEquals(res.get("Fanout.msg.noTarget", "unknown*"), op.getOutputString());
+    }
+
+    @Test
+    public void testGetTargetIds() {
+        ConnectorMap m = env.getConnectorMap();
+        assertEquals(Arrays.asList("shard1", "shard2"), Fanout.getTargetIds(m, "shard*"));
+        assertEquals(Arrays.asList("other1", "shard1", "shard2"), Fanout.getTargetIds(m, "other1,shard?,shard1"));
+        assertEquals(Arrays.asList("shard1", "shard2", "other1"), Fanout.getTargetIds(m, "*"));
+        assertEquals(Collections.emptyList(), Fanout.getTargetIds(m, "shard3,x*"));
+    }
+
+    @Test
+    public void testUsageException() {
+        thrown.expect(UsageException.class);
+        thrown.expectMessage(res.get("usage." + cmd.getClass().getSimpleName()));
+        executeCommand(cmd, null, "shard*");
+    }
+
+}
@@ -44,6 +44,38 @@ public final class FindTest {
         }
     }
 
+    @Test
+    public void testExecuteWithIndex() throws SQLException {
+        try (Connection conn = connection()) {
+            TestUtils.setConnectionToEnv(conn, env);
+            try {
+                executeCommand(cmd, conn, "COLUMN filedata");
+                assertThat(op.getOutputString(), Matchers.containsString("[TABLE2, FILEDATA, "));
+                executeCommand(cmd, conn, "COLUMN *LEDA?A");
+                assertThat(op.getOutputString(), Matchers.containsString("[TABLE2, FILEDATA, "));
+                executeCommand(cmd, conn, "ANY table2");
+                assertThat(op.getOutputString(), Matchers.containsString("[TABLE2, "));
+                executeCommand(cmd, conn, "COLUMN nonexistent*");
+                assertEquals(ResourceManager.getInstance(Command.class).get("i.selected", 0), op.getOutputString());
+            } finally {
+                MetadataCache.getInstance().clear("dummy");
+            }
+        }
+    }
+
+    @Test
+    public void testExecuteQuotedKeyword() throws SQLException {
+        try (Connection conn = connection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("create table \"ANY\" (id bigint)");
+                conn.commit();
+            }
+            TestUtils.setConnectionToEnv(conn, env);
+            executeCommand(cmd, conn, "\"ANY\" TABLE");
+            assertThat(op.getOutputString(), Matchers.containsString("[ANY, TABLE, PUBLIC, TEST]"));
+        }
+    }
+
     @Test
     public void testIsReadOnly() {
         assertTrue(cmd.isReadOnly());
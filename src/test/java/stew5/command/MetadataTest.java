@@ -0,0 +1,91 @@
+package stew5.command;
+
+import static org.junit.Assert.*;
+import static stew5.TestUtils.*;
+import java.sql.*;
+import org.hamcrest.*;
+import org.junit.*;
+import org.junit.rules.*;
+import net.argius.stew.*;
+import stew5.*;
+
+public final class MetadataTest {
+
+    private static final ResourceManager res = ResourceManager.getInstance(Command.class);
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    Command cmd = new Metadata();
+    Environment env = new Environment();
+    StringBuilderOutputProcessor op = new StringBuilderOutputProcessor();
+
+    @Before
+    public void initEnv() {
+        env.setOutputProcessor(op);
+        cmd.setEnvironment(env);
+    }
+
+    @After
+    public void clearCache() {
+        MetadataCache.getInstance().clear("dummy");
+    }
+
+    @Test
+    public void testExecute() throws SQLException {
+        try (Connection conn = connection()) {
+            setConnectionToEnv(conn, env);
+            executeCommand(cmd, conn, "status");
+            assertEquals(res.get("Metadata.msg.not-loaded"), op.getOutputString());
+            executeCommand(cmd, conn, "load");
+            final String loaded = op.getOutputString();
+            MetadataSnapshot snapshot = MetadataCache.getInstance().peek(env.getCurrentConnector());
+            assertNotNull(snapshot);
+            final int tableCount = snapshot.getTableCount();
+            assertThat(loaded, Matchers.startsWith(res.get("Metadata.msg.loaded", tableCount)));
+            assertEquals(-1, snapshot.getColumnCount());
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("create table metadata1 (id int primary key)");
+            }
+            // find is answered from the snapshot
+            Find find = new Find();
+            find.setEnvironment(env);
+            executeCommand(find, conn, "METADATA1");
+            assertThat(op.getOutputString(), Matchers.containsString(res.get("i.selected", 0)));
+            executeCommand(find, conn, "TABLE1");
+            assertThat(op.getOutputString(), Matchers.containsString("[TABLE1, TABLE, PUBLIC, TEST]"));
+            executeCommand(cmd, conn, "refresh METADATA*");
+            assertEquals(tableCount + 1, snapshot.getTableCount());
+            executeCommand(find, conn, "METADATA1");
+            assertThat(op.getOutputString(), Matchers.containsString("[METADATA1, TABLE, PUBLIC, TEST]"));
+            // report is answered from the snapshot
+            Report report = new Report();
+            report.setEnvironment(env);
+            executeCommand(report, conn, "METADATA1");
+            assertThat(op.getOutputString(), Matchers.containsString("ID"));
+            assertTrue(snapshot.getColumnCount() > 0);
+            executeCommand(report, conn, "METADATA1 PK");
+            assertThat(op.getOutputString(), Matchers.containsString("METADATA1"));
+            executeCommand(cmd, conn, "status");
+            assertThat(op.getOutputString(), Matchers.containsString(String.valueOf(tableCount + 1)));
+            executeCommand(cmd, conn, "clear");
+            assertEquals(res.get("Metadata.msg.cleared"), op.getOutputString());
+            assertNull(MetadataCache.getInstance().peek(env.getCurrentConnector()));
+        }
+    }
+
+    @Test
+    public void testIsReadOnly() {
+        assertTrue(cmd.isReadOnly());
+    }
+
+    @Test
+    public void testUsageException() throws SQLException {
+        try (Connection conn = connection()) {
+            setConnectionToEnv(conn, env);
+            thrown.expect(UsageException.class);
+            executeCommand(cmd, conn, "");
+        }
+    }
+
+}
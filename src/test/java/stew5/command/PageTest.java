@@ -0,0 +1,128 @@
+package stew5.command;
+
+import static org.junit.Assert.*;
+import static stew5.TestUtils.*;
+import java.sql.*;
+import org.hamcrest.*;
+import org.junit.*;
+import org.junit.rules.*;
+import net.argius.stew.*;
+import stew5.*;
+
+public final class PageTest {
+
+    private static final ResourceManager res = ResourceManager.getInstance(Command.class);
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    Command cmd = new Page();
+    Environment env = new Environment();
+    StringBuilderOutputProcessor op = new StringBuilderOutputProcessor();
+
+    @Before
+    public void initEnv() {
+        env.setOutputProcessor(op);
+        cmd.setEnvironment(env);
+    }
+
+    @Test
+    public void testExecute() throws SQLException {
+        try (Connection conn = connection()) {
+            setConnectionToEnv(conn, env);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("create table page1 (id int primary key)");
+                for (int i = 1; i <= 250; i++) {
+                    stmt.executeUpdate("insert into page1 values (" + i + ")");
+                }
+            }
+            executeCommand(cmd, conn, "select id from page1 order by id");
+            assertThat(op.getOutputString(), Matchers.endsWith("[100]" + res.get("Page.msg.page", 1, 1, 100)));
+            executeCommand(cmd, conn, "next");
+            String s = op.getOutputString();
+            assertThat(s, Matchers.containsString("[101]"));
+            assertThat(s, Matchers.endsWith("[200]" + res.get("Page.msg.page", 2, 101, 200)));
+            executeCommand(cmd, conn, "");
+            assertThat(op.getOutputString(), Matchers.endsWith("[250]" + res.get("Page.msg.page", 3, 201, 250)));
+            executeCommand(cmd, conn, "prev");
+            assertThat(op.getOutputString(), Matchers.endsWith(res.get("Page.msg.page", 2, 101, 200)));
+            executeCommand(cmd, conn, "first");
+            assertThat(op.getOutputString(), Matchers.endsWith(res.get("Page.msg.page", 1, 1, 100)));
+            executeCommand(cmd, conn, "3");
+            assertThat(op.getOutputString(), Matchers.endsWith(res.get("Page.msg.page", 3, 201, 250)));
+        }
+    }
+
+    @Test
+    public void testExecuteOrdered() throws SQLException {
+        try (Connection conn = connection()) {
+            setConnectionToEnv(conn, env);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("create table page2 (id int primary key)");
+                for (int i = 1; i <= 150; i++) {
+                    stmt.executeUpdate("insert into page2 values (" + i + ")");
+                }
+            }
+            executeCommand(cmd, conn, "select id from page2 order by id desc");
+            String s = op.getOutputString();
+            assertThat(s, Matchers.containsString("[150]"));
+            assertThat(s, Matchers.endsWith("[51]" + res.get("Page.msg.page", 1, 1, 100)));
+            executeCommand(cmd, conn, "next");
+            s = op.getOutputString();
+            assertThat(s, Matchers.containsString("[50]"));
+            assertThat(s, Matchers.endsWith("[1]" + res.get("Page.msg.page", 2, 101, 150)));
+        }
+    }
+
+    @Test
+    public void testRewrite() {
+        assertEquals("SELECT * FROM (select * from t) stew_page LIMIT 10 OFFSET 20",
+                     Page.rewrite("select * from t", Page.Dialect.LIMIT, 20L, 10));
+        assertNull(Page.rewrite("select * from t where id=?;1", Page.Dialect.OFFSET, 0L, 5));
+    }
+
+    @Test
+    public void testRewriteOrdered() {
+        assertEquals("select * from t order by id LIMIT 10 OFFSET 20",
+                     Page.rewrite("select * from t order by id", Page.Dialect.LIMIT, 20L, 10));
+        assertEquals("select * from t where id>? order by id desc OFFSET 0 ROWS FETCH NEXT 5 ROWS ONLY;1",
+                     Page.rewrite("select * from t where id>? order by id desc;1", Page.Dialect.OFFSET, 0L, 5));
+        assertEquals("SELECT * FROM (select * from (select * from t order by id) x) stew_page LIMIT 10 OFFSET 0",
+                     Page.rewrite("select * from (select * from t order by id) x", Page.Dialect.LIMIT, 0L, 10));
+    }
+
+    @Test
+    public void testEndsWithOrderBy() {
+        assertTrue(Page.endsWithOrderBy("select * from t ORDER  BY a, b desc nulls last"));
+        assertTrue(Page.endsWithOrderBy("select * from t where x in (select y from u) order by (a + b)"));
+        assertFalse(Page.endsWithOrderBy("select * from t"));
+        assertFalse(Page.endsWithOrderBy("select * from t where name = 'order by'"));
+        assertFalse(Page.endsWithOrderBy("select * from (select * from t order by a) x"));
+        assertFalse(Page.endsWithOrderBy("select * from t order by a limit 10"));
+        assertFalse(Page.endsWithOrderBy("select * from t order by a for update"));
+    }
+
+    @Test
+    public void testNoQuery() throws SQLException {
+        try (Connection conn = connection()) {
+            setConnectionToEnv(conn, env);
+            thrown.expect(CommandException.class);
+            thrown.expectMessage(res.get("Page.msg.no-query"));
+            executeCommand(cmd, conn, "next");
+        }
+    }
+
+    @Test
+    public void testIsReadOnly() {
+        assertTrue(cmd.isReadOnly());
+    }
+
+    @Test
+    public void testUsageException() throws SQLException {
+        try (Connection conn = connection()) {
+            thrown.expect(UsageException.class);
+            executeCommand(cmd, conn, "back");
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package stew5.command;
+
+import static org.junit.Assert.*;
+import static stew5.TestUtils.*;
+import java.sql.*;
+import org.hamcrest.*;
+import org.junit.*;
+import org.junit.rules.*;
+import net.argius.stew.*;
+import stew5.*;
+
+public final class ProfileTest {
+
+    private static final ResourceManager res = ResourceManager.getInstance(Command.class);
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    Command cmd = new Profile();
+    Environment env = new Environment();
+    StringBuilderOutputProcessor op = new StringBuilderOutputProcessor();
+
+    @Before
+    public void initEnv() {
+        env.setOutputProcessor(op);
+        cmd.setEnvironment(env);
+    }
+
+    @Test
+    public void testExecute() throws SQLException {
+        try (Connection conn = connection()) {
+            setConnectionToEnv(conn, env);
+            executeCommand(cmd, conn, "");
+            assertEquals(res.get("Profile.msg.no-profile"), op.getOutputString());
+            executeCommand(cmd, conn, "on");
+            assertEquals(res.get("Profile.msg.on"), op.getOutputString());
+            assertTrue(env.isProfiling());
+            Commands.invoke(env, "select id from table1");
+            assertThat(op.getOutputString(), Matchers.containsString("[ dispatch "));
+            QueryProfile profile = env.getLastProfile();
+            assertEquals("select id from table1", profile.getSql());
+            assertEquals(1L, profile.getRowCount());
+            assertTrue(profile.getTotalTime() >= profile.get(QueryProfile.Phase.EXECUTE));
+            executeCommand(cmd, conn, "off");
+            assertEquals(res.get("Profile.msg.off"), op.getOutputString());
+            assertFalse(env.isProfiling());
+            executeCommand(cmd, conn, "last");
+            assertThat(op.getOutputString(), Matchers.startsWith("select id from table1"));
+        }
+    }
+
+    @Test
+    public void testUsageException() throws SQLException {
+        thrown.expect(UsageException.class);
+        executeCommand(cmd, null, "on off");
+    }
+
+}
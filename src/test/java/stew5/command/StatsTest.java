@@ -0,0 +1,58 @@
+package stew5.command;
+
+import static org.junit.Assert.*;
+import static stew5.TestUtils.*;
+import java.io.*;
+import java.sql.*;
+import org.hamcrest.*;
+import org.junit.*;
+import org.junit.rules.*;
+import net.argius.stew.*;
+import stew5.*;
+
+public final class StatsTest {
+
+    private static final ResourceManager res = ResourceManager.getInstance(Command.class);
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    Command cmd = new Stats();
+    Environment env = new Environment();
+    StringBuilderOutputProcessor op = new StringBuilderOutputProcessor();
+
+    @Before
+    public void initEnv() {
+        env.setOutputProcessor(op);
+        cmd.setEnvironment(env);
+    }
+
+    @Test
+    public void testExecute() throws SQLException {
+        Metrics.getInstance().counter("test_stats_total", "test").inc();
+        executeCommand(cmd, null, "");
+        final String s = op.getOutputString();
+        assertThat(s, Matchers.containsString(res.get("Stats.label.name")));
+        assertThat(s, Matchers.containsString("test_stats_total"));
+        executeCommand(cmd, null, "reset");
+        assertEquals(res.get("Stats.msg.reset"), op.getOutputString());
+        assertEquals(0L, Metrics.getInstance().counter("test_stats_total", "test").get());
+    }
+
+    @Test
+    public void testExecuteDump() throws IOException, SQLException {
+        File file = new File(tmpFolder.getRoot(), "stats.prom");
+        executeCommand(cmd, null, "dump " + file.getAbsolutePath());
+        assertTrue(file.exists());
+        assertEquals(res.get("Stats.msg.dumped", file), op.getOutputString());
+    }
+
+    @Test
+    public void testUsageException() throws SQLException {
+        thrown.expect(UsageException.class);
+        executeCommand(cmd, null, "dump");
+    }
+
+}
@@ -75,6 +75,23 @@ public class UploadTest {
         }
     }
 
+    @Test
+    public void testUploadDirectory() throws Exception {
+        final String testName = TestUtils.getCurrentMethodString(new Exception());
+        try (Connection conn = TestUtils.connection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("create table upload_dir (filedata blob, name varchar(32))");
+            }
+            File dir = tmpFolder.newFolder(testName);
+            for (int i = 1; i <= 3; i++) {
+                Files.write(new File(dir, i + ".bin").toPath(), new byte[]{(byte)i, 0x00});
+            }
+            executeCommand(cmd, conn, " " + dir + " B insert into upload_dir values (?, ?)");
+            assertEquals("3", select(conn, "select count(*) from upload_dir"));
+            assertEquals("0200", select(conn, "select filedata from upload_dir where name='2.bin'"));
+        }
+    }
+
     @Test
     public void testGetModeOption() {
         for (String word : generateLetterCases("T", "TEXT")) {
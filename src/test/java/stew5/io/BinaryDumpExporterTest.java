@@ -0,0 +1,122 @@
+package stew5.io;
+
+import static org.junit.Assert.*;
+import java.io.*;
+import java.math.*;
+import java.sql.*;
+import java.util.*;
+import org.junit.*;
+import org.junit.rules.*;
+import stew5.*;
+
+public final class BinaryDumpExporterTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void testExportAndImport() throws IOException {
+        final String testName = TestUtils.getCurrentMethodString(new Exception());
+        File file = new File(tmpFolder.newFolder(testName), "table1.stew");
+        Timestamp ts = Timestamp.valueOf("2016-01-02 03:04:05.123456789");
+        List<Object> values = Arrays.<Object> asList(1,
+                                                     123456789012L,
+                                                     "aaa",
+                                                     new BigDecimal("-1234.5678"),
+                                                     java.sql.Date.valueOf("2016-01-02"),
+                                                     Time.valueOf("03:04:05"),
+                                                     ts,
+                                                     true,
+                                                     (short)2,
+                                                     (byte)3,
+                                                     1.5d,
+                                                     2.5f,
+                                                     BigInteger.TEN,
+                                                     null);
+        try (Exporter exporter = Exporter.getExporter(file)) {
+            assertTrue(exporter instanceof BinaryDumpExporter);
+            ColumnDefinition[] columns = new ColumnDefinition[values.size()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = new ColumnDefinition("C" + i, Types.OTHER);
+            }
+            columns[0] = new ColumnDefinition("ID", Types.INTEGER);
+            exporter.declareColumns(columns);
+            exporter.addRow(values.toArray());
+            exporter.addRow(new Object[values.size()]);
+        }
+        try (Importer importer = Importer.getImporter(file)) {
+            assertTrue(importer instanceof BinaryDumpImporter);
+            Object[] header = importer.getHeader();
+            assertEquals("ID", header[0]);
+            assertEquals("C1", header[1]);
+            assertEquals(Types.INTEGER, ((BinaryDumpImporter)importer).getSqlTypes()[0]);
+            Object[] row1 = importer.nextRow();
+            assertEquals(values, Arrays.asList(row1));
+            assertEquals(ts.getNanos(), ((Timestamp)row1[6]).getNanos());
+            assertEquals(Arrays.asList(new Object[values.size()]), Arrays.asList(importer.nextRow()));
+            assertEquals(0, importer.nextRow().length);
+        }
+    }
+
+    @Test
+    public void testBlocks() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (BinaryDumpExporter exporter = new BinaryDumpExporter(bos)) {
+            exporter.addHeader("ID", "DATA");
+            for (int i = 0; i < 1000; i++) {
+                exporter.addRow(i, new byte[4096]);
+            }
+        }
+        try (BinaryDumpImporter importer = new BinaryDumpImporter(new ByteArrayInputStream(bos.toByteArray()))) {
+            assertEquals(Arrays.asList("ID", "DATA"), Arrays.asList(importer.getHeader()));
+            for (int i = 0; i < 1000; i++) {
+                Object[] row = importer.nextRow();
+                assertEquals(i, row[0]);
+                assertArrayEquals(new byte[4096], (byte[])row[1]);
+            }
+            assertEquals(0, importer.nextRow().length);
+        }
+    }
+
+    @Test
+    public void testUnknownType() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (BinaryDumpExporter exporter = new BinaryDumpExporter(bos)) {
+            exporter.addHeader("ID", "VALUE");
+            exporter.addRow(1, new Object() {
+                @Override
+                public String toString() {
+                    return "not serializable";
+                }
+            });
+            exporter.addRow(2, Arrays.asList("a", "b"));
+        }
+        try (BinaryDumpImporter importer = new BinaryDumpImporter(new ByteArrayInputStream(bos.toByteArray()))) {
+            importer.getHeader();
+            assertEquals("not serializable", importer.nextRow()[1]);
+            assertEquals("[a, b]", importer.nextRow()[1]);
+        }
+    }
+
+    @Test
+    public void testSerializedObject() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeByte(BinaryDump.OBJECT);
+        BinaryDump.writeBytes(out, new byte[]{(byte)0xAC, (byte)0xED, 0, 5});
+        thrown.expect(IOException.class);
+        thrown.expectMessage("unsupported tag");
+        BinaryDump.readValue(new DataInputStream(new ByteArrayInputStream(bos.toByteArray())));
+    }
+
+    @Test
+    public void testInvalidFile() throws IOException {
+        thrown.expect(IOException.class);
+        thrown.expectMessage("not a stew dump file");
+        new BinaryDumpImporter(new ByteArrayInputStream("ID,NAME\n".getBytes()));
+    }
+
+}
@@ -0,0 +1,87 @@
+package stew5.io;
+
+import static org.junit.Assert.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+import org.junit.*;
+import org.junit.rules.*;
+import stew5.*;
+
+public final class CompressionTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void testOf() {
+        assertEquals(Compression.GZIP, Compression.of(new File("data.csv.gz")));
+        assertEquals(Compression.GZIP, Compression.of(new File("data.csv.GZ")));
+        assertEquals(Compression.ZSTD, Compression.of(new File("data.csv.zst")));
+        assertEquals(Compression.LZ4, Compression.of(new File("data.xml.lz4")));
+        assertEquals(Compression.NONE, Compression.of(new File("data.csv")));
+        assertEquals(Compression.NONE, Compression.of(new File("data")));
+    }
+
+    @Test
+    public void testStripSuffix() {
+        assertEquals(new File("data.csv"), Compression.stripSuffix(new File("data.csv.gz")));
+        assertEquals(new File("dir", "data.xml"), Compression.stripSuffix(new File("dir", "data.xml.zst")));
+        assertEquals(new File("data.csv"), Compression.stripSuffix(new File("data.csv")));
+    }
+
+    @Test
+    public void testExportAndImportGzip() throws IOException {
+        final String testName = TestUtils.getCurrentMethodString(new Exception());
+        File file = new File(tmpFolder.newFolder(testName), "data.csv.gz");
+        try (Exporter exporter = Exporter.getExporter(file)) {
+            exporter.addHeader("ID", "NAME");
+            exporter.addRow(1, "aaa");
+            exporter.addRow(2, "bbb");
+        }
+        try (InputStream is = new GZIPInputStream(new FileInputStream(file))) {
+            assertEquals(0x49, is.read()); // 'I'
+        }
+        try (Importer importer = Importer.getImporter(file)) {
+            assertEquals(Arrays.asList("ID", "NAME"), Arrays.asList(importer.nextRow()));
+            assertEquals(Arrays.asList("1", "aaa"), Arrays.asList(importer.nextRow()));
+            assertEquals(Arrays.asList("2", "bbb"), Arrays.asList(importer.nextRow()));
+            assertEquals(0, importer.nextRow().length);
+        }
+    }
+
+    @Test
+    public void testAsyncOutputStream() throws IOException {
+        final String testName = TestUtils.getCurrentMethodString(new Exception());
+        File file = new File(tmpFolder.newFolder(testName), "data.bin.gz");
+        byte[] data = new byte[100000];
+        new Random(1L).nextBytes(data);
+        try (OutputStream os = new AsyncOutputStream(Compression.GZIP.wrap(new FileOutputStream(file)), 4096)) {
+            os.write(data, 0, 10);
+            os.write(data, 10, data.length - 10);
+        }
+        try (InputStream is = Compression.openInputStream(file)) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n; (n = is.read(buffer)) > 0;) {
+                bos.write(buffer, 0, n);
+            }
+            assertArrayEquals(data, bos.toByteArray());
+        }
+    }
+
+    @Test
+    public void testUnavailableCompression() throws IOException {
+        final String testName = TestUtils.getCurrentMethodString(new Exception());
+        File file = new File(tmpFolder.newFolder(testName), "data.csv.lz4");
+        Files.write(file.toPath(), new byte[0]);
+        thrown.expect(IOException.class);
+        thrown.expectMessage("not available");
+        Compression.openInputStream(file);
+    }
+
+}
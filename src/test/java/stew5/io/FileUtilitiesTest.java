@@ -61,6 +61,20 @@ public final class FileUtilitiesTest {
         makeDirectory(file);
     }
 
+    @Test
+    public void testAppendRolling() throws IOException {
+        File file = new File(tmpFolder.getRoot(), "rolling.log");
+        File backup = new File(file.getPath() + ".1");
+        assertTrue(appendRolling(file, "entry1\n", 10L));
+        assertTrue(appendRolling(file, "entry2\n", 10L));
+        assertFalse(backup.exists());
+        assertTrue(appendRolling(file, "entry3\n", 10L));
+        assertEquals("entry1\nentry2\n", readAllBytesAsString(backup));
+        assertEquals("entry3\n", readAllBytesAsString(file));
+        assertTrue(appendRolling(file, "entry4\n", 0L));
+        assertEquals("entry3\nentry4\n", readAllBytesAsString(file));
+    }
+
     @Test
     public void testReadAllBytesAsString() throws IOException {
         final String testName = TestUtils.getCurrentMethodString(new Exception());
@@ -0,0 +1,103 @@
+package stew5.io;
+
+import static org.junit.Assert.*;
+import java.io.*;
+import java.nio.file.*;
+import java.sql.*;
+import java.util.*;
+import org.junit.*;
+import org.junit.rules.*;
+import stew5.*;
+
+public final class ParquetExporterTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void testExportAndImport() throws IOException {
+        final String testName = TestUtils.getCurrentMethodString(new Exception());
+        File file = new File(tmpFolder.newFolder(testName), "data.parquet");
+        Timestamp ts = Timestamp.valueOf("2016-01-02 03:04:05.678");
+        try (Exporter exporter = Exporter.getExporter(file)) {
+            assertTrue(exporter instanceof ParquetExporter);
+            exporter.declareColumns(new ColumnDefinition("ID", Types.INTEGER),
+                                    new ColumnDefinition("NAME", Types.VARCHAR),
+                                    new ColumnDefinition("FLAG", Types.BOOLEAN),
+                                    new ColumnDefinition("DT", Types.DATE),
+                                    new ColumnDefinition("TS", Types.TIMESTAMP),
+                                    new ColumnDefinition("AMOUNT", Types.DOUBLE),
+                                    new ColumnDefinition("DATA", Types.BLOB));
+            exporter.addHeader("ID", "NAME", "FLAG", "DT", "TS", "AMOUNT", "DATA");
+            exporter.addRow(1, "aaa", true, java.sql.Date.valueOf("2016-01-02"), ts, 1.5d, new byte[]{1, 2});
+            exporter.addRow(2, null, false, null, null, null, null);
+        }
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        assertEquals("PAR1", new String(bytes, 0, 4, "ISO-8859-1"));
+        assertEquals("PAR1", new String(bytes, bytes.length - 4, 4, "ISO-8859-1"));
+        try (Importer importer = Importer.getImporter(file)) {
+            assertEquals(Arrays.asList("ID", "NAME", "FLAG", "DT", "TS", "AMOUNT", "DATA"),
+                         Arrays.asList(importer.getHeader()));
+            Object[] row1 = importer.nextRow();
+            assertEquals(Arrays.<Object> asList(1, "aaa", true, java.sql.Date.valueOf("2016-01-02"), ts, 1.5d),
+                         Arrays.asList(row1).subList(0, 6));
+            assertArrayEquals(new byte[]{1, 2}, (byte[])row1[6]);
+            assertEquals(Arrays.<Object> asList(2, null, false, null, null, null, null),
+                         Arrays.asList(importer.nextRow()));
+            assertEquals(0, importer.nextRow().length);
+        }
+    }
+
+    @Test
+    public void testExportWithoutDeclaration() throws IOException {
+        final String testName = TestUtils.getCurrentMethodString(new Exception());
+        File file = new File(tmpFolder.newFolder(testName), "data.parquet");
+        try (Exporter exporter = Exporter.getExporter(file)) {
+            exporter.addRow(123, "abc");
+        }
+        try (Importer importer = Importer.getImporter(file)) {
+            assertEquals(Arrays.asList("column1", "column2"), Arrays.asList(importer.getHeader()));
+            assertEquals(Arrays.asList("123", "abc"), Arrays.asList(importer.nextRow()));
+            assertEquals(0, importer.nextRow().length);
+        }
+    }
+
+    @Test
+    public void testAddRowWithInvalidValue() throws IOException {
+        final String testName = TestUtils.getCurrentMethodString(new Exception());
+        File file = new File(tmpFolder.newFolder(testName), "data.parquet");
+        try (Exporter exporter = Exporter.getExporter(file)) {
+            exporter.declareColumns(new ColumnDefinition("ID", Types.INTEGER),
+                                    new ColumnDefinition("NAME", Types.VARCHAR),
+                                    new ColumnDefinition("FLAG", Types.BOOLEAN),
+                                    new ColumnDefinition("AMOUNT", Types.INTEGER));
+            exporter.addRow(1, "aaa", true, 10);
+            try {
+                exporter.addRow(2, "bbb", false, "not a number");
+                fail("NumberFormatException expected");
+            } catch (NumberFormatException ex) {
+                // the row is discarded
+            }
+            exporter.addRow(3, null, false, 30);
+        }
+        try (Importer importer = Importer.getImporter(file)) {
+            assertEquals(Arrays.<Object> asList(1, "aaa", true, 10), Arrays.asList(importer.nextRow()));
+            assertEquals(Arrays.<Object> asList(3, null, false, 30), Arrays.asList(importer.nextRow()));
+            assertEquals(0, importer.nextRow().length);
+        }
+    }
+
+    @Test
+    public void testImportInvalidFile() throws IOException {
+        final String testName = TestUtils.getCurrentMethodString(new Exception());
+        File file = new File(tmpFolder.newFolder(testName), "data.parquet");
+        Files.write(file.toPath(), "not a parquet file".getBytes());
+        thrown.expect(IOException.class);
+        thrown.expectMessage("not a parquet file");
+        Importer.getImporter(file);
+    }
+
+}
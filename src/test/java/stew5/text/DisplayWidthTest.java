@@ -0,0 +1,29 @@
+package stew5.text;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+public final class DisplayWidthTest {
+
+    @Test
+    public void testOf() {
+        assertEquals(1, DisplayWidth.of('a'));
+        assertEquals(1, DisplayWidth.of('é'));
+        assertEquals(2, DisplayWidth.of('あ'));
+        assertEquals(1, DisplayWidth.of('ｱ'));
+        assertEquals(1, DisplayWidth.of('ﾠ'));
+        assertEquals(0, DisplayWidth.of(0x0301));
+        assertEquals(0, DisplayWidth.of(0x200B));
+        assertEquals(2, DisplayWidth.of(0x20BB7));
+        assertEquals(2, DisplayWidth.of(0x1F600));
+        assertEquals(1, DisplayWidth.of(0x1D400));
+    }
+
+    @Test
+    public void testOfCharSequence() {
+        assertEquals(0, DisplayWidth.of(""));
+        assertEquals(7, DisplayWidth.of("abcあい"));
+        assertEquals(3, DisplayWidth.of("é𠮷"));
+    }
+
+}
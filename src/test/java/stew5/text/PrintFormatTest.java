@@ -2,6 +2,7 @@ package stew5.text;
 
 import static org.junit.Assert.*;
 import static stew5.text.PrintFormat.format;
+import java.util.*;
 import org.junit.*;
 
 public final class PrintFormatTest {
@@ -16,6 +17,39 @@ public final class PrintFormatTest {
         assertEquals("  \uFF61", format("%3s", '\uFF61'));
         assertEquals("  \uFF9F", format("%3s", '\uFF9F'));
         assertEquals("  \uFFA0", format("%3s", '\uFFA0'));
+        assertEquals("[abc] 100%", format("[%s] %s", "abc", "100%"));
+        assertEquals("100%  | %d", format("%-6s|%3s", "100%", "%d"));
+        assertEquals(" x" + String.format("%n"), format("%s %s%n", null, "x"));
+        assertEquals("  5|7  |true", format("%3d|%-3s|%3s", 5, 7, true));
+    }
+
+    @Test
+    public void testFormatTruncate() {
+        assertEquals("abcd|", format("%-4s|", "abcdef"));
+        assertEquals("cdef|", format("%4s|", "abcdef"));
+        assertEquals("あい |", format("%-5s|", "あいう"));
+        assertEquals(" いう|", format("%5s|", "あいう"));
+        assertEquals("あい|", format("%-4s|", "あいう"));
+        assertEquals("ｱｲｳｴ|", format("%-4s|", "ｱｲｳｴｵ"));
+    }
+
+    @Test
+    public void testFormatCodePoints() {
+        // combining mark
+        assertEquals("e\u0301a |", format("%-3s|", "e\u0301a"));
+        // surrogate pair
+        assertEquals("\uD842\uDFB7 |", format("%-3s|", "\uD842\uDFB7"));
+        assertEquals("  \uD842\uDFB7|", format("%4s|", "\uD842\uDFB7"));
+    }
+
+    @Test
+    public void testFormatError() {
+        try {
+            format("%s %s", "a");
+            fail();
+        } catch (RuntimeException ex) {
+            assertTrue(ex.getCause() instanceof MissingFormatArgumentException);
+        }
     }
 
 }
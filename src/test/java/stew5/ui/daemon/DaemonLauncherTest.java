@@ -0,0 +1,105 @@
+package stew5.ui.daemon;
+
+import static org.junit.Assert.*;
+import static stew5.TestUtils.*;
+import static stew5.ui.daemon.DaemonProtocol.*;
+import java.io.*;
+import java.net.*;
+import org.hamcrest.*;
+import org.junit.*;
+import org.junit.rules.*;
+import stew5.*;
+
+public final class DaemonLauncherTest {
+
+    private static final long TIMEOUT_MILLIS = 10000L;
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    File systemDirectory;
+    DaemonLauncher launcher = new DaemonLauncher();
+    Environment env = new Environment();
+    StringBuilderOutputProcessor op = new StringBuilderOutputProcessor();
+    Thread thread;
+
+    @Before
+    public void startDaemon() throws InterruptedException {
+        // daemon.port is 0 (ephemeral port) by default
+        systemDirectory = setSystemDirectory(tmpFolder.getRoot());
+        env.setOutputProcessor(op);
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                launcher.launch(env);
+            }
+        });
+        thread.start();
+        final long limit = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (readInfo() == null || readInfo().getProperty("token", "").isEmpty()) {
+            assertTrue("daemon did not start", System.currentTimeMillis() < limit);
+            Thread.sleep(50L);
+        }
+    }
+
+    @After
+    public void stopDaemon() throws InterruptedException {
+        if (thread.isAlive()) {
+            launcher.stop();
+        }
+        thread.join(TIMEOUT_MILLIS);
+        env.release();
+        setSystemDirectory(systemDirectory);
+    }
+
+    @Test
+    public void testCommand() throws IOException, InterruptedException {
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        final int exitStatus = DaemonClient.send("",
+                                                 false,
+                                                 "? java.version",
+                                                 new PrintStream(stdout, true, "UTF-8"),
+                                                 new PrintStream(stderr, true, "UTF-8"));
+        assertEquals(0, exitStatus);
+        assertThat(stdout.toString("UTF-8"),
+                   Matchers.containsString("java.version=[" + System.getProperty("java.version") + "]"));
+        assertEquals("", stderr.toString("UTF-8"));
+        assertEquals(0, DaemonClient.stop());
+        thread.join(TIMEOUT_MILLIS);
+        assertFalse(thread.isAlive());
+        assertFalse(getInfoFile().exists());
+    }
+
+    @Test
+    public void testInvalidToken() throws IOException {
+        try (Socket socket = connect()) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            writeString(out, "invalid-token");
+            out.writeByte(REQUEST_STOP);
+            out.flush();
+            assertEquals(-1, socket.getInputStream().read()); // closed without any response
+        }
+        assertTrue(thread.isAlive());
+        assertTrue(getInfoFile().exists());
+    }
+
+    @Test
+    public void testTooLongToken() throws IOException {
+        try (Socket socket = connect()) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(Integer.MAX_VALUE); // must not be allocated
+            out.flush();
+            assertEquals(-1, socket.getInputStream().read()); // closed without reading the rest
+        }
+        assertTrue(thread.isAlive());
+    }
+
+    private static Socket connect() throws IOException {
+        final int port = Integer.parseInt(readInfo().getProperty("port"));
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setSoTimeout((int)TIMEOUT_MILLIS);
+        return socket;
+    }
+
+}